@@ -0,0 +1,95 @@
+package conlife;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Steps a game in the background on the {@link StepPool} for {@link GameState#stepAsync(int)}. Steps run one after
+ * another in the order they were asked for. Once a generation has been asked for, up to the lookahead more are
+ * computed and copied ahead of time, so the next request is usually answered at once while the caller is still busy
+ * with the generation before it.
+ * <p>
+ * A step that fails fails every step already chained onto it, and once it has failed the next step asked for, or a
+ * {@link #settle()}, starts a fresh chain from wherever the game got to.
+ */
+class AsyncStepper {
+
+    private final GameState game;
+    private int lookahead = 1;
+    // The last step scheduled, which every later step is chained onto
+    private CompletableFuture<Generation> tail;
+    // How many steps past the start have been asked for, and how many have been scheduled
+    private long requested, scheduled;
+    // The generations computed ahead of time that haven't been asked for yet, by how many steps past the start they are
+    private final Map<Long, CompletableFuture<Generation>> ahead = new TreeMap<>();
+
+    AsyncStepper(GameState game) {
+        this.game = game;
+        tail = CompletableFuture.completedFuture(null);
+    }
+
+    synchronized void setLookahead(int lookahead) {
+        this.lookahead = lookahead;
+    }
+
+    synchronized int getLookahead() {
+        return lookahead;
+    }
+
+    synchronized CompletableFuture<Generation> step(int steps) {
+        if (tail.isCompletedExceptionally()) {
+            restart();
+        }
+        long target = requested + steps;
+        requested = target;
+        if (scheduled < target) {
+            schedule((int) (target - scheduled));
+        }
+        CompletableFuture<Generation> result = ahead.get(target);
+        ahead.keySet().removeIf(step -> step <= target);
+        while (scheduled < target + lookahead) {
+            schedule(1);
+        }
+        return result;
+    }
+
+    // Drops the failed chain, along with the generations that were to be computed on top of it
+    private void restart() {
+        tail = CompletableFuture.completedFuture(null);
+        ahead.clear();
+        requested = scheduled;
+    }
+
+    private void schedule(int steps) {
+        tail = tail.thenApplyAsync(previous -> {
+            game._processGameSteps(steps);
+            return game._currentGeneration();
+        }, StepPool.get());
+        scheduled += steps;
+        ahead.put(scheduled, tail);
+    }
+
+    /**
+     * Waits for every scheduled step to finish and forgets the generations computed ahead of time, so the game can be
+     * stepped or edited directly again from the last generation computed.
+     */
+    void settle() {
+        CompletableFuture<Generation> last;
+        synchronized (this) {
+            last = tail;
+            ahead.clear();
+            requested = scheduled;
+        }
+        try {
+            last.join();
+        } catch (RuntimeException e) {
+            // Whoever asked for the failed step has been told through its future
+            synchronized (this) {
+                if (tail == last) {
+                    restart();
+                }
+            }
+        }
+    }
+}
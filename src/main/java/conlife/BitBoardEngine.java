@@ -0,0 +1,281 @@
+package conlife;
+
+/**
+ * Stores the board as rows of bits, 64 cells per long, and computes each generation with word wide bitwise adders
+ * instead of counting the neighbors of one cell at a time. Like the cell based board, the edges wrap around.
+ */
+class BitBoardEngine implements RowEngine {
+
+    /**
+     * Computes several words of a row at once. The Vector API kernel is only built by the vector profile and can only
+     * be used when the jdk.incubator.vector module is present, so this is null otherwise and every word is computed
+     * one at a time.
+     */
+    static final RowKernel VECTOR_KERNEL = loadVectorKernel();
+
+    private final int width, height;
+    private final int wordsPerRow;
+    // Position of the last cell of a row within the final word of that row
+    private final int lastBit;
+    private final long lastWordMask;
+
+    private long[] current;
+    // Holds the generation before current after a step, and is overwritten by the next step
+    private long[] previous;
+    private boolean stepped = false;
+
+    // The rules of the step in progress
+    private RuleCompiler.Circuit circuit;
+    private long[] birth, survive;
+
+    BitBoardEngine(int width, int height) {
+        this.width = width;
+        this.height = height;
+        wordsPerRow = (width + 63) >>> 6;
+        lastBit = (width - 1) & 63;
+        lastWordMask = -1L >>> (63 - lastBit);
+        current = new long[wordsPerRow * height];
+        previous = new long[wordsPerRow * height];
+    }
+
+    @Override
+    public boolean isAlive(int x, int y) {
+        return ((current[y * wordsPerRow + (x >>> 6)] >>> (x & 63)) & 1L) == 1L;
+    }
+
+    @Override
+    public void setAlive(int x, int y, boolean alive) {
+        int index = y * wordsPerRow + (x >>> 6);
+        long bit = 1L << (x & 63);
+        // The edit is mirrored into the previous generation so it isn't reported as a change made by the last step
+        if (alive) {
+            current[index] |= bit;
+            previous[index] |= bit;
+        } else {
+            current[index] &= ~bit;
+            previous[index] &= ~bit;
+        }
+    }
+
+    @Override
+    public void copyRows(long[] cells, int width, int height) {
+        // The board is already stored the same way
+        System.arraycopy(current, 0, cells, 0, current.length);
+    }
+
+    @Override
+    public void step(Rules rules) {
+        beginStep(rules);
+        stepRows(0, height);
+        endStep();
+    }
+
+    @Override
+    public int getRowCount() {
+        return height;
+    }
+
+    @Override
+    public void beginStep(Rules rules) {
+        birth = ruleMasks(rules.birth);
+        survive = ruleMasks(rules.survive);
+        circuit = RuleCompiler.compileCircuit(rules);
+    }
+
+    @Override
+    public void stepRows(int from, int to) {
+        final long[] board = current;
+        final long[] result = previous;
+        final RuleCompiler.Circuit circuit = this.circuit;
+        final long[] birth = this.birth, survive = this.survive;
+        for (int y = from; y < to; y++) {
+            int up = (y == 0 ? height - 1 : y - 1) * wordsPerRow;
+            int mid = y * wordsPerRow;
+            int down = (y == height - 1 ? 0 : y + 1) * wordsPerRow;
+            stepRow(board, result, up, mid, down, circuit, birth, survive);
+        }
+    }
+
+    @Override
+    public void endStep() {
+        long[] board = current;
+        current = previous;
+        previous = board;
+        stepped = true;
+    }
+
+    private void stepRow(long[] board, long[] result, int up, int mid, int down, RuleCompiler.Circuit circuit,
+                         long[] birth, long[] survive) {
+        int from = 0;
+        if (VECTOR_KERNEL != null && wordsPerRow > 2) {
+            // The words on the ends of the row wrap around, so they are left to the scalar code
+            stepWords(board, result, up, mid, down, 0, 1, circuit, birth[0]);
+            from = VECTOR_KERNEL.stepWords(board, result, up, mid, down, 1, wordsPerRow - 1, birth, survive);
+        }
+        stepWords(board, result, up, mid, down, from, wordsPerRow, circuit, birth[0]);
+    }
+
+    private void stepWords(long[] board, long[] result, int up, int mid, int down, int from, int to,
+                           RuleCompiler.Circuit circuit, long empty) {
+        final int last = wordsPerRow - 1;
+        // The words of the three rows are carried along so each one is only loaded once, and the cells to the west of
+        // the first word come from the end of the row.
+        long upWord = board[up + from], midWord = board[mid + from], downWord = board[down + from];
+        long upCarry, midCarry, downCarry;
+        if (from == 0) {
+            upCarry = board[up + last] >>> lastBit;
+            midCarry = board[mid + last] >>> lastBit;
+            downCarry = board[down + last] >>> lastBit;
+        } else {
+            upCarry = board[up + from - 1] >>> 63;
+            midCarry = board[mid + from - 1] >>> 63;
+            downCarry = board[down + from - 1] >>> 63;
+        }
+        for (int w = from; w < to; w++) {
+            long upNext, midNext, downNext;
+            long upEast, midEast, downEast;
+            if (w < last) {
+                upNext = board[up + w + 1];
+                midNext = board[mid + w + 1];
+                downNext = board[down + w + 1];
+                upEast = upNext << 63;
+                midEast = midNext << 63;
+                downEast = downNext << 63;
+            } else {
+                upNext = midNext = downNext = 0;
+                upEast = (board[up] & 1L) << lastBit;
+                midEast = (board[mid] & 1L) << lastBit;
+                downEast = (board[down] & 1L) << lastBit;
+            }
+            long next;
+            if ((upWord | midWord | downWord | upCarry | midCarry | downCarry | upEast | midEast | downEast) == 0) {
+                // Nothing alive in or around these cells, which is most of a sparse board
+                next = empty;
+            } else {
+                next = nextWord(midWord,
+                        (upWord << 1) | upCarry, upWord, (upWord >>> 1) | upEast,
+                        (midWord << 1) | midCarry, (midWord >>> 1) | midEast,
+                        (downWord << 1) | downCarry, downWord, (downWord >>> 1) | downEast,
+                        circuit);
+            }
+            result[mid + w] = w == last ? next & lastWordMask : next;
+            upCarry = upWord >>> 63;
+            midCarry = midWord >>> 63;
+            downCarry = downWord >>> 63;
+            upWord = upNext;
+            midWord = midNext;
+            downWord = downNext;
+        }
+    }
+
+    private static RowKernel loadVectorKernel() {
+        try {
+            return (RowKernel) Class.forName("conlife.VectorRowKernel").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            // Either not built with the vector profile, or running on a JVM without the Vector API
+            return null;
+        }
+    }
+
+    /**
+     * Computes the next state of 64 cells at once. Bit i of every neighbor word holds that neighbor of cell i.
+     *
+     * @param circuit the rules compiled by {@link RuleCompiler#compileCircuit(Rules)}.
+     */
+    static long nextWord(long alive, long northWest, long north, long northEast, long west, long east,
+                         long southWest, long south, long southEast, RuleCompiler.Circuit circuit) {
+        // Carry-save adders that add up the eight neighbors of all 64 cells at once into a 4 bit count
+        long sum1 = northWest ^ north ^ northEast;
+        long carry1 = (northWest & north) | (northEast & (northWest ^ north));
+        long sum2 = west ^ east ^ southWest;
+        long carry2 = (west & east) | (southWest & (west ^ east));
+        long sum3 = south ^ southEast;
+        long carry3 = south & southEast;
+        long ones = sum1 ^ sum2 ^ sum3;
+        long carry4 = (sum1 & sum2) | (sum3 & (sum1 ^ sum2));
+        long sum5 = carry1 ^ carry2 ^ carry3;
+        long carry5 = (carry1 & carry2) | (carry3 & (carry1 ^ carry2));
+        long twos = sum5 ^ carry4;
+        long carry6 = sum5 & carry4;
+        long fours = carry5 ^ carry6;
+        long eights = carry5 & carry6;
+
+        return circuit.next(alive, ones, twos, fours, eights);
+    }
+
+    /**
+     * Expands a birth or survive bitmask from the rules into one word per neighbor count that is either all zeros or
+     * all ones.
+     */
+    static long[] ruleMasks(int field) {
+        long[] masks = new long[9];
+        for (int count = 0; count <= 8; count++) {
+            masks[count] = ((field >> count) & 1) == 1 ? -1L : 0L;
+        }
+        return masks;
+    }
+
+    /**
+     * Applies the birth and survive masks of the rules to 64 cells at once without branching, by selecting on the bits
+     * of the neighbor count one at a time.
+     *
+     * @param alive the current state of the cells.
+     * @param ones bit 0 of each cell's living neighbor count.
+     * @param twos bit 1 of each cell's living neighbor count.
+     * @param fours bit 2 of each cell's living neighbor count.
+     * @param eights bit 3 of each cell's living neighbor count.
+     * @param birth the masks from {@link #ruleMasks(int)} for the birth rules.
+     * @param survive the masks from {@link #ruleMasks(int)} for the survive rules.
+     * @return the next state of the cells.
+     */
+    static long applyRules(long alive, long ones, long twos, long fours, long eights, long[] birth, long[] survive) {
+        long lowCounts = select(fours,
+                select(twos, select(ones, rule(alive, birth, survive, 0), rule(alive, birth, survive, 1)),
+                        select(ones, rule(alive, birth, survive, 2), rule(alive, birth, survive, 3))),
+                select(twos, select(ones, rule(alive, birth, survive, 4), rule(alive, birth, survive, 5)),
+                        select(ones, rule(alive, birth, survive, 6), rule(alive, birth, survive, 7))));
+        return select(eights, lowCounts, rule(alive, birth, survive, 8));
+    }
+
+    // The next state of every cell for a single neighbor count
+    private static long rule(long alive, long[] birth, long[] survive, int count) {
+        return birth[count] ^ ((birth[count] ^ survive[count]) & alive);
+    }
+
+    // Takes the bits of whenSet where selector is set and the bits of whenClear everywhere else
+    private static long select(long selector, long whenClear, long whenSet) {
+        return whenClear ^ ((whenClear ^ whenSet) & selector);
+    }
+
+    /**
+     * Steps a run of words in the middle of a row, where the words on either side of each are part of the same row.
+     */
+    interface RowKernel {
+        /**
+         * Computes as many of the words in [from, to) as this kernel can, starting at from.
+         *
+         * @return the index of the first word that was not computed.
+         */
+        int stepWords(long[] board, long[] result, int up, int mid, int down, int from, int to, long[] birth,
+                      long[] survive);
+    }
+
+    @Override
+    public void forEachChangedCell(ChangeVisitor visitor) {
+        if (!stepped) {
+            return;
+        }
+        for (int y = 0; y < height; y++) {
+            int row = y * wordsPerRow;
+            for (int w = 0; w < wordsPerRow; w++) {
+                long word = current[row + w];
+                long changed = word ^ previous[row + w];
+                while (changed != 0) {
+                    int bit = Long.numberOfTrailingZeros(changed);
+                    visitor.visit((w << 6) + bit, y, ((word >>> bit) & 1L) == 1L);
+                    changed &= changed - 1;
+                }
+            }
+        }
+    }
+}
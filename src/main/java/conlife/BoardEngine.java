@@ -0,0 +1,48 @@
+package conlife;
+
+/**
+ * Storage and stepping strategy for a game board that doesn't use one {@link Cell} object per position. A
+ * {@link GameState} created with one of these delegates all of its board operations to the engine instead of using
+ * its own cell queues and game threads.
+ */
+interface BoardEngine {
+
+    boolean isAlive(int x, int y);
+
+    /**
+     * Sets the current state of a cell. This should only be called between game steps.
+     */
+    void setAlive(int x, int y, boolean alive);
+
+    /**
+     * Copies the current state of the cells of a width by height part of the board into a bitmap of rows, 64 cells per
+     * long, with each row starting on a new word. This should only be called between game steps.
+     */
+    default void copyRows(long[] cells, int width, int height) {
+        int wordsPerRow = Generation.wordsPerRow(width);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                if (isAlive(x, y)) {
+                    cells[y * wordsPerRow + (x >>> 6)] |= 1L << x;
+                }
+            }
+        }
+    }
+
+    /**
+     * Advances the whole board by one generation using the given rules.
+     */
+    void step(Rules rules);
+
+    /**
+     * Visits every cell whose state was changed by the most recent call to {@link #step(Rules)}.
+     */
+    void forEachChangedCell(ChangeVisitor visitor);
+
+    /**
+     * Receives the cells that changed state during a game step.
+     */
+    interface ChangeVisitor {
+        void visit(int x, int y, boolean alive);
+    }
+}
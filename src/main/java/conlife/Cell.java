@@ -10,6 +10,8 @@ import java.util.concurrent.atomic.AtomicBoolean;
 public class Cell {
 
     private final int x, y;
+    // Position of this cell in the bitmaps used to track the cells to process, row by row
+    private final int index;
     private final GameState gameState;
     private AtomicBoolean alive = new AtomicBoolean(false);
     // This should be reset to false at the end of each step
@@ -17,10 +19,6 @@ public class Cell {
 
     // Should be true after #determineNextState() is called each step and false at the end of each step
     private AtomicBoolean currentStepStateCalculated = new AtomicBoolean(false);
-    // When this cells state is determined it should be added to the next step queue unless another cell has caused it
-    // to be added already which is why we have this boolean.
-    private AtomicBoolean addedToNextStepQueue = new AtomicBoolean(false);
-    private AtomicBoolean addedToUpdateQueue = new AtomicBoolean(false);
 
     Cell[] neighbors = new Cell[8];
 
@@ -43,6 +41,7 @@ public class Cell {
         this.gameState = gameState;
         this.x = x;
         this.y = y;
+        this.index = y * gameState.getBoardWidth() + x;
     }
 
     void populateNeighbor(Direction direction, Cell neighborCell) {
@@ -55,7 +54,15 @@ public class Cell {
      * the cell to the next step queue if it has not already been added.
      */
     Rules.Rule determineNextState() {
-        return _determineNextState(isAlive(), getLivingNeighborCount());
+        return determineNextState(gameState.getDefaultFrontier());
+    }
+
+    /**
+     * Same as {@link #determineNextState()}, but marks the cells to process next into the given frontier. Game threads
+     * each pass their own so they never contend over the marks.
+     */
+    Rules.Rule determineNextState(CellFrontier frontier) {
+        return _determineNextState(isAlive(), getLivingNeighborCount(), frontier);
     }
 
     /**
@@ -66,24 +73,28 @@ public class Cell {
      * @param livingNeighbors similar to above.
      */
     Rules.Rule _determineNextState(boolean alive, int livingNeighbors) {
+        return _determineNextState(alive, livingNeighbors, gameState.getDefaultFrontier());
+    }
+
+    private Rules.Rule _determineNextState(boolean alive, int livingNeighbors, CellFrontier frontier) {
         Rules.Rule rule = gameState.getRules().getRule(alive, livingNeighbors);
         switch (rule) {
             case DEATH: // Rule 1 & 3
                 // The cell is going to die and only should be added to next step queue if it has living neighbors
-                prepareForNextState(false, livingNeighbors != 0);
+                prepareForNextState(false, livingNeighbors != 0, frontier);
                 break;
             case SURVIVE: // Rule 2
                 // The cell is going to stay alive and will have to be checked again next step
-                prepareForNextState(true, true);
+                prepareForNextState(true, true, frontier);
                 break;
             case BIRTH: // Rule 4
                 // The cell is going to be born and will have to be checked again next step
-                prepareForNextState(true, true);
+                prepareForNextState(true, true, frontier);
                 break;
             case DEAD_NO_BIRTH:
                 // The cell is dead and will stay dead but if it has any neighbors it will need to be checked next step
                 if (livingNeighbors != 0){
-                    prepareForNextState(false, true);
+                    prepareForNextState(false, true, frontier);
                 }
                 break;
         }
@@ -98,35 +109,23 @@ public class Cell {
      *
      * @param aliveNextStep whether the cell is alive next step
      * @param addToNextStepQueue whether this method should add the cell to the next step queue (if not added already)
+     * @param frontier where the cells to update and to check next step are marked.
      */
-    private void prepareForNextState(boolean aliveNextStep, boolean addToNextStepQueue) {
+    private void prepareForNextState(boolean aliveNextStep, boolean addToNextStepQueue, CellFrontier frontier) {
         if ((addToNextStepQueue || isAlive() || aliveNextStep)) {
-            addToUpdateQueueIfNotAdded();
+            frontier.addToUpdate(index);
         }
         nextStepLife.set(aliveNextStep);
         if (addToNextStepQueue) {
-            addToNextStepQueueIfNotAdded();
+            frontier.addToNextStep(index);
         }
         if (aliveNextStep) {
             for (Direction d : Direction.values()) {
-                getNeighbor(d).addToNextStepQueueIfNotAdded();
+                frontier.addToNextStep(getNeighbor(d).index);
             }
         }
     }
 
-    private void addToNextStepQueueIfNotAdded() {
-        if (addedToNextStepQueue.compareAndSet(false, true)) {
-            gameState.addCellToNextStepQueue(this);
-            addToUpdateQueueIfNotAdded();
-        }
-    }
-
-    private void addToUpdateQueueIfNotAdded() {
-        if (addedToUpdateQueue.compareAndSet(false, true)) {
-            gameState.addCellToUpdateQueue(this);
-        }
-    }
-
     /**
      * Sets the cell's current life state to the next life state and resets all other flags to the starting state.
      */
@@ -137,11 +136,27 @@ public class Cell {
         alive.set(aliveNextStep);
         nextStepLife.set(false);
         currentStepStateCalculated.set(false);
-        addedToNextStepQueue.set(false);
-        addedToUpdateQueue.set(false);
         return result;
     }
 
+    /**
+     * Sets the current state of this cell for an edit whose cells to check next step are queued separately, such as a
+     * bulk edit.
+     *
+     * @return whether the state changed.
+     */
+    boolean editState(boolean alive) {
+        return this.alive.getAndSet(alive) != alive;
+    }
+
+    /**
+     * Sets the current state of this cell from a step that keeps track of the cells to process on its own, such as a
+     * fused step.
+     */
+    void setSteppedState(boolean alive) {
+        this.alive.set(alive);
+    }
+
     public int getX() {
         return x;
     }
@@ -150,6 +165,10 @@ public class Cell {
         return y;
     }
 
+    int getIndex() {
+        return index;
+    }
+
     public Cell getNeighbor(Direction d) {
         return neighbors[d.ordinal()];
     }
@@ -166,12 +185,38 @@ public class Cell {
         return currentStepStateCalculated.get();
     }
 
+    /**
+     * Whether any game thread has marked this cell to be checked next step. The marks are kept by the game threads, so
+     * this is only a snapshot of them.
+     */
+    public boolean isMarkedForNextStep() {
+        return gameState.isCellMarkedForNextStep(this);
+    }
+
+    /**
+     * Whether any game thread has marked this cell to be updated at the end of this step. Like
+     * {@link #isMarkedForNextStep()}, this is only a snapshot.
+     */
+    public boolean isMarkedForUpdate() {
+        return gameState.isCellMarkedForUpdate(this);
+    }
+
+    /**
+     * @deprecated The cell no longer holds this flag, so setting the returned value changes nothing. Use
+     * {@link #isMarkedForNextStep()}.
+     */
+    @Deprecated
     public AtomicBoolean isAddedToNextStepQueue() {
-        return addedToNextStepQueue;
+        return new AtomicBoolean(isMarkedForNextStep());
     }
 
+    /**
+     * @deprecated The cell no longer holds this flag, so setting the returned value changes nothing. Use
+     * {@link #isMarkedForUpdate()}.
+     */
+    @Deprecated
     public AtomicBoolean isAddedToUpdateQueue() {
-        return addedToUpdateQueue;
+        return new AtomicBoolean(isMarkedForUpdate());
     }
 
     public int getLivingNeighborCount() {
@@ -193,6 +238,7 @@ public class Cell {
     public void setCurrentlyAlive(boolean alive) {
         boolean previous = this.alive.getAndSet(alive);
         if (previous != alive) {
+            gameState.cellEdited(this);
             if (!gameState.isCellCurrentlyQueued(this)) {
                 gameState.addCellToCurrentQueue(this);
             }
@@ -213,8 +259,8 @@ public class Cell {
                 ", alive=" + alive +
                 ", nextStepLife=" + nextStepLife +
                 ", currentStepStateCalculated=" + currentStepStateCalculated +
-                ", addedToNextStepQueue=" + addedToNextStepQueue +
-                ", addedToUpdateQueue=" + addedToUpdateQueue +
+                ", addedToNextStepQueue=" + isMarkedForNextStep() +
+                ", addedToUpdateQueue=" + isMarkedForUpdate() +
                 '}';
     }
 }
@@ -0,0 +1,40 @@
+package conlife;
+
+/**
+ * The cells one game thread has found need to be updated and checked again next step, kept as bitmaps over the cell
+ * indices of the board. Each thread only ever writes to its own frontier during the determine phase, so marking a cell
+ * is a plain bit set with no allocation and no compare and swap. The frontiers of all threads are merged once the
+ * phase is over, which also takes care of cells that more than one thread marked.
+ */
+class CellFrontier {
+
+    final long[] nextStep;
+    final long[] update;
+
+    CellFrontier(int cellCount) {
+        int words = (cellCount + 63) >>> 6;
+        nextStep = new long[words];
+        update = new long[words];
+    }
+
+    /**
+     * Marks a cell to be checked next step. Everything checked next step is also updated at the end of this one.
+     */
+    void addToNextStep(int index) {
+        long bit = 1L << index;
+        nextStep[index >>> 6] |= bit;
+        update[index >>> 6] |= bit;
+    }
+
+    void addToUpdate(int index) {
+        update[index >>> 6] |= 1L << index;
+    }
+
+    boolean isInNextStep(int index) {
+        return (nextStep[index >>> 6] & (1L << index)) != 0;
+    }
+
+    boolean isInUpdate(int index) {
+        return (update[index >>> 6] & (1L << index)) != 0;
+    }
+}
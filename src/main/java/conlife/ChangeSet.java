@@ -0,0 +1,112 @@
+package conlife;
+
+import java.util.Arrays;
+
+/**
+ * The cells that changed state during a game step, as packed coordinates with a flag for whether each cell was born or
+ * died. A game fills the same change set step after step, so reading the changes doesn't allocate anything, and the
+ * set is only valid until the game is stepped again. {@link #copy()} keeps a set for longer.
+ */
+public final class ChangeSet {
+
+    // The y coordinate of each change in the high half of a word and the x coordinate in the low half
+    private long[] coordinates;
+    // One bit per change, set for births
+    private long[] births;
+    private int size;
+
+    ChangeSet() {
+        this(16);
+    }
+
+    private ChangeSet(int capacity) {
+        coordinates = new long[Math.max(1, capacity)];
+        births = new long[(coordinates.length + 63) >>> 6];
+    }
+
+    void clear() {
+        Arrays.fill(births, 0, (size + 63) >>> 6, 0);
+        size = 0;
+    }
+
+    void add(int x, int y, boolean alive) {
+        if (size == coordinates.length) {
+            coordinates = Arrays.copyOf(coordinates, size * 2);
+            births = Arrays.copyOf(births, (coordinates.length + 63) >>> 6);
+        }
+        coordinates[size] = ((long) y << 32) | (x & 0xffffffffL);
+        if (alive) {
+            births[size >>> 6] |= 1L << size;
+        }
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int getX(int i) {
+        checkIndex(i);
+        return (int) coordinates[i];
+    }
+
+    public int getY(int i) {
+        checkIndex(i);
+        return (int) (coordinates[i] >> 32);
+    }
+
+    /**
+     * Whether the cell of the change at the given index came to life, rather than died.
+     */
+    public boolean isBirth(int i) {
+        checkIndex(i);
+        return (births[i >>> 6] & (1L << i)) != 0;
+    }
+
+    public int getBirthCount() {
+        int count = 0;
+        for (int w = 0, words = (size + 63) >>> 6; w < words; w++) {
+            count += Long.bitCount(births[w]);
+        }
+        return count;
+    }
+
+    public int getDeathCount() {
+        return size - getBirthCount();
+    }
+
+    public void forEach(Visitor visitor) {
+        for (int i = 0; i < size; i++) {
+            long packed = coordinates[i];
+            visitor.visit((int) packed, (int) (packed >> 32), (births[i >>> 6] & (1L << i)) != 0);
+        }
+    }
+
+    /**
+     * A copy of these changes that the game won't write over when it's stepped again.
+     */
+    public ChangeSet copy() {
+        ChangeSet copy = new ChangeSet(size);
+        System.arraycopy(coordinates, 0, copy.coordinates, 0, size);
+        System.arraycopy(births, 0, copy.births, 0, (size + 63) >>> 6);
+        copy.size = size;
+        return copy;
+    }
+
+    private void checkIndex(int i) {
+        if (i < 0 || i >= size) {
+            throw new IndexOutOfBoundsException(String.format("Change %d of %d", i, size));
+        }
+    }
+
+    /**
+     * Receives each change in a change set.
+     */
+    public interface Visitor {
+        void visit(int x, int y, boolean born);
+    }
+}
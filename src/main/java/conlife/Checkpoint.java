@@ -0,0 +1,234 @@
+package conlife;
+
+import java.awt.Dimension;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Saves a running game to a file it can be restored from later, carrying on at the same step under the same rules.
+ * The board is stored as 64x64 tiles of bits in fixed places in the file, so saving the same game again only rewrites
+ * the tiles that changed since the last save, and restoring maps the file into memory and reads it in one pass.
+ * <p>
+ * The file starts with a {@value #HEADER_BYTES} byte header of the magic number, the format version, the width and
+ * height of the board, the engine and edge policy, the birth and survival masks of the rules, the step, and whether
+ * the file is complete. Tiles follow row by row, each 64 words with bit x of word y holding the cell at (x, y) within
+ * the tile. The header is marked incomplete while tiles are rewritten, so a save cut short is never restored.
+ */
+public final class Checkpoint implements Closeable {
+
+    static final int MAGIC = 0x434c4350; // CLCP
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 64;
+    private static final int TILE_SIZE = 64;
+    private static final int TILE_BYTES = TILE_SIZE * 8;
+    private static final int COMPLETE_AT = 32;
+
+    /**
+     * Saves a game to a file, replacing anything already in it.
+     */
+    public static void write(GameState game, Path file) throws IOException {
+        try (Checkpoint checkpoint = create(game, file)) {
+            checkpoint.save();
+        }
+    }
+
+    /**
+     * Starts checkpointing a game to a file, replacing anything already in it. Nothing is written until
+     * {@link #save()} is called.
+     *
+     * @param game a game with a bounded board.
+     */
+    public static Checkpoint create(GameState game, Path file) throws IOException {
+        if (!game.getEngine().isBounded()) {
+            throw new IllegalArgumentException("Only games on a bounded board can be checkpointed");
+        }
+        return create(game, FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING));
+    }
+
+    static Checkpoint create(GameState game, FileChannel channel) {
+        return new Checkpoint(game, channel);
+    }
+
+    private final GameState game;
+    private final FileChannel channel;
+    private final int tilesAcross, tilesDown;
+    // The generation saved last, which the next save is compared to. Null until the first save.
+    private Generation saved;
+    private final ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+    // One row of tiles, of which the runs that changed are written at once
+    private final ByteBuffer tileRow;
+    private final boolean[] changed;
+
+    private Checkpoint(GameState game, FileChannel channel) {
+        this.game = game;
+        this.channel = channel;
+        tilesAcross = (game.getBoardWidth() + TILE_SIZE - 1) / TILE_SIZE;
+        tilesDown = (game.getBoardHeight() + TILE_SIZE - 1) / TILE_SIZE;
+        tileRow = ByteBuffer.allocate(tilesAcross * TILE_BYTES);
+        changed = new boolean[tilesAcross];
+    }
+
+    /**
+     * Saves the generation the game is at, waiting for any steps it's computing in the background. Only the tiles that
+     * changed since the last save are written.
+     *
+     * @return how many tiles were written.
+     */
+    public int save() throws IOException {
+        Generation generation = game.snapshot();
+        if (saved != null) {
+            // Tiles are about to be rewritten, so until the header is written again the file can't be restored
+            channel.write(ByteBuffer.wrap(new byte[]{0}), COMPLETE_AT);
+            channel.force(false);
+        }
+        int written = 0;
+        for (int tileY = 0; tileY < tilesDown; tileY++) {
+            tileRow.clear();
+            boolean any = false;
+            for (int tileX = 0; tileX < tilesAcross; tileX++) {
+                changed[tileX] = saved == null || tileChanged(generation, tileX, tileY);
+                any |= changed[tileX];
+                for (int row = 0; row < TILE_SIZE; row++) {
+                    int y = tileY * TILE_SIZE + row;
+                    tileRow.putLong(y < generation.getHeight() ? generation.getWord(y, tileX) : 0);
+                }
+            }
+            if (!any) {
+                continue;
+            }
+            for (int tileX = 0; tileX < tilesAcross; ) {
+                if (!changed[tileX]) {
+                    tileX++;
+                    continue;
+                }
+                int end = tileX;
+                while (end < tilesAcross && changed[end]) {
+                    end++;
+                }
+                tileRow.limit(end * TILE_BYTES).position(tileX * TILE_BYTES);
+                long at = HEADER_BYTES + ((long) tileY * tilesAcross + tileX) * TILE_BYTES;
+                while (tileRow.hasRemaining()) {
+                    at += channel.write(tileRow, at);
+                }
+                written += end - tileX;
+                tileX = end;
+            }
+        }
+        // The tiles have to be on disk before the header says the file is complete, or a crash could leave a
+        // complete header over tiles that never made it
+        channel.force(false);
+        writeHeader(generation.getStep());
+        channel.force(true);
+        saved = generation;
+        return written;
+    }
+
+    private boolean tileChanged(Generation generation, int tileX, int tileY) {
+        if (generation == saved) {
+            return false;
+        }
+        for (int y = tileY * TILE_SIZE, end = Math.min(y + TILE_SIZE, generation.getHeight()); y < end; y++) {
+            if (generation.getWord(y, tileX) != saved.getWord(y, tileX)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void writeHeader(int step) throws IOException {
+        Rules rules = game.getRules();
+        header.clear();
+        header.putInt(MAGIC).putInt(VERSION).putInt(game.getBoardWidth()).putInt(game.getBoardHeight())
+                .put((byte) game.getEngine().ordinal()).put((byte) game.getEdgePolicy().ordinal()).putShort((short) 0)
+                .putInt(rules.birth).putInt(rules.survive).putInt(step).put((byte) 1);
+        Arrays.fill(header.array(), header.position(), HEADER_BYTES, (byte) 0);
+        header.clear();
+        while (header.hasRemaining()) {
+            channel.write(header, header.position());
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Makes a new game from a checkpoint, at the step it was saved at, with the same rules, engine and edges.
+     *
+     * @param threadCount how many threads the new game steps on.
+     */
+    public static GameState restore(Path file, int threadCount) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES) {
+                throw new IOException("Not a checkpoint");
+            }
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (map.getInt() != MAGIC) {
+                throw new IOException("Not a checkpoint");
+            }
+            int version = map.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unknown checkpoint version " + version);
+            }
+            int width = map.getInt(), height = map.getInt();
+            int engine = map.get(), edgePolicy = map.get();
+            map.getShort();
+            int birth = map.getInt(), survive = map.getInt(), step = map.getInt();
+            if (map.get() != 1) {
+                throw new IOException("The checkpoint wasn't finished");
+            }
+            int tilesAcross = (width + TILE_SIZE - 1) / TILE_SIZE, tilesDown = (height + TILE_SIZE - 1) / TILE_SIZE;
+            if (width < 1 || height < 1 || engine < 0 || engine >= GameState.Engine.values().length || edgePolicy < 0
+                    || edgePolicy >= GameState.EdgePolicy.values().length
+                    || channel.size() != HEADER_BYTES + (long) tilesAcross * tilesDown * TILE_BYTES) {
+                throw new IOException("The checkpoint is damaged");
+            }
+            Rules rules;
+            try {
+                rules = Rules.fromMasks(birth, survive);
+            } catch (Rules.RulesException e) {
+                throw new IOException("The checkpoint has bad rules", e);
+            }
+            GameState game = GameState.createNewGame(rules, new Dimension(width, height), threadCount,
+                    GameState.Engine.values()[engine], GameState.EdgePolicy.values()[edgePolicy]);
+            game.restoreStep(step);
+            // The new board is empty, so only the living cells have to be set
+            int population = 0;
+            for (int at = HEADER_BYTES, end = (int) channel.size(); at < end; at += 8) {
+                population += Long.bitCount(map.getLong(at));
+            }
+            int[] xs = new int[population], ys = new int[population];
+            int i = 0;
+            for (int tileY = 0; tileY < tilesDown; tileY++) {
+                for (int row = 0; row < TILE_SIZE; row++) {
+                    for (int tileX = 0; tileX < tilesAcross; tileX++) {
+                        long word = map.getLong(HEADER_BYTES + (tileY * tilesAcross + tileX) * TILE_BYTES + row * 8);
+                        while (word != 0) {
+                            xs[i] = tileX * TILE_SIZE + Long.numberOfTrailingZeros(word);
+                            ys[i] = tileY * TILE_SIZE + row;
+                            i++;
+                            word &= word - 1;
+                        }
+                    }
+                }
+            }
+            boolean[] alive = new boolean[population];
+            Arrays.fill(alive, true);
+            try {
+                game.setCells(xs, ys, alive);
+            } catch (IllegalArgumentException e) {
+                game.close();
+                throw new IOException("The checkpoint has cells off the board", e);
+            }
+            return game;
+        }
+    }
+}
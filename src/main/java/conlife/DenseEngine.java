@@ -0,0 +1,290 @@
+package conlife;
+
+import java.util.Arrays;
+
+/**
+ * Stores the board as one byte per cell and computes each generation by sweeping the rows in order, looking the next
+ * state of every cell up in a table of all 512 possible 3x3 neighborhoods. There is no per cell bookkeeping at all,
+ * which makes this the fastest choice for boards where most cells are active, such as random soups. The board is
+ * surrounded by a ring of ghost cells that are filled in from the board once per step according to the
+ * {@link GameState.EdgePolicy}, so the sweep itself never has to check for an edge.
+ */
+class DenseEngine implements RowEngine {
+
+    /**
+     * The rows are swept in vertical strips this many cells wide, so the three rows being read and the one being
+     * written stay in the L1 cache on very wide boards.
+     */
+    static final int BLOCK_WIDTH = 4096;
+
+    private final int width, height;
+    // The length of a stored row, which has a ghost cell on either end
+    private final int stride;
+    private final GameState.EdgePolicy edges;
+    private byte[] current;
+    // Holds the generation before current after a step, and is overwritten by the next step
+    private byte[] previous;
+    private boolean stepped = false;
+    // Holds one more generation while several generations are computed at once
+    private byte[] spare;
+
+    // The table for the rules that were used last, which rarely change between steps
+    private int tableBirth = -1, tableSurvive = -1;
+    private byte[] table;
+
+    DenseEngine(int width, int height, GameState.EdgePolicy edges) {
+        this.width = width;
+        this.height = height;
+        this.edges = edges;
+        stride = width + 2;
+        current = new byte[stride * (height + 2)];
+        previous = new byte[stride * (height + 2)];
+    }
+
+    // Where a cell is stored. Positions one past any edge of the board are its ghost cells.
+    private int index(int x, int y) {
+        return (y + 1) * stride + x + 1;
+    }
+
+    /**
+     * Whether a cell is alive. Dead edged boards also answer for the positions just beyond their edges, which are always
+     * dead.
+     */
+    @Override
+    public boolean isAlive(int x, int y) {
+        return current[index(x, y)] != 0;
+    }
+
+    @Override
+    public void setAlive(int x, int y, boolean alive) {
+        if (x < 0 || x >= width || y < 0 || y >= height) {
+            throw new IllegalArgumentException(String.format("(%d, %d) is not on the board", x, y));
+        }
+        // The edit is mirrored into the previous generation so it isn't reported as a change made by the last step
+        byte state = (byte) (alive ? 1 : 0);
+        current[index(x, y)] = state;
+        previous[index(x, y)] = state;
+    }
+
+    @Override
+    public void copyRows(long[] cells, int width, int height) {
+        int wordsPerRow = Generation.wordsPerRow(width);
+        for (int y = 0; y < height; y++) {
+            int row = index(0, y);
+            int word = y * wordsPerRow;
+            for (int x = 0; x < width; x += 64) {
+                long bits = 0;
+                for (int bit = 0, end = Math.min(64, width - x); bit < end; bit++) {
+                    bits |= (long) current[row + x + bit] << bit;
+                }
+                cells[word + (x >>> 6)] = bits;
+            }
+        }
+    }
+
+    @Override
+    public void step(Rules rules) {
+        beginStep(rules);
+        stepRows(0, height);
+        endStep();
+    }
+
+    @Override
+    public int getRowCount() {
+        return height;
+    }
+
+    int getWidth() {
+        return width;
+    }
+
+    @Override
+    public void beginStep(Rules rules) {
+        updateTable(rules);
+        refreshGhostCells(current);
+    }
+
+    private void updateTable(Rules rules) {
+        if (rules.birth != tableBirth || rules.survive != tableSurvive) {
+            table = RuleCompiler.compileNeighborhoodTable(rules);
+            tableBirth = rules.birth;
+            tableSurvive = rules.survive;
+        }
+    }
+
+    @Override
+    public void stepRows(int from, int to) {
+        final byte[] board = current;
+        final byte[] result = previous;
+        for (int start = 0; start < width; start += BLOCK_WIDTH) {
+            int end = Math.min(width, start + BLOCK_WIDTH);
+            for (int y = from; y < to; y++) {
+                int mid = index(-1, y);
+                stepRow(board, result, mid - stride, mid, mid + stride, start, end);
+            }
+        }
+    }
+
+    @Override
+    public void endStep() {
+        byte[] board = current;
+        current = previous;
+        previous = board;
+        stepped = true;
+    }
+
+    /**
+     * Gets ready to compute several generations at once with {@link #stepBand(int, int, int, byte[], byte[])}.
+     */
+    void beginBlock(Rules rules) {
+        updateTable(rules);
+        if (spare == null) {
+            spare = new byte[current.length];
+        }
+    }
+
+    /**
+     * Computes the rows in [from, to) several generations ahead, looking at nothing but the current generation. The
+     * band is copied along with as many rows above and below it as there are generations, and the copy is stepped on
+     * its own, its outermost rows going stale one more row deep every generation. Bands that don't overlap can be
+     * computed concurrently. Everything, including the edges of the board, comes out just as it would one generation
+     * at a time. The two work buffers need room for the padded band, and can be reused from one call to the next.
+     */
+    void stepBand(int from, int to, int generations, byte[] band, byte[] next) {
+        int rows = to - from + 2 * generations;
+        int top = from - generations;
+        for (int i = 0; i < rows; i++) {
+            copySourceRow(top + i, band, i * stride);
+        }
+        if (generations == 1) {
+            copyBand(band, generations, spare, from, to);
+        }
+        for (int generation = 1; generation <= generations; generation++) {
+            for (int i = generation; i < rows - generation; i++) {
+                int y = top + i;
+                int mid = i * stride;
+                if (edges == GameState.EdgePolicy.DEAD && (y < 0 || y >= height)) {
+                    // Beyond dead edges nothing ever comes to life
+                    Arrays.fill(next, mid, mid + stride, (byte) 0);
+                    continue;
+                }
+                stepRow(band, next, mid - stride, mid, mid + stride, 0, width);
+                if (edges != GameState.EdgePolicy.DEAD) {
+                    next[mid] = next[mid + width];
+                    next[mid + width + 1] = next[mid + 1];
+                }
+            }
+            if (generation == generations - 1) {
+                copyBand(next, generations, spare, from, to);
+            }
+            byte[] swap = band;
+            band = next;
+            next = swap;
+        }
+        copyBand(band, generations, previous, from, to);
+    }
+
+    /**
+     * Makes the last two generations computed by {@link #stepBand(int, int, int, byte[], byte[])} the current and
+     * previous ones.
+     */
+    void endBlock() {
+        byte[] board = current;
+        current = previous;
+        previous = spare;
+        spare = board;
+        stepped = true;
+    }
+
+    /**
+     * Copies the row of the board that stands at the given position, which can be any distance beyond the edges, into
+     * a row of a band along with its ghost cells.
+     */
+    private void copySourceRow(int y, byte[] band, int offset) {
+        if (edges == GameState.EdgePolicy.DEAD && (y < 0 || y >= height)) {
+            Arrays.fill(band, offset, offset + stride, (byte) 0);
+            return;
+        }
+        int lap = Math.floorDiv(y, height);
+        int source = index(0, y - lap * height);
+        if (edges == GameState.EdgePolicy.KLEIN_BOTTLE && (lap & 1) != 0) {
+            for (int x = 0; x < width; x++) {
+                band[offset + 1 + x] = current[source + width - 1 - x];
+            }
+        } else {
+            System.arraycopy(current, source, band, offset + 1, width);
+        }
+        if (edges != GameState.EdgePolicy.DEAD) {
+            band[offset] = band[offset + width];
+            band[offset + width + 1] = band[offset + 1];
+        }
+    }
+
+    // Copies the rows of a band that are part of [from, to) on the board into the same rows of the given generation
+    private void copyBand(byte[] band, int margin, byte[] generation, int from, int to) {
+        for (int y = from; y < to; y++) {
+            System.arraycopy(band, (y - from + margin) * stride + 1, generation, index(0, y), width);
+        }
+    }
+
+    /**
+     * Copies the cells that the ghost cells around the board stand for into them. Dead edges are never written to, so
+     * they stay dead.
+     */
+    private void refreshGhostCells(byte[] board) {
+        if (edges == GameState.EdgePolicy.DEAD) {
+            return;
+        }
+        // Both of the remaining shapes join the left and right edges
+        for (int y = 0; y < height; y++) {
+            int row = index(-1, y);
+            board[row] = board[row + width];
+            board[row + width + 1] = board[row + 1];
+        }
+        int top = index(-1, -1);
+        int firstRow = index(-1, 0);
+        int lastRow = index(-1, height - 1);
+        int bottom = index(-1, height);
+        if (edges == GameState.EdgePolicy.TORUS) {
+            System.arraycopy(board, lastRow, board, top, stride);
+            System.arraycopy(board, firstRow, board, bottom, stride);
+        } else {
+            // Going over the top or bottom of a Klein bottle comes back in on the other side, mirrored
+            for (int x = 0; x < stride; x++) {
+                board[top + x] = board[lastRow + stride - 1 - x];
+                board[bottom + x] = board[firstRow + stride - 1 - x];
+            }
+        }
+    }
+
+    private void stepRow(byte[] board, byte[] result, int up, int mid, int down, int start, int end) {
+        final byte[] table = this.table;
+        // The neighborhood slides east one column at a time, so each cell is only read once per row it's a part of.
+        // Every cell has a stored cell to the east of it, so there's nothing special about the end of the row.
+        int neighborhood = (column(board, up, mid, down, start) << 3) | column(board, up, mid, down, start + 1);
+        for (int x = start + 1; x <= end; x++) {
+            neighborhood = ((neighborhood << 3) | board[up + x + 1] | (board[mid + x + 1] << 1)
+                    | (board[down + x + 1] << 2)) & 0x1ff;
+            result[mid + x] = table[neighborhood];
+        }
+    }
+
+    private static int column(byte[] board, int up, int mid, int down, int x) {
+        return board[up + x] | (board[mid + x] << 1) | (board[down + x] << 2);
+    }
+
+    @Override
+    public void forEachChangedCell(ChangeVisitor visitor) {
+        if (!stepped) {
+            return;
+        }
+        for (int y = 0; y < height; y++) {
+            int row = index(0, y);
+            for (int x = 0; x < width; x++) {
+                if (current[row + x] != previous[row + x]) {
+                    visitor.visit(x, y, current[row + x] != 0);
+                }
+            }
+        }
+    }
+}
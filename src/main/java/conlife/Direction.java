@@ -64,6 +64,20 @@ enum Direction {
         }
     }
 
+    /**
+     * How far a neighbor in this direction is along the x axis, ignoring the edges of the board.
+     */
+    public int getDeltaX() {
+        return getNeighborX(1, 3) - 1;
+    }
+
+    /**
+     * How far a neighbor in this direction is along the y axis, ignoring the edges of the board.
+     */
+    public int getDeltaY() {
+        return getNeighborY(1, 3) - 1;
+    }
+
     public Direction getOpposite() {
         int ordinal = this.ordinal() + Direction.values().length / 2;
         if (ordinal >= Direction.values().length) {
@@ -0,0 +1,63 @@
+package conlife;
+
+/**
+ * The state of every cell of a cell engine game stepped in {@link GameState.StepMode#FUSED} mode, kept as two bitmaps
+ * over the cell indices. During a step the game threads read the current generation from one of them and write the
+ * next generation into the other, so there is nothing to copy afterwards. Which one is current is just flipped.
+ */
+class DoubleBufferedBoard {
+
+    private final long[][] states;
+    // The indices of the eight neighbors of every cell, in the order of the directions
+    final int[] neighbors;
+    // Which of the states is the current generation
+    private int current;
+    // The rules of the step in progress
+    Rules rules;
+
+    DoubleBufferedBoard(Cell[] cells) {
+        int words = (cells.length + 63) >>> 6;
+        states = new long[][]{new long[words], new long[words]};
+        neighbors = new int[cells.length * 8];
+        for (Cell cell : cells) {
+            for (Direction d : Direction.values()) {
+                neighbors[cell.getIndex() * 8 + d.ordinal()] = cell.getNeighbor(d).getIndex();
+            }
+            set(cell.getIndex(), cell.isAlive());
+        }
+    }
+
+    long[] getCurrent() {
+        return states[current];
+    }
+
+    long[] getNext() {
+        return states[current ^ 1];
+    }
+
+    /**
+     * Which of the two buffers is current, for anything else that is double buffered along with the board.
+     */
+    int getParity() {
+        return current;
+    }
+
+    /**
+     * Makes the generation that was written by the last step the current one.
+     */
+    void flip() {
+        current ^= 1;
+    }
+
+    /**
+     * Sets the state of a cell in the current generation. Only called between steps.
+     */
+    void set(int index, boolean alive) {
+        long[] state = states[current];
+        if (alive) {
+            state[index >>> 6] |= 1L << index;
+        } else {
+            state[index >>> 6] &= ~(1L << index);
+        }
+    }
+}
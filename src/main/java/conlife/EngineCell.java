@@ -0,0 +1,51 @@
+package conlife;
+
+/**
+ * A view of a single position on a board that is stored by a {@link BoardEngine}. These are created on demand by
+ * {@link GameState#getCell(int, int)} and read and write straight through to the engine.
+ */
+class EngineCell extends Cell {
+
+    private final GameState gameState;
+    private final BoardEngine engine;
+
+    EngineCell(GameState gameState, BoardEngine engine, int x, int y) {
+        super(gameState, x, y);
+        this.gameState = gameState;
+        this.engine = engine;
+    }
+
+    @Override
+    public Cell getNeighbor(Direction d) {
+        int x = getX() + d.getDeltaX();
+        int y = getY() + d.getDeltaY();
+        if (!gameState.getEngine().isBounded()) {
+            return new EngineCell(gameState, engine, x, y);
+        }
+        // Neighbors beyond dead edges are left where they are, as the engine knows they're always dead
+        GameState.EdgePolicy edges = gameState.getEdgePolicy();
+        int width = gameState.getBoardWidth();
+        int height = gameState.getBoardHeight();
+        return new EngineCell(gameState, engine, edges.wrapX(x, y, width, height), edges.wrapY(y, height));
+    }
+
+    @Override
+    public boolean isAlive() {
+        return engine.isAlive(getX(), getY());
+    }
+
+    @Override
+    public void setCurrentlyAlive(boolean alive) {
+        engine.setAlive(getX(), getY(), alive);
+        gameState.cellEdited(this);
+    }
+
+    @Override
+    public String toString() {
+        return "EngineCell{" +
+                "x=" + getX() +
+                ", y=" + getY() +
+                ", alive=" + isAlive() +
+                '}';
+    }
+}
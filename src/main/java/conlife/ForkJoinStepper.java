@@ -0,0 +1,105 @@
+package conlife;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Steps a {@link RowEngine} on a fork/join pool by recursively splitting the board into bands of rows, with idle
+ * workers stealing the bands that busy ones haven't got to yet. How finely the board is split follows how long each row
+ * took to compute during the previous step, so busy parts of the board, such as the front of a puffer, are cut into
+ * many small bands while empty parts are handed out in a few big ones.
+ */
+class ForkJoinStepper {
+
+    // The board is split into about this many bands of equal cost per worker, so there's always something to steal
+    private static final int BANDS_PER_WORKER = 8;
+    // Bands that took less time than this last step aren't split, as handing them out would cost more than it saves
+    private static final long MIN_BAND_NANOS = 20000;
+
+    private final RowEngine engine;
+    private final ForkJoinPool pool;
+    // How long each row took to compute last step, and their running totals so the cost of any band is one subtraction
+    private final long[] rowNanos;
+    private final long[] costPrefix;
+    private long splitCost;
+    private final AtomicInteger bandCount = new AtomicInteger();
+    private int lastBandCount;
+
+    ForkJoinStepper(RowEngine engine, ForkJoinPool pool) {
+        this.engine = engine;
+        this.pool = pool;
+        int rows = engine.getRowCount();
+        rowNanos = new long[rows];
+        costPrefix = new long[rows + 1];
+        // Until there are measurements every row is taken to cost the same
+        for (int y = 0; y < rows; y++) {
+            costPrefix[y + 1] = y + 1;
+        }
+        splitCost = Math.max(1, rows / (pool.getParallelism() * BANDS_PER_WORKER));
+    }
+
+    void step(Rules rules) {
+        engine.beginStep(rules);
+        bandCount.set(0);
+        pool.invoke(new Band(0, engine.getRowCount()));
+        lastBandCount = bandCount.get();
+        engine.endStep();
+
+        for (int y = 0; y < rowNanos.length; y++) {
+            costPrefix[y + 1] = costPrefix[y] + rowNanos[y];
+        }
+        long total = costPrefix[rowNanos.length];
+        splitCost = Math.max(MIN_BAND_NANOS, total / (pool.getParallelism() * BANDS_PER_WORKER));
+    }
+
+    /**
+     * The number of bands the board was split into during the last step.
+     */
+    int getLastBandCount() {
+        return lastBandCount;
+    }
+
+    // The first row after from where the cost of the band [from, row) reaches half the cost of [from, to)
+    private int findMiddle(int from, int to) {
+        long half = costPrefix[from] + (costPrefix[to] - costPrefix[from]) / 2;
+        int low = from + 1, high = to - 1;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (costPrefix[middle] < half) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private final class Band extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int from, to;
+
+        Band(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1 && costPrefix[to] - costPrefix[from] > splitCost) {
+                int middle = findMiddle(from, to);
+                invokeAll(new Band(from, middle), new Band(middle, to));
+                return;
+            }
+            long start = System.nanoTime();
+            engine.stepRows(from, to);
+            // Every row counts for something, so a band where the clock didn't move can still be split by its rows
+            long perRow = Math.max(1, (System.nanoTime() - start) / (to - from));
+            for (int y = from; y < to; y++) {
+                rowNanos[y] = perRow;
+            }
+            bandCount.incrementAndGet();
+        }
+    }
+}
@@ -1,22 +1,27 @@
 package conlife;
 
 import java.awt.Dimension;
+import java.io.Closeable;
 import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.Queue;
+import java.util.List;
 import java.util.Random;
-import java.util.concurrent.BrokenBarrierException;
-import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Controls all aspects of the mechanics of the game. Most of the operations in this class are not thread safe. However,
- * game steps are performed in a thread safe manner and can be parallelized effectively.
+ * game steps are performed in a thread safe manner and can be parallelized effectively. Every game in the process
+ * steps on the same pool of threads, however many games there are, and a game that is done with should be closed.
  *
  * @author Jeremy Wood, Nathan Coggins
  */
-public class GameState {
+public class GameState implements Closeable {
 
     public static final Dimension DEFAULT_BOARD_SIZE = new Dimension(100, 100);
 
@@ -51,14 +56,44 @@ public class GameState {
 
     private GameThread[] threadPool;
     private int nextAssignmentThreadId;
-    private final CyclicBarrier barrier;
+    private Partitioning partitioning = Partitioning.BALANCED;
+    private StepMode stepMode = StepMode.PHASED;
+    // Only set in fused mode
+    private DoubleBufferedBoard buffers;
+    private volatile boolean closed = false;
+    // Which version of the board this is, bumped by every step and edit, and the last generation copied from the board
+    private long epoch;
+    private volatile Generation published;
+    // The board is copied again once it has been set up, so early readers don't keep seeing an empty board
+    private volatile boolean generationWanted = true;
+    // The living cells of a cell based game as rows of bits, shared with the last generation copied until they change
+    private long[] liveCells;
+    private boolean liveCellsShared;
+    private final AsyncStepper asyncStepper = new AsyncStepper(this);
+    private volatile int barrierSpinBudget = Runtime.getRuntime().availableProcessors() > 1 ? 20000 : 0;
     private final Random random = new Random();
 
     private Rules rules;
     private final int boardWidth, boardHeight;
     private Cell[][] board;
+    // The same cells by index, and which of them are in a game thread's work queue
+    private Cell[] cellsByIndex;
+    private long[] queuedCells;
+    private final Engine engineType;
+    private final EdgePolicy edgePolicy;
+    // Only set when the game isn't using the cell engine
+    private final BoardEngine engine;
+    // Steps engines that work a row at a time on more than one thread
+    private final ForkJoinStepper stepper;
+    // Only set for dense games, which can be stepped several generations per synchronization
+    private final TemporalBlockStepper blockStepper;
+    private int generationsPerSync = 1;
 
-    final Queue<Cell> cellsThatChangedState = new ConcurrentLinkedQueue<>();
+    // The cells that changed during the last step, filled in place every step
+    private final ChangeSet changes = new ChangeSet();
+    private boolean engineChangesCollected = true;
+    // Cell views of the same changes, only made when asked for
+    private List<Cell> cellsThatChangedState;
 
     public static GameState createNewGame() {
         return createNewGame(DEFAULT_BOARD_SIZE);
@@ -72,11 +107,36 @@ public class GameState {
         return createNewGame(getDefaultRules(), initialCondition, livingCellChar, threadCount);
     }
 
+    public static GameState createNewGame(String[] initialCondition, char livingCellChar, Engine engine) {
+        return createNewGame(getDefaultRules(), initialCondition, livingCellChar, DEFAULT_THREAD_COUNT, engine);
+    }
+
+    public static GameState createNewGame(String[] initialCondition, char livingCellChar, int threadCount,
+                                          Engine engine) {
+        return createNewGame(getDefaultRules(), initialCondition, livingCellChar, threadCount, engine);
+    }
+
     public static GameState createNewGame(Rules rules, String[] initialCondition, char livingCellChar) {
         return createNewGame(rules, initialCondition, livingCellChar, DEFAULT_THREAD_COUNT);
     }
 
     public static GameState createNewGame(Rules rules, String[] initialCondition, char livingCellChar, int threadCount) {
+        return createNewGame(rules, initialCondition, livingCellChar, threadCount, Engine.CELLS);
+    }
+
+    public static GameState createNewGame(String[] initialCondition, char livingCellChar, Engine engine,
+                                          EdgePolicy edgePolicy) {
+        return createNewGame(getDefaultRules(), initialCondition, livingCellChar, DEFAULT_THREAD_COUNT, engine,
+                edgePolicy);
+    }
+
+    public static GameState createNewGame(Rules rules, String[] initialCondition, char livingCellChar, int threadCount,
+                                          Engine engine) {
+        return createNewGame(rules, initialCondition, livingCellChar, threadCount, engine, EdgePolicy.TORUS);
+    }
+
+    public static GameState createNewGame(Rules rules, String[] initialCondition, char livingCellChar, int threadCount,
+                                          Engine engine, EdgePolicy edgePolicy) {
         int height = initialCondition.length;
         int width = -1;
         for (String line : initialCondition) {
@@ -86,7 +146,7 @@ public class GameState {
                 throw new IllegalArgumentException("Every line must be equal length");
             }
         }
-        GameState game = createNewGame(rules, new Dimension(width, height), threadCount);
+        GameState game = createNewGame(rules, new Dimension(width, height), threadCount, engine, edgePolicy);
         game.setInitialGameState(initialCondition, livingCellChar);
         return game;
     }
@@ -99,24 +159,79 @@ public class GameState {
         return createNewGame(getDefaultRules(), boardSize, threadCount);
     }
 
+    public static GameState createNewGame(Dimension boardSize, Engine engine) {
+        return createNewGame(getDefaultRules(), boardSize, DEFAULT_THREAD_COUNT, engine);
+    }
+
     public static GameState createNewGame(Rules rules, Dimension boardSize) {
         return createNewGame(rules, boardSize, DEFAULT_THREAD_COUNT);
     }
 
     public static GameState createNewGame(Rules rules, Dimension boardSize, int threadCount) {
-        return new GameState(rules, (int) boardSize.getWidth(), (int) boardSize.getHeight(), threadCount);
+        return createNewGame(rules, boardSize, threadCount, Engine.CELLS);
+    }
+
+    public static GameState createNewGame(Rules rules, Dimension boardSize, int threadCount, Engine engine) {
+        return createNewGame(rules, boardSize, threadCount, engine, EdgePolicy.TORUS);
+    }
+
+    /**
+     * @param edgePolicy what is beyond the edges of the board. Only the {@link Engine#DENSE} engine supports anything
+     *                   but {@link EdgePolicy#TORUS}.
+     */
+    public static GameState createNewGame(Rules rules, Dimension boardSize, int threadCount, Engine engine,
+                                          EdgePolicy edgePolicy) {
+        // Every way of making a game ends up here, so this is the one place the edges are checked
+        if (!engine.supports(edgePolicy)) {
+            throw new IllegalArgumentException(String.format("%s boards %s, only %s boards can have %s edges", engine,
+                    engine.isBounded() ? "always wrap around like a torus" : "have no edges", Engine.DENSE,
+                    edgePolicy));
+        }
+        GameState game = new GameState(rules, (int) boardSize.getWidth(), (int) boardSize.getHeight(), threadCount,
+                engine, edgePolicy);
+        game.published = game.copyGeneration();
+        return game;
     }
 
-    private GameState(Rules rules, int boardWidth, int boardHeight, int threadCount) {
+    private GameState(Rules rules, int boardWidth, int boardHeight, int threadCount, Engine engine,
+                      EdgePolicy edgePolicy) {
         this.rules = rules;
         this.boardWidth = boardWidth;
         this.boardHeight = boardHeight;
+        this.engineType = engine;
+        this.edgePolicy = edgePolicy;
+
+        if (engine != Engine.CELLS) {
+            this.engine = engine.create(boardWidth, boardHeight, edgePolicy);
+            ForkJoinPool pool = null;
+            if (this.engine instanceof RowEngine && threadCount > 1) {
+                pool = StepPool.get();
+                stepper = new ForkJoinStepper((RowEngine) this.engine, pool);
+            } else {
+                stepper = null;
+            }
+            if (this.engine instanceof DenseEngine) {
+                blockStepper = new TemporalBlockStepper((DenseEngine) this.engine, pool);
+                generationsPerSync = blockStepper.getDefaultDepth();
+            } else {
+                blockStepper = null;
+            }
+            threadPool = new GameThread[0];
+            return;
+        }
+        this.engine = null;
+        this.stepper = null;
+        this.blockStepper = null;
         board = new Cell[boardHeight][boardWidth];
 
+        cellsByIndex = new Cell[boardWidth * boardHeight];
+        queuedCells = new long[(cellsByIndex.length + 63) >>> 6];
+        liveCells = new long[Generation.wordsPerRow(boardWidth) * boardHeight];
         for (int y = 0; y < boardHeight; y++) {
             for (int x = 0; x < boardWidth; x++) {
                 final Cell cell = new Cell(this, x, y);
                 board[y][x] = cell;
+                cellsByIndex[cell.getIndex()] = cell;
             }
         }
 
@@ -128,27 +243,218 @@ public class GameState {
             }
         }
 
-        ThreadGroup threadGroup = new ThreadGroup("game-logic-thread-group");
-        threadGroup.setDaemon(true);
-        barrier = new CyclicBarrier(threadCount + 1);
         threadPool = new GameThread[threadCount];
-        // Spin up the game threads
         for (int i = 0; i < threadCount; i++) {
-            threadPool[i] = new GameThread(threadGroup, i, barrier);
-            threadPool[i].start();
+            threadPool[i] = new GameThread(i, cellsByIndex, threadPool, queuedCells);
         }
     }
 
     private void setInitialGameState(String[] initialCondition, char livingCellChar) throws IllegalArgumentException {
+        boolean[][] cells = new boolean[boardHeight][boardWidth];
         for (int y = 0; y < boardHeight; y++) {
             for (int x = 0; x < boardWidth; x++) {
-                if (initialCondition[y].charAt(x) == livingCellChar) {
-                    getCell(x,y).setCurrentlyAlive(true);
+                cells[y][x] = initialCondition[y].charAt(x) == livingCellChar;
+            }
+        }
+        setCells(0, 0, cells);
+    }
+
+    /**
+     * Sets the state of a batch of cells between steps. This gives the same result as calling
+     * {@link Cell#setCurrentlyAlive(boolean)} on each of them in turn, but the cells to check next step are queued all
+     * at once, in board order, instead of one edit at a time. Nothing is changed if any of the positions is off the
+     * board.
+     *
+     * @param xs    the x positions of the cells.
+     * @param ys    the y positions of the cells.
+     * @param alive the states to give the cells.
+     */
+    public void setCells(int[] xs, int[] ys, boolean[] alive) {
+        asyncStepper.settle();
+        if (xs.length != ys.length || xs.length != alive.length) {
+            throw new IllegalArgumentException("Every cell needs an x position, a y position and a state");
+        }
+        for (int i = 0; i < xs.length; i++) {
+            checkBounds(xs[i], ys[i]);
+        }
+        try (CellBatch batch = new CellBatch()) {
+            for (int i = 0; i < xs.length; i++) {
+                batch.setAlive(xs[i], ys[i], alive[i]);
+            }
+        }
+    }
+
+    /**
+     * Sets every cell of a rectangle of the board between steps from a bitmap, such as a pattern read by a
+     * {@link conlife.utils.Lif1_5Reader}. Like {@link #setCells(int[], int[], boolean[])}, the cells to check next step
+     * are queued all at once.
+     *
+     * @param left  the x position of the first column of the bitmap.
+     * @param top   the y position of the first row of the bitmap.
+     * @param cells the states to give the cells, row by row.
+     */
+    public void setCells(int left, int top, boolean[][] cells) {
+        asyncStepper.settle();
+        for (int row = 0; row < cells.length; row++) {
+            if (cells[row].length > 0) {
+                checkBounds(left, top + row);
+                checkBounds(left + cells[row].length - 1, top + row);
+            }
+        }
+        try (CellBatch batch = new CellBatch()) {
+            for (int row = 0; row < cells.length; row++) {
+                for (int column = 0; column < cells[row].length; column++) {
+                    batch.setAlive(left + column, top + row, cells[row][column]);
                 }
             }
         }
     }
 
+    /**
+     * Starts a batch of edits, for loaders that set a board a cell at a time as they read it without building a copy
+     * of the board first. Cells set through the batch go straight into the board, and the cells to check next step are
+     * queued all at once when the batch is closed, as with {@link #setCells(int[], int[], boolean[])}. The game must
+     * not be stepped or edited any other way until the batch is closed. A loader that finds a problem partway through
+     * can {@link CellBatch#rollBack()} the batch, so a load either happens completely or not at all.
+     */
+    public CellBatch beginBatch() {
+        asyncStepper.settle();
+        return new CellBatch();
+    }
+
+    /**
+     * A batch of edits started by {@link #beginBatch()}.
+     */
+    public final class CellBatch implements AutoCloseable {
+
+        // The edited cells and their neighbors, only kept for cell based games
+        private final long[] edited = engine == null ? new long[queuedCells.length] : null;
+        // The cells whose state changed, in order and packed as y << 32 | x, so the batch can be rolled back
+        private long[] changed = new long[64];
+        private int changedCount;
+        private boolean closed;
+
+        private CellBatch() {
+        }
+
+        /**
+         * Sets the state of a cell.
+         *
+         * @throws IllegalArgumentException if the position is off the board.
+         */
+        public void setAlive(int x, int y, boolean alive) {
+            if (closed) {
+                throw new IllegalStateException("The batch has been closed");
+            }
+            checkBounds(x, y);
+            if ((engine != null ? engine.isAlive(x, y) : board[y][x].isAlive()) == alive) {
+                return;
+            }
+            if (changedCount == changed.length) {
+                changed = Arrays.copyOf(changed, changedCount * 2);
+            }
+            changed[changedCount++] = ((long) y << 32) | x;
+            set(x, y, alive);
+        }
+
+        private void set(int x, int y, boolean alive) {
+            if (engine != null) {
+                engine.setAlive(x, y, alive);
+            } else {
+                editCell(board[y][x], alive, edited);
+            }
+        }
+
+        /**
+         * Puts every cell the batch changed back the way it was and closes the batch.
+         */
+        public void rollBack() {
+            if (closed) {
+                throw new IllegalStateException("The batch has been closed");
+            }
+            // Every change flipped a cell, so flipping them back in reverse order undoes them
+            for (int i = changedCount - 1; i >= 0; i--) {
+                int x = (int) changed[i], y = (int) (changed[i] >>> 32);
+                set(x, y, !(engine != null ? engine.isAlive(x, y) : board[y][x].isAlive()));
+            }
+            changedCount = 0;
+            close();
+        }
+
+        /**
+         * Queues the edited cells to be checked next step. Closing a batch more than once does nothing.
+         */
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (edited != null) {
+                queueEditedCells(edited);
+            }
+            boardChanged();
+        }
+    }
+
+    // Sets the state of a cell and marks it and its neighbors in the given bitmap if it changed
+    private void editCell(Cell cell, boolean alive, long[] edited) {
+        if (cell.editState(alive)) {
+            cellEdited(cell);
+            int index = cell.getIndex();
+            edited[index >>> 6] |= 1L << index;
+            for (Direction d : Direction.values()) {
+                int neighbor = cell.getNeighbor(d).getIndex();
+                edited[neighbor >>> 6] |= 1L << neighbor;
+            }
+        }
+    }
+
+    /**
+     * Queues the marked cells that aren't queued already. The cells are handed out in board order, in even slices or
+     * by stripe depending on the partitioning, so neighboring cells end up on the same game thread.
+     */
+    private void queueEditedCells(long[] edited) {
+        int count = 0;
+        for (int w = 0; w < edited.length; w++) {
+            edited[w] &= ~queuedCells[w];
+            queuedCells[w] |= edited[w];
+            count += Long.bitCount(edited[w]);
+        }
+        if (count == 0 || stepMode == StepMode.FUSED) {
+            // Fused steps pick the cells up from the bitmap
+            return;
+        }
+        int[] indices = new int[count];
+        int i = 0;
+        for (int w = 0; w < edited.length; w++) {
+            long bits = edited[w];
+            while (bits != 0) {
+                indices[i++] = (w << 6) + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+            }
+        }
+        if (partitioning == Partitioning.STRIPES) {
+            int start = 0;
+            while (start < count) {
+                GameThread owner = getOwningThread(indices[start]);
+                int end = start + 1;
+                while (end < count && owner.ownsWord(indices[end] >>> 6)) {
+                    end++;
+                }
+                owner.addCellsToWorkQueue(indices, start, end - start);
+                start = end;
+            }
+            return;
+        }
+        int[] workloads = getThreadWorkloadSizes(count);
+        int offset = 0;
+        for (int t = 0; t < threadPool.length; t++) {
+            threadPool[t].addCellsToWorkQueue(indices, offset, workloads[t]);
+            offset += workloads[t];
+        }
+    }
+
     public void setRules(Rules rules) {
         this.rules = rules;
     }
@@ -165,44 +471,87 @@ public class GameState {
         return boardHeight;
     }
 
+    public Engine getEngine() {
+        return engineType;
+    }
+
+    public EdgePolicy getEdgePolicy() {
+        return edgePolicy;
+    }
+
+    /**
+     * The cell at the given position. Unbounded engines accept any position, with the board size only marking out the
+     * part of the plane that {@link #createBoardString(char, char)} shows.
+     */
     public Cell getCell(int x, int y) {
+        checkBounds(x, y);
+        if (engine != null) {
+            return new EngineCell(this, engine, x, y);
+        }
+        return board[y][x];
+    }
+
+    /**
+     * Whether the cell at the given position is currently alive. Unlike {@link #getCell(int, int)} this does not
+     * create a cell object when the game is using a board engine.
+     *
+     * @param x the x position of the cell.
+     * @param y the y position of the cell.
+     * @return true if the cell is alive.
+     */
+    public boolean isAlive(int x, int y) {
+        checkBounds(x, y);
+        if (engine != null) {
+            return engine.isAlive(x, y);
+        }
+        return board[y][x].isAlive();
+    }
+
+    private void checkBounds(int x, int y) {
+        if (!engineType.isBounded()) {
+            return;
+        }
         if (x < 0 || x >= boardWidth) {
             throw new IllegalArgumentException(String.format("X position %d not within board x dimensions [0,%d)", x, boardWidth));
         }
         if (y < 0 || y >= boardHeight) {
             throw new IllegalArgumentException(String.format("Y position %d not within board y dimensions [0,%d)", y, boardHeight));
         }
-        return board[y][x];
     }
 
     private GameThread getNextThread() {
-        int next;
-        GameThread gameThread = null;
-        Thread t = Thread.currentThread();
-        if (t instanceof GameThread) {
-            gameThread = (GameThread) t;
-            next = gameThread.getNextAssignmentThreadId();
-        } else {
-            next = nextAssignmentThreadId;
-        }
-        next++;
+        int next = nextAssignmentThreadId + 1;
         if (next >= threadPool.length) {
             next = 0;
         }
-        if (gameThread != null) {
-            gameThread.setNextAssignmentThreadId(next);
-        } else {
-            nextAssignmentThreadId = next;
-        }
+        nextAssignmentThreadId = next;
         return threadPool[next];
     }
 
-    void addCellToNextStepQueue(Cell cell) {
-        getNextThread().addCellToNextStepQueue(cell);
+    /**
+     * The frontier cells mark themselves into when their state is determined outside of the game threads, which only
+     * happens in between steps.
+     */
+    CellFrontier getDefaultFrontier() {
+        return threadPool[0].getFrontier();
     }
 
-    void addCellToUpdateQueue(Cell cell) {
-        getNextThread().addCellToUpdateQueue(cell);
+    boolean isCellMarkedForNextStep(Cell cell) {
+        for (GameThread thread : threadPool) {
+            if (thread.getFrontier().isInNextStep(cell.getIndex())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    boolean isCellMarkedForUpdate(Cell cell) {
+        for (GameThread thread : threadPool) {
+            if (thread.getFrontier().isInUpdate(cell.getIndex())) {
+                return true;
+            }
+        }
+        return false;
     }
 
     /**
@@ -221,40 +570,368 @@ public class GameState {
     // further in class. However, we could probably initialy make it work in serial. I don't think it will be too
     // difficult to change over to parallel.
     public void processGameStep() {
-        cellsThatChangedState.clear();
-        _determineCellsNextState();
-        _updateCellStates();
-        _copyNextCellQueueToCurrent();
+        checkOpen();
+        asyncStepper.settle();
+        _processGameStep();
+    }
+
+    void _processGameStep() {
+        clearChanges();
+        if (engine != null) {
+            if (stepper != null) {
+                stepper.step(rules);
+            } else {
+                engine.step(rules);
+            }
+            engineChangesCollected = false;
+        } else if (stepMode == StepMode.FUSED) {
+            _fusedStep();
+        } else {
+            _determineCellsNextState();
+            _updateCellStates();
+            _copyNextCellQueueToCurrent();
+        }
         _incrementGameStep();
+        boardChanged();
     }
 
-    private void setThreadPoolPhase(Phase phase) {
+    /**
+     * Processes several game steps. Dense games are stepped {@link #getGenerationsPerSync()} generations at a time,
+     * coming out exactly as if every step had been processed on its own, and only the cells that changed during the
+     * last step are reported as having changed.
+     */
+    public void processGameSteps(int steps) {
+        checkOpen();
+        asyncStepper.settle();
+        _processGameSteps(steps);
+    }
+
+    void _processGameSteps(int steps) {
+        if (blockStepper == null || generationsPerSync == 1) {
+            for (int step = 0; step < steps; step++) {
+                _processGameStep();
+            }
+            return;
+        }
+        if (steps <= 0) {
+            return;
+        }
+        clearChanges();
+        blockStepper.step(rules, steps, generationsPerSync);
+        engineChangesCollected = false;
+        currentStep.addAndGet(steps);
+        boardChanged();
+    }
+
+    /**
+     * Processes game steps in the background. Steps asked for this way are processed one after another, in order, and
+     * the game computes up to {@link #getLookahead()} more generations ahead of time, so a caller that asks for the
+     * next generation before reading the last one has them computed while it reads.
+     * <p>
+     * Any other use of the game, such as a direct step or an edit, first waits for the background steps to finish.
+     * The game is then at the last generation it computed, which can be past the last one asked for. Edits made
+     * through {@link Cell} objects aren't waited for, and must only be made while no background steps are running.
+     *
+     * @param steps how many steps past the last generation asked for to go.
+     * @return the generation reached.
+     */
+    public CompletableFuture<Generation> stepAsync(int steps) {
+        checkOpen();
+        if (steps < 1) {
+            throw new IllegalArgumentException("There has to be at least one step");
+        }
+        return asyncStepper.step(steps);
+    }
+
+    /**
+     * Sets how many generations {@link #stepAsync(int)} computes past the last one asked for. None are computed ahead
+     * of time when this is 0. The default is 1.
+     */
+    public void setLookahead(int generations) {
+        if (generations < 0) {
+            throw new IllegalArgumentException("The lookahead can't be negative");
+        }
+        asyncStepper.setLookahead(generations);
+    }
+
+    public int getLookahead() {
+        return asyncStepper.getLookahead();
+    }
+
+    /**
+     * Copies the current generation, after waiting for any background steps to finish.
+     */
+    public Generation snapshot() {
+        asyncStepper.settle();
+        return _currentGeneration();
+    }
+
+    /**
+     * Visits every living cell of the current generation, after waiting for any background steps to finish. Games on
+     * an unbounded plane include the cells outside the part of it that is shown.
+     */
+    void forEachLivingCell(BoardEngine.ChangeVisitor visitor) {
+        asyncStepper.settle();
+        if (engineType == Engine.UNBOUNDED) {
+            ((SparseEngine) engine).forEachLivingCell(visitor);
+            return;
+        }
+        Generation generation = _currentGeneration();
+        for (int y = 0; y < generation.getHeight(); y++) {
+            for (int w = 0; w < generation.getWordsPerRow(); w++) {
+                long word = generation.getWord(y, w);
+                while (word != 0) {
+                    visitor.visit((w << 6) + Long.numberOfTrailingZeros(word), y, true);
+                    word &= word - 1;
+                }
+            }
+        }
+    }
+
+    /**
+     * Sets how many generations {@link #processGameSteps(int)} advances a dense game between synchronizations of its
+     * threads. The default depends on the size of the board. Other games always synchronize every generation.
+     */
+    public void setGenerationsPerSync(int generationsPerSync) {
+        if (generationsPerSync < 1) {
+            throw new IllegalArgumentException("There has to be at least one generation per synchronization");
+        }
+        if (blockStepper != null) {
+            this.generationsPerSync = generationsPerSync;
+        }
+    }
+
+    public int getGenerationsPerSync() {
+        return generationsPerSync;
+    }
+
+    void _fusedStep() {
+        buffers.rules = rules;
+        runPhase(Phase.FUSED_STEP);
+        buffers.flip();
+        collectCellsThatChanged();
+    }
+
+    private void collectCellsThatChanged() {
+        for (GameThread thread : threadPool) {
+            int[] changed = thread.getChangedCells();
+            for (int i = 0, count = thread.getChangedCellCount(); i < count; i++) {
+                Cell cell = cellsByIndex[changed[i]];
+                boolean alive = cell.isAlive();
+                setLiveCell(cell, alive);
+                changes.add(cell.getX(), cell.getY(), alive);
+            }
+            thread.clearChangedCells();
+        }
+    }
+
+    private void clearChanges() {
+        changes.clear();
+        cellsThatChangedState = null;
+    }
+
+    private void setLiveCell(Cell cell, boolean alive) {
+        if (liveCellsShared) {
+            liveCells = liveCells.clone();
+            liveCellsShared = false;
+        }
+        int word = cell.getY() * Generation.wordsPerRow(boardWidth) + (cell.getX() >>> 6);
+        if (alive) {
+            liveCells[word] |= 1L << cell.getX();
+        } else {
+            liveCells[word] &= ~(1L << cell.getX());
+        }
+    }
+
+    // Starts a new version of the board, and copies it right away if a thread has asked for the latest generation
+    private void boardChanged() {
+        epoch++;
+        if (generationWanted) {
+            generationWanted = false;
+            published = copyGeneration();
+        }
+    }
+
+    private Generation copyGeneration() {
+        long[] cells;
+        if (engine != null) {
+            cells = new long[Generation.wordsPerRow(boardWidth) * boardHeight];
+            engine.copyRows(cells, boardWidth, boardHeight);
+        } else {
+            cells = liveCells;
+            liveCellsShared = true;
+        }
+        return new Generation(currentStep.get(), boardWidth, boardHeight, cells, epoch);
+    }
+
+    /**
+     * The current generation, copied only if the board has changed since the last copy. This should only be called
+     * between steps.
+     */
+    Generation _currentGeneration() {
+        Generation generation = published;
+        if (generation.epoch != epoch) {
+            generation = copyGeneration();
+            published = generation;
+        }
+        return generation;
+    }
+
+    /**
+     * The latest generation copied from the board. Unlike {@link #snapshot()} this can be called from any thread at any
+     * time, and never waits for a step to finish, so the generation can be a step or so behind. Asking makes the game
+     * copy the board as soon as the step in progress is done, so a thread that keeps asking keeps seeing new
+     * generations, and a game nobody asks never copies anything.
+     */
+    public Generation getLatestGeneration() {
+        generationWanted = true;
+        return published;
+    }
+
+    /**
+     * Sets how the game threads step the cell engine. This should only be called between steps, and has no effect on
+     * games that use a board engine.
+     */
+    public void setStepMode(StepMode stepMode) {
+        if (engine != null || stepMode == this.stepMode) {
+            return;
+        }
+        if (stepMode == StepMode.FUSED) {
+            // The queued cells are all marked in the bitmap already, which is where fused steps pick them up
+            buffers = new DoubleBufferedBoard(cellsByIndex);
+            for (GameThread t : threadPool) {
+                t.startFusedSteps(buffers);
+            }
+        } else {
+            for (GameThread t : threadPool) {
+                t.stopFusedSteps();
+            }
+            buffers = null;
+            for (int w = 0; w < queuedCells.length; w++) {
+                long queued = queuedCells[w];
+                while (queued != 0) {
+                    queueCell(cellsByIndex[(w << 6) + Long.numberOfTrailingZeros(queued)]);
+                    queued &= queued - 1;
+                }
+            }
+        }
+        this.stepMode = stepMode;
+    }
+
+    public StepMode getStepMode() {
+        return stepMode;
+    }
+
+    /**
+     * Sets how many times the thread stepping the game checks whether the game threads have finished a phase before it
+     * blocks until they do. Larger budgets make steps faster when every game thread has a core of its own, and waste
+     * time when they don't. This has no effect on games with a single game thread.
+     */
+    public void setBarrierSpinBudget(int spins) {
+        if (spins < 0) {
+            throw new IllegalArgumentException("The spin budget can't be negative: " + spins);
+        }
+        barrierSpinBudget = spins;
+    }
+
+    public int getBarrierSpinBudget() {
+        return barrierSpinBudget;
+    }
+
+    /**
+     * Runs a phase on every game thread and waits for all of them to finish it. A game with a single game thread runs
+     * it on the calling thread.
+     */
+    private void runPhase(Phase phase) {
         for (GameThread t : threadPool) {
             t.phase = phase;
         }
+        int spins = barrierSpinBudget;
+        if (threadPool.length == 1) {
+            threadPool[0].runPhase();
+        } else if (spins == 0 || ForkJoinTask.inForkJoinPool()) {
+            // A pool thread helps with the phase rather than waiting on it
+            StepPool.get().invoke(new PhaseTask(0, threadPool.length));
+        } else {
+            ForkJoinTask<Void> task = StepPool.get().submit(new PhaseTask(0, threadPool.length));
+            // The phase usually ends within microseconds, and waking a blocked thread costs far more than that
+            while (spins > 0 && !task.isDone()) {
+                spins--;
+            }
+            task.join();
+        }
+        long endedAt = System.nanoTime();
+        for (GameThread t : threadPool) {
+            t.phaseEnded(endedAt);
+        }
+    }
+
+    // Splits the game threads of a phase in halves until each part of the phase is its own task
+    private final class PhaseTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int from, to;
+
+        PhaseTask(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new PhaseTask(from, middle), new PhaseTask(middle, to));
+            } else {
+                threadPool[from].runPhase();
+            }
+        }
     }
 
     void _determineCellsNextState() {
-        setThreadPoolPhase(Phase.DETERMINE_NEXT_STATE);
-        wakeupWorkers();
-        waitForWorkersToFinish();
+        runPhase(Phase.DETERMINE_NEXT_STATE);
     }
 
     void _updateCellStates() {
-        setThreadPoolPhase(Phase.UPDATE);
-        wakeupWorkers();
-        waitForWorkersToFinish();
-        for (int i = 0; i < threadPool.length; i++) {
-            cellsThatChangedState.addAll(threadPool[i].getCellsThatChanged());
-            threadPool[i].clearCellsThatChanged();
-        }
+        runPhase(Phase.UPDATE);
+        collectCellsThatChanged();
     }
 
     void _copyNextCellQueueToCurrent() {
-        // This is probably not worth parallelizing in the way of the other two steps since it would just be two adds
-        // instead of one.
+        if (partitioning == Partitioning.STRIPES) {
+            // The cells a thread collected are in its own stripe, so it keeps them
+            for (GameThread t : threadPool) {
+                t.addCellsToWorkQueue(t.getNextStepQueue(), 0, t.getNextStepQueueSize());
+                t.clearNextStepQueue();
+            }
+            return;
+        }
+        // Each thread collected the next step cells of its own part of the board, so the work is handed back out in
+        // even slices. They are still in board order, which keeps neighboring cells on the same thread.
+        int total = 0;
+        for (GameThread t : threadPool) {
+            total += t.getNextStepQueueSize();
+        }
+        int[] workloads = getThreadWorkloadSizes(total);
+        int source = 0, sourceOffset = 0;
+        for (int i = 0; i < threadPool.length; i++) {
+            int remaining = workloads[i];
+            while (remaining > 0) {
+                GameThread from = threadPool[source];
+                int available = from.getNextStepQueueSize() - sourceOffset;
+                if (available == 0) {
+                    source++;
+                    sourceOffset = 0;
+                    continue;
+                }
+                int count = Math.min(remaining, available);
+                threadPool[i].addCellsToWorkQueue(from.getNextStepQueue(), sourceOffset, count);
+                sourceOffset += count;
+                remaining -= count;
+            }
+        }
         for (GameThread t : threadPool) {
-            t.copyNextCellQueueToCurrent();
+            t.clearNextStepQueue();
         }
     }
 
@@ -262,18 +939,36 @@ public class GameState {
         currentStep.incrementAndGet();
     }
 
-    private void wakeupWorkers() {
-        synchronized (barrier) {
-            barrier.notifyAll();
+    /**
+     * Ends the game. Games don't hold on to any threads between steps, so there is nothing to stop, but a closed game
+     * can't be stepped any more. Closing a game more than once does nothing.
+     */
+    @Override
+    public void close() {
+        asyncStepper.settle();
+        closed = true;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("The game has been closed");
         }
     }
 
-    private void waitForWorkersToFinish() {
-        try {
-            barrier.await();
-        } catch (InterruptedException | BrokenBarrierException e) {
-            throw new RuntimeException(e);
+    /**
+     * The total time each game thread's share of the board has sat finished, waiting for the rest of its phases to
+     * be done, in nanoseconds. Large differences between the shares mean their work isn't evenly balanced.
+     */
+    public long[] getBarrierWaitNanos() {
+        long[] waits = new long[threadPool.length];
+        for (int i = 0; i < threadPool.length; i++) {
+            waits[i] = threadPool[i].getBarrierWaitNanos();
         }
+        return waits;
     }
 
     /**
@@ -285,24 +980,129 @@ public class GameState {
         return currentStep.get();
     }
 
+    /**
+     * Sets the step count of a game restored from a {@link Checkpoint}, before its board is filled in.
+     */
+    void restoreStep(int step) {
+        currentStep.set(step);
+        epoch++;
+    }
+
+    /**
+     * Counts the living cells on the board. Games on an unbounded plane only count the part of it that
+     * {@link #createBoardString(char, char)} shows.
+     */
+    public int getPopulation() {
+        int population = 0;
+        for (int y = 0; y < boardHeight; y++) {
+            for (int x = 0; x < boardWidth; x++) {
+                if (engine != null ? engine.isAlive(x, y) : board[y][x].isAlive()) {
+                    population++;
+                }
+            }
+        }
+        return population;
+    }
+
+    /**
+     * The cells that changed state during the last step. The game fills the same change set every step, so it should
+     * only be read between steps, and copied to be kept past the next one. Reading it never allocates anything per
+     * cell, unlike {@link #getCellsThatChangedState()}.
+     */
+    public ChangeSet getChanges() {
+        if (engine != null && !engineChangesCollected) {
+            engine.forEachChangedCell(changes::add);
+            engineChangesCollected = true;
+        }
+        return changes;
+    }
+
+    /**
+     * The cells that changed state during the last step, as cell objects made from {@link #getChanges()}.
+     */
     public Collection<Cell> getCellsThatChangedState() {
+        if (cellsThatChangedState == null) {
+            ChangeSet changes = getChanges();
+            List<Cell> changed = new ArrayList<>(changes.size());
+            for (int i = 0; i < changes.size(); i++) {
+                int x = changes.getX(i), y = changes.getY(i);
+                changed.add(engine != null ? new EngineCell(this, engine, x, y) : board[y][x]);
+            }
+            cellsThatChangedState = changed;
+        }
         return cellsThatChangedState;
     }
 
     boolean isCellCurrentlyQueued(Cell cell) {
-        for (GameThread thread : threadPool) {
-            if (thread.isCellCurrentQueued(cell)) {
-                return true;
-            }
-        }
-        return false;
+        int index = cell.getIndex();
+        return (queuedCells[index >>> 6] & (1L << index)) != 0;
     }
 
     void addCellToCurrentQueue(Cell cell) {
-        getNextThread().addCellToWorkQueue(cell);
+        int index = cell.getIndex();
+        queuedCells[index >>> 6] |= 1L << index;
+        if (stepMode == StepMode.PHASED) {
+            queueCell(cell);
+        }
+    }
+
+    /**
+     * Keeps the double buffered board and the bitmap of living cells up to date with a cell that was edited between
+     * steps.
+     */
+    void cellEdited(Cell cell) {
+        epoch++;
+        if (buffers != null) {
+            buffers.set(cell.getIndex(), cell.isAlive());
+        }
+        if (liveCells != null) {
+            setLiveCell(cell, cell.isAlive());
+        }
+    }
+
+    // Adds a cell to the work queue of a game thread
+    private void queueCell(Cell cell) {
+        if (partitioning == Partitioning.STRIPES) {
+            getOwningThread(cell.getIndex()).addCellToWorkQueue(cell);
+        } else {
+            getNextThread().addCellToWorkQueue(cell);
+        }
+    }
+
+    // The thread whose stripe of the board a cell is in
+    private GameThread getOwningThread(int index) {
+        int word = index >>> 6;
+        int thread = (int) ((long) word * threadPool.length / queuedCells.length);
+        while (thread + 1 < threadPool.length && !threadPool[thread].ownsWord(word)) {
+            thread++;
+        }
+        return threadPool[thread];
+    }
+
+    /**
+     * Sets how the cells to process each step are divided between the game threads. This should only be called
+     * between steps, and has no effect on games that use a board engine.
+     */
+    public void setPartitioning(Partitioning partitioning) {
+        this.partitioning = partitioning;
+    }
+
+    public Partitioning getPartitioning() {
+        return partitioning;
     }
 
     int getCurrentCellQueueSize() {
+        if (stepMode == StepMode.FUSED) {
+            int size = 0;
+            for (int w = 0; w < queuedCells.length; w++) {
+                long queued = queuedCells[w];
+                for (GameThread t : threadPool) {
+                    queued |= t.getFusedMarks(w);
+                }
+                size += Long.bitCount(queued);
+            }
+            return size;
+        }
         int size = 0;
         for (GameThread t : threadPool) {
             size += t.getWorkQueueSize();
@@ -317,7 +1117,7 @@ public class GameState {
                 builder.append("\n");
             }
             for (int x = 0; x < boardWidth; x++) {
-                builder.append((getCell(x, y).isAlive() ? liveCell : deadCell));
+                builder.append((isAlive(x, y) ? liveCell : deadCell));
             }
         }
         return builder.toString();
@@ -335,10 +1135,141 @@ public class GameState {
         return result;
     }
 
+    /**
+     * The ways a game board can be stored and stepped. Games with more than one thread step the engines that work a
+     * row at a time, {@link #BIT_PACKED} and {@link #DENSE}, in bands of rows on a fork/join pool.
+     */
+    public enum Engine {
+        /**
+         * One {@link Cell} object per position, processed by the game threads.
+         */
+        CELLS,
+        /**
+         * 64 cells per long, stepped with word wide bitwise adders.
+         */
+        BIT_PACKED,
+        /**
+         * One byte per cell, swept row by row through a lookup table of every 3x3 neighborhood. Suits boards where
+         * most cells are active.
+         */
+        DENSE,
+        /**
+         * An endless plane that doesn't wrap around, of which only the 64x64 tiles with living cells are stored. The
+         * board size is just the part of the plane that is shown.
+         */
+        UNBOUNDED;
+
+        /**
+         * Whether the board ends at, and wraps around, its width and height.
+         */
+        public boolean isBounded() {
+            return this != UNBOUNDED;
+        }
+
+        /**
+         * Whether boards stored this way can have the given edges. Unbounded boards have no edges, and only accept
+         * the default.
+         */
+        public boolean supports(EdgePolicy edgePolicy) {
+            return this == DENSE || edgePolicy == EdgePolicy.TORUS;
+        }
+
+        BoardEngine create(int boardWidth, int boardHeight, EdgePolicy edgePolicy) {
+            switch (this) {
+                case BIT_PACKED:
+                    return new BitBoardEngine(boardWidth, boardHeight);
+                case DENSE:
+                    return new DenseEngine(boardWidth, boardHeight, edgePolicy);
+                case UNBOUNDED:
+                    return new SparseEngine();
+                default:
+                    throw new IllegalArgumentException(this + " is not a board engine");
+            }
+        }
+    }
+
+    /**
+     * How the game threads step the cell engine.
+     */
+    public enum StepMode {
+        /**
+         * The threads determine the next state of their cells, wait for each other, update the cells and wait again,
+         * after which the cells to process next are handed back out to them.
+         */
+        PHASED,
+        /**
+         * The state of the board is double buffered, so the threads can read one generation and write the next in a
+         * single pass with a single wait at the end. Each thread always steps its own stripe of the board, as if the
+         * partitioning were {@link Partitioning#STRIPES}, and cells are only touched when their state changes.
+         */
+        FUSED
+    }
+
+    /**
+     * How the cells to process each step are divided between the game threads of the cell engine.
+     */
+    public enum Partitioning {
+        /**
+         * Every thread gets the same number of cells, handed out in board order. The workload is always even, but
+         * where one thread's cells end and the next one's begin moves around from step to step.
+         */
+        BALANCED,
+        /**
+         * Every thread always processes the cells in its own stripe of the board, which is also the part of the board
+         * it updates. A thread's cells and most of their neighbors stay in its core's cache, and the only cells it
+         * shares with other threads are along the edges of its stripe, where they meet through the frontier bitmaps.
+         * Busy stripes make their thread work longer than the others, though.
+         */
+        STRIPES
+    }
+
+    /**
+     * What the cells along the edges of a bounded board have as neighbors on the side facing off the board.
+     */
+    public enum EdgePolicy {
+        /**
+         * The left edge is joined to the right, and the top to the bottom.
+         */
+        TORUS,
+        /**
+         * Everything beyond the edges is dead.
+         */
+        DEAD,
+        /**
+         * The left edge is joined to the right, and the top to the bottom with a twist, so anything that goes off the
+         * top or bottom comes back in mirrored left to right.
+         */
+        KLEIN_BOTTLE;
+
+        /**
+         * The x position of the cell on the board that stands in for a position up to one cell beyond its edges. Dead
+         * edges don't stand in for anything, so the position is returned as is.
+         */
+        int wrapX(int x, int y, int boardWidth, int boardHeight) {
+            if (this == DEAD) {
+                return x;
+            }
+            if (this == KLEIN_BOTTLE && (y < 0 || y >= boardHeight)) {
+                x = boardWidth - 1 - x;
+            }
+            return x < 0 ? x + boardWidth : x >= boardWidth ? x - boardWidth : x;
+        }
+
+        /**
+         * The y position of the cell on the board that stands in for a position up to one cell beyond its edges.
+         */
+        int wrapY(int y, int boardHeight) {
+            if (this == DEAD) {
+                return y;
+            }
+            return y < 0 ? y + boardHeight : y >= boardHeight ? y - boardHeight : y;
+        }
+    }
+
     /**
      * Used to direct game threads on what they should be doing.
      */
     enum Phase {
-        DETERMINE_NEXT_STATE, UPDATE, COPY, WAIT, EXIT;
+        DETERMINE_NEXT_STATE, UPDATE, FUSED_STEP, WAIT;
     }
 }
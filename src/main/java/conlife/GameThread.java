@@ -2,38 +2,56 @@ package conlife;
 
 import conlife.GameState.Phase;
 
-import java.util.ArrayDeque;
-import java.util.Collection;
-import java.util.Queue;
-import java.util.concurrent.BrokenBarrierException;
-import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.concurrent.CyclicBarrier;
+import java.util.Arrays;
 
 import static conlife.GameState.Phase.*;
 
 /**
- * Responsible for processing all of cells that have been assigned to it.
+ * Responsible for processing all of cells that have been assigned to it. A game thread is one share of the work of a
+ * game step rather than a thread of its own, and each phase of it is run on the {@link StepPool}.
  *
  * @author Jeremy Wood, Nathan Coggins
  */
-class GameThread extends Thread {
+class GameThread {
 
     volatile GameState.Phase phase = WAIT;
 
-    private final CyclicBarrier barrier;
+    // When this thread last finished its part of a phase, and the total time it has spent waiting for the other threads
+    // to finish theirs. Only read by the game state between phases.
+    private long finishedAt;
+    private long barrierWaitNanos;
 
-    private Queue<Cell> workQueue;
-    private Queue<Cell> cellsThatChanged;
-    private final Queue<Cell> cellUpdateQueue = new ConcurrentLinkedQueue<>();
-    private final Queue<Cell> nextStepQueue = new ConcurrentLinkedQueue<>();
-    private int nextAssignmentThreadId;
+    // Every cell on the board by index, and the rest of the pool whose frontiers get merged during the update phase
+    private final Cell[] cells;
+    private final GameThread[] threadPool;
+    // Which cells are in the work queue of any thread, shared with the game state
+    private final long[] queuedCells;
+    // The words of the frontier bitmaps this thread merges and updates. No other thread touches them in that phase.
+    private final int firstWord, endWord;
+    private final CellFrontier frontier;
 
-    GameThread(ThreadGroup threadGroup, int id, CyclicBarrier barrier) {
-        super(threadGroup, "game-logic-thread-" + id);
-        workQueue = new ConcurrentLinkedQueue<>();
-        cellsThatChanged = new ConcurrentLinkedQueue<>();
-        this.barrier = barrier;
-        this.nextAssignmentThreadId = id;
+    // Indices of the cells to process this step, and of the cells this thread found for the next step
+    private int[] workQueue = new int[16];
+    private int workQueueSize;
+    private int[] nextStepQueue = new int[16];
+    private int nextStepQueueSize;
+    // Indices of the cells this thread changed this step
+    private int[] changedCells = new int[16];
+    private int changedCellCount;
+
+    // Only set while the game is stepped in fused mode. The marks are the cells this thread found have to be checked
+    // in the next generation, double buffered along with the board.
+    private DoubleBufferedBoard buffers;
+    private long[][] marks;
+
+    GameThread(int id, Cell[] cells, GameThread[] threadPool, long[] queuedCells) {
+        this.cells = cells;
+        this.threadPool = threadPool;
+        this.queuedCells = queuedCells;
+        frontier = new CellFrontier(cells.length);
+        int words = queuedCells.length;
+        firstWord = (int) ((long) words * id / threadPool.length);
+        endWord = (int) ((long) words * (id + 1) / threadPool.length);
     }
 
     /**
@@ -48,124 +66,250 @@ class GameThread extends Thread {
             throw new IllegalArgumentException("Cells can only be added to a thread's work queue during a waiting"
                     + " phase.");
         }
-        workQueue.add(cell);
-    }
-
-    Collection<Cell> getCellsThatChanged() {
-        return cellsThatChanged;
-    }
-
-    void clearCellsThatChanged() {
-        cellsThatChanged.clear();
-    }
-
-    @Override
-    public void run() {
-        while (phase != Phase.EXIT) {
-            switch (phase) {
-                case WAIT:
-                    innocuousWait();
-                    break;
-                case DETERMINE_NEXT_STATE:
-                    determineNextState();
-                    barrier();
-                    break;
-                case UPDATE:
-                    update();
-                    barrier();
-                    break;
-                case COPY:
-                    //copyCells();
-                    barrier();
-                    break;
-                default:
-                    break;
-            }
+        addToWorkQueue(cell.getIndex());
+    }
+
+    /**
+     * Adds a run of cell indices to the work queue. Like {@link #addCellToWorkQueue(Cell)}, this should only be called
+     * between phases.
+     */
+    void addCellsToWorkQueue(int[] indices, int offset, int count) {
+        if (workQueueSize + count > workQueue.length) {
+            workQueue = Arrays.copyOf(workQueue, Math.max(workQueue.length * 2, workQueueSize + count));
         }
+        System.arraycopy(indices, offset, workQueue, workQueueSize, count);
+        workQueueSize += count;
     }
 
-    private void barrier() {
-        try {
-            barrier.await();
-        } catch (InterruptedException | BrokenBarrierException e) {
-            throw new RuntimeException(e);
+    private void addToWorkQueue(int index) {
+        if (workQueueSize == workQueue.length) {
+            workQueue = Arrays.copyOf(workQueue, workQueue.length * 2);
         }
+        workQueue[workQueueSize++] = index;
     }
 
-    private void busyWait() {
-        while (phase == WAIT) {
-            // This is going to max out cpu core usage but it is apparently the method
-            // that will receive updates the fastest.
-            // Turns out this method also makes some computers run like garbage.
+    private void addToNextStepQueue(int index) {
+        if (nextStepQueueSize == nextStepQueue.length) {
+            nextStepQueue = Arrays.copyOf(nextStepQueue, nextStepQueue.length * 2);
         }
+        nextStepQueue[nextStepQueueSize++] = index;
     }
 
-    private void innocuousWait() {
-        synchronized (barrier) {
-            while (phase == WAIT) {
-                try {
-                    barrier.wait();
-                } catch (InterruptedException e) {
-                    throw new RuntimeException(e);
-                }
-            }
+    CellFrontier getFrontier() {
+        return frontier;
+    }
+
+    private void addToChangedCells(int index) {
+        if (changedCellCount == changedCells.length) {
+            changedCells = Arrays.copyOf(changedCells, changedCells.length * 2);
+        }
+        changedCells[changedCellCount++] = index;
+    }
+
+    int[] getChangedCells() {
+        return changedCells;
+    }
+
+    int getChangedCellCount() {
+        return changedCellCount;
+    }
+
+    void clearChangedCells() {
+        changedCellCount = 0;
+    }
+
+    /**
+     * Does this thread's part of the phase the game state set. A phase ends when every thread has done its part, and
+     * nothing one thread does in a phase waits on another, so the parts can run in any order on any number of threads.
+     */
+    void runPhase() {
+        switch (phase) {
+            case DETERMINE_NEXT_STATE:
+                determineNextState();
+                break;
+            case UPDATE:
+                update();
+                break;
+            case FUSED_STEP:
+                fusedStep();
+                break;
+            default:
+                break;
         }
+        finishedAt = System.nanoTime();
+    }
+
+    /**
+     * Called by the game state once every thread has finished the phase.
+     */
+    void phaseEnded(long endedAt) {
+        barrierWaitNanos += endedAt - finishedAt;
+    }
+
+    long getBarrierWaitNanos() {
+        return barrierWaitNanos;
     }
 
     private void determineNextState() {
         if (phase != DETERMINE_NEXT_STATE) {
             throw new IllegalArgumentException("Phase must be set to DETERMINE_NEXT_STATE");
         }
-        Cell cell;
-        while ((cell = workQueue.poll()) != null) {
-            cell.determineNextState();
+        for (int i = 0; i < workQueueSize; i++) {
+            cells[workQueue[i]].determineNextState(frontier);
         }
+        workQueueSize = 0;
         phase = WAIT;
     }
 
+    /**
+     * Merges the frontiers of every thread over this thread's share of the board, updates the cells that were marked
+     * and collects the ones to check next step.
+     */
     private void update() {
         if (phase != UPDATE) {
             throw new IllegalArgumentException("Phase must be set to UPDATE");
         }
-        Cell cell;
-        while ((cell = cellUpdateQueue.poll()) != null) {
-            if (cell.updateToNextState()) {
-                cellsThatChanged.add(cell);
+        for (int w = firstWord; w < endWord; w++) {
+            long update = 0, nextStep = 0;
+            for (GameThread thread : threadPool) {
+                CellFrontier other = thread.frontier;
+                update |= other.update[w];
+                nextStep |= other.nextStep[w];
+                other.update[w] = 0;
+                other.nextStep[w] = 0;
+            }
+            queuedCells[w] = nextStep;
+            int base = w << 6;
+            while (update != 0) {
+                int index = base + Long.numberOfTrailingZeros(update);
+                if (cells[index].updateToNextState()) {
+                    addToChangedCells(index);
+                }
+                update &= update - 1;
+            }
+            while (nextStep != 0) {
+                addToNextStepQueue(base + Long.numberOfTrailingZeros(nextStep));
+                nextStep &= nextStep - 1;
             }
         }
         phase = WAIT;
     }
 
-    boolean isCellCurrentQueued(Cell cell) {
-        return workQueue.contains(cell);
+    /**
+     * Switches this thread to fused steps on the given board. The cells to check first are the ones queued in the
+     * game's bitmap, so the work queue is dropped. This should only be called between phases.
+     */
+    void startFusedSteps(DoubleBufferedBoard buffers) {
+        this.buffers = buffers;
+        marks = new long[][]{new long[queuedCells.length], new long[queuedCells.length]};
+        workQueueSize = 0;
     }
 
-    boolean isCellInNextStepQueue(Cell cell) {
-        return nextStepQueue.contains(cell);
+    /**
+     * Switches this thread back to phased steps, adding the cells it marked to be checked next to the game's bitmap of
+     * queued cells. This should only be called between phases.
+     */
+    void stopFusedSteps() {
+        long[] pending = marks[buffers.getParity()];
+        for (int w = 0; w < pending.length; w++) {
+            queuedCells[w] |= pending[w];
+        }
+        buffers = null;
+        marks = null;
     }
 
-    void addCellToNextStepQueue(Cell cell) {
-        nextStepQueue.add(cell);
+    /**
+     * Computes the next generation of this thread's stripe of the board in a single pass. The current generation is
+     * only read and the next one is only written, so no thread has to wait for another until the whole generation is
+     * done. The cells to check are the ones queued since the last step and the ones any thread marked during the last
+     * step, and cells that change mark themselves and their neighbors for the next step in this thread's own marks.
+     */
+    private void fusedStep() {
+        if (phase != FUSED_STEP) {
+            throw new IllegalArgumentException("Phase must be set to FUSED_STEP");
+        }
+        final int parity = buffers.getParity();
+        final long[] current = buffers.getCurrent();
+        final long[] next = buffers.getNext();
+        final int[] neighbors = buffers.neighbors;
+        final int birth = buffers.rules.birth, survive = buffers.rules.survive;
+        final long[] nextMarks = marks[parity ^ 1];
+        for (int w = firstWord; w < endWord; w++) {
+            long active = queuedCells[w];
+            queuedCells[w] = 0;
+            for (GameThread thread : threadPool) {
+                long[] threadMarks = thread.marks[parity];
+                active |= threadMarks[w];
+                threadMarks[w] = 0;
+            }
+            final long word = current[w];
+            long result = word;
+            int base = w << 6;
+            while (active != 0) {
+                int bit = Long.numberOfTrailingZeros(active);
+                active &= active - 1;
+                int index = base + bit;
+                int living = 0;
+                for (int n = index * 8, end = n + 8; n < end; n++) {
+                    int neighbor = neighbors[n];
+                    living += (int) (current[neighbor >>> 6] >>> neighbor) & 1;
+                }
+                boolean alive = ((word >>> bit) & 1L) == 1L;
+                boolean aliveNext = (((alive ? survive : birth) >>> living) & 1) == 1;
+                if (aliveNext != alive) {
+                    result ^= 1L << bit;
+                    cells[index].setSteppedState(aliveNext);
+                    addToChangedCells(index);
+                    nextMarks[index >>> 6] |= 1L << index;
+                    for (int n = index * 8, end = n + 8; n < end; n++) {
+                        int neighbor = neighbors[n];
+                        nextMarks[neighbor >>> 6] |= 1L << neighbor;
+                    }
+                }
+            }
+            // Every word of the stripe is written, so the next generation never depends on what was in it before
+            next[w] = result;
+        }
+        phase = WAIT;
+    }
+
+    /**
+     * The cells in a word of the board that this thread marked to be checked next step in fused mode.
+     */
+    long getFusedMarks(int word) {
+        return marks[buffers.getParity()][word];
     }
 
-    void addCellToUpdateQueue(Cell cell) {
-        cellUpdateQueue.add(cell);
+    boolean isCellInNextStepQueue(Cell cell) {
+        int index = cell.getIndex();
+        for (int i = 0; i < nextStepQueueSize; i++) {
+            if (nextStepQueue[i] == index) {
+                return true;
+            }
+        }
+        return frontier.isInNextStep(index);
+    }
+
+    /**
+     * Whether a word of the frontier bitmaps is in the stripe of the board this thread updates.
+     */
+    boolean ownsWord(int word) {
+        return word >= firstWord && word < endWord;
     }
 
     int getWorkQueueSize() {
-        return workQueue.size();
+        return workQueueSize;
     }
 
-    void copyNextCellQueueToCurrent() {
-        workQueue.addAll(nextStepQueue);
-        nextStepQueue.clear();
+    int[] getNextStepQueue() {
+        return nextStepQueue;
     }
 
-    int getNextAssignmentThreadId() {
-        return nextAssignmentThreadId;
+    int getNextStepQueueSize() {
+        return nextStepQueueSize;
     }
 
-    void setNextAssignmentThreadId(int id) {
-        nextAssignmentThreadId = id;
+    void clearNextStepQueue() {
+        nextStepQueueSize = 0;
     }
 }
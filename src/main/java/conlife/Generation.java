@@ -0,0 +1,72 @@
+package conlife;
+
+/**
+ * An immutable copy of the board at one game step, which any thread can read while the game goes on stepping. Copies
+ * are cheap to make: a game hands out the same one until its board changes, and cell based games share their bitmap of
+ * living cells with the copy until the next change, which copies it first.
+ */
+public final class Generation {
+
+    private final int step;
+    private final int width, height;
+    // One bit per cell, with each row starting on a new word
+    private final int wordsPerRow;
+    private final long[] cells;
+    // Which version of the board of the game this is a copy of
+    final long epoch;
+
+    Generation(int step, int width, int height, long[] cells, long epoch) {
+        this.step = step;
+        this.epoch = epoch;
+        this.width = width;
+        this.height = height;
+        this.wordsPerRow = wordsPerRow(width);
+        this.cells = cells;
+    }
+
+    static int wordsPerRow(int width) {
+        return (width + 63) >>> 6;
+    }
+
+    public int getStep() {
+        return step;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public boolean isAlive(int x, int y) {
+        if (x < 0 || x >= width || y < 0 || y >= height) {
+            throw new IllegalArgumentException(String.format("(%d, %d) is not on the board", x, y));
+        }
+        return (cells[y * wordsPerRow + (x >>> 6)] & (1L << x)) != 0;
+    }
+
+    public int getWordsPerRow() {
+        return wordsPerRow;
+    }
+
+    /**
+     * Sixty four cells of a row as the bits of a word, with bit x % 64 of word x / 64 holding the cell in column x.
+     * Bits past the end of the row are always clear.
+     */
+    public long getWord(int y, int word) {
+        if (y < 0 || y >= height || word < 0 || word >= wordsPerRow) {
+            throw new IllegalArgumentException(String.format("Row %d has no word %d", y, word));
+        }
+        return cells[y * wordsPerRow + word];
+    }
+
+    public int getPopulation() {
+        int population = 0;
+        for (long word : cells) {
+            population += Long.bitCount(word);
+        }
+        return population;
+    }
+}
@@ -0,0 +1,491 @@
+package conlife;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An implementation of Bill Gosper's HashLife algorithm. The universe is an unbounded quadtree of canonical nodes, so
+ * every distinct square of space is only stored once, and the future of every node is memoized. This makes it possible
+ * to jump a pattern ahead by a huge number of generations without computing each generation in between.
+ * <p>
+ * Cells are addressed with coordinates that may be negative. The universe grows as needed to hold the pattern, and
+ * the canonical node table is garbage collected between jumps once it holds more than {@link #getMaxNodes()} nodes.
+ */
+public class HashLife {
+
+    public static final int DEFAULT_MAX_NODES = 1 << 21;
+
+    private static final int INITIAL_TABLE_SIZE = 1 << 16;
+    private static final int INITIAL_LEVEL = 3;
+
+    /**
+     * Creates a universe with the given initial conditions, where board[y][x] is true for living cells. The cell at
+     * board[y][x] ends up at position (x, y) in the universe.
+     *
+     * @param rules the rules to run the universe with.
+     * @param board the initial conditions.
+     * @return a new universe at generation 0.
+     */
+    public static HashLife fromBoard(Rules rules, boolean[][] board) {
+        HashLife universe = new HashLife(rules);
+        int height = board.length;
+        int width = height == 0 ? 0 : board[0].length;
+        int level = INITIAL_LEVEL;
+        while ((1L << (level - 1)) < Math.max(width, height)) {
+            level++;
+        }
+        // The board fills the south east quadrant, which starts at the origin
+        long half = 1L << (level - 1);
+        universe.root = universe.build(board, level, -half, -half);
+        return universe;
+    }
+
+    /**
+     * Creates a universe with the living cells of a game at the same positions. Games on an unbounded plane bring along
+     * the cells outside the part of it that is shown.
+     *
+     * @param rules the rules to run the universe with, which needn't be those of the game.
+     * @param game the game to copy.
+     * @return a new universe at generation 0.
+     */
+    public static HashLife fromGame(Rules rules, GameState game) {
+        HashLife universe = new HashLife(rules);
+        game.forEachLivingCell((x, y, alive) -> universe.setAlive(x, y, true));
+        return universe;
+    }
+
+    private final Rules rules;
+    private final Node deadLeaf = new Node(false);
+    private final Node aliveLeaf = new Node(true);
+    // Canonical empty node for each level, these are never garbage collected
+    private final List<Node> emptyNodes = new ArrayList<>();
+
+    private Node[] table = new Node[INITIAL_TABLE_SIZE];
+    private int nodeCount = 0;
+    private int maxNodes = DEFAULT_MAX_NODES;
+    private int garbageCollections = 0;
+
+    private Node root;
+    private long generation = 0;
+
+    /**
+     * Creates an empty universe.
+     *
+     * @param rules the rules to run the universe with, which can't have births on zero neighbors since empty space
+     *              would then fill up and HashLife relies on empty space staying empty.
+     */
+    public HashLife(Rules rules) {
+        if (rules.isBirth(0)) {
+            throw new IllegalArgumentException("Rules with births on zero neighbors would fill an unbounded universe");
+        }
+        this.rules = rules;
+        emptyNodes.add(deadLeaf);
+        root = empty(INITIAL_LEVEL);
+    }
+
+    public Rules getRules() {
+        return rules;
+    }
+
+    public long getGeneration() {
+        return generation;
+    }
+
+    public long getPopulation() {
+        return root.population;
+    }
+
+    Node getRoot() {
+        return root;
+    }
+
+    /**
+     * Replaces the whole universe with a node built from this universe's nodes, such as one read from a
+     * {@link Macrocell} file. The center of the node ends up at the origin.
+     */
+    void setRoot(Node root, long generation) {
+        if (root.level < INITIAL_LEVEL) {
+            throw new IllegalArgumentException("The root has to be at least " + (1 << INITIAL_LEVEL) + " cells wide");
+        }
+        this.root = root;
+        this.generation = generation;
+    }
+
+    /**
+     * The number of canonical nodes currently held by the node table.
+     */
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    public int getMaxNodes() {
+        return maxNodes;
+    }
+
+    /**
+     * Sets how many canonical nodes may be held before the node table is garbage collected. Collection only happens
+     * between jumps, so a single very large jump can go over this limit temporarily.
+     *
+     * @param maxNodes the node limit.
+     */
+    public void setMaxNodes(int maxNodes) {
+        this.maxNodes = maxNodes;
+    }
+
+    public int getGarbageCollectionCount() {
+        return garbageCollections;
+    }
+
+    public boolean isAlive(long x, long y) {
+        long half = 1L << (root.level - 1);
+        if (x < -half || y < -half || x >= half || y >= half) {
+            return false;
+        }
+        Node node = root;
+        x += half;
+        y += half;
+        while (node.level > 0) {
+            half = 1L << (node.level - 1);
+            if (y < half) {
+                node = x < half ? node.nw : node.ne;
+            } else {
+                node = x < half ? node.sw : node.se;
+                y -= half;
+            }
+            if (x >= half) {
+                x -= half;
+            }
+        }
+        return node.population == 1;
+    }
+
+    public void setAlive(long x, long y, boolean alive) {
+        while (true) {
+            long half = 1L << (root.level - 1);
+            if (x >= -half && y >= -half && x < half && y < half) {
+                root = set(root, x + half, y + half, alive);
+                return;
+            }
+            expand();
+        }
+    }
+
+    /**
+     * Advances the universe by the given number of generations. The jump is broken up into power of two jumps, each of
+     * which is computed by HashLife directly.
+     *
+     * @param generations how many generations to advance.
+     */
+    public void advance(long generations) {
+        if (generations < 0) {
+            throw new IllegalArgumentException("Can't advance by a negative number of generations");
+        }
+        for (int stepLog = 0; generations != 0; stepLog++, generations >>>= 1) {
+            if ((generations & 1) == 1) {
+                jump(stepLog);
+            }
+        }
+    }
+
+    private void jump(int stepLog) {
+        // The result of a node is its center half, so the pattern has to be far enough from the edges of the root that
+        // it can't travel out of that center in 2^stepLog generations.
+        while (root.level < stepLog + 3 || !isPatternCentered()) {
+            expand();
+        }
+        if (nodeCount > maxNodes) {
+            collectGarbage();
+        }
+        root = advance(root, stepLog);
+        generation += 1L << stepLog;
+    }
+
+    // Whether the whole pattern is inside the center quarter of the root
+    private boolean isPatternCentered() {
+        return root.population == root.nw.se.se.population + root.ne.sw.sw.population + root.sw.ne.ne.population
+                + root.se.nw.nw.population;
+    }
+
+    private void expand() {
+        Node empty = empty(root.level - 1);
+        root = join(join(empty, empty, empty, root.nw), join(empty, empty, root.ne, empty),
+                join(empty, root.sw, empty, empty), join(root.se, empty, empty, empty));
+    }
+
+    /**
+     * Gets the center of the given node 2^stepLog generations later. The step can be at most 2^(level - 2).
+     */
+    private Node advance(Node node, int stepLog) {
+        if (node.population == 0) {
+            return node.nw;
+        }
+        if (stepLog == node.level - 2) {
+            if (node.result == null) {
+                node.result = computeResult(node, stepLog);
+            }
+            return node.result;
+        }
+        if (node.stepLog != stepLog) {
+            node.stepResult = computeResult(node, stepLog);
+            node.stepLog = stepLog;
+        }
+        return node.stepResult;
+    }
+
+    private Node computeResult(Node node, int stepLog) {
+        if (node.level == 2) {
+            return computeBaseResult(node);
+        }
+        // Nine overlapping sub-squares, each half the size of the node
+        Node n00 = node.nw;
+        Node n01 = join(node.nw.ne, node.ne.nw, node.nw.se, node.ne.sw);
+        Node n02 = node.ne;
+        Node n10 = join(node.nw.sw, node.nw.se, node.sw.nw, node.sw.ne);
+        Node n11 = join(node.nw.se, node.ne.sw, node.sw.ne, node.se.nw);
+        Node n12 = join(node.ne.sw, node.ne.se, node.se.nw, node.se.ne);
+        Node n20 = node.sw;
+        Node n21 = join(node.sw.ne, node.se.nw, node.sw.se, node.se.sw);
+        Node n22 = node.se;
+
+        if (stepLog == node.level - 2) {
+            // Half of the time is spent advancing the nine sub-squares and the other half advancing the four squares
+            // they overlap into
+            int halfStep = stepLog - 1;
+            Node c00 = advance(n00, halfStep), c01 = advance(n01, halfStep), c02 = advance(n02, halfStep);
+            Node c10 = advance(n10, halfStep), c11 = advance(n11, halfStep), c12 = advance(n12, halfStep);
+            Node c20 = advance(n20, halfStep), c21 = advance(n21, halfStep), c22 = advance(n22, halfStep);
+            return join(advance(join(c00, c01, c10, c11), halfStep), advance(join(c01, c02, c11, c12), halfStep),
+                    advance(join(c10, c11, c20, c21), halfStep), advance(join(c11, c12, c21, c22), halfStep));
+        }
+
+        // A smaller step is taken entirely by the nine sub-squares, the four squares they overlap into are just cut
+        // down to their centers
+        Node c00 = advance(n00, stepLog), c01 = advance(n01, stepLog), c02 = advance(n02, stepLog);
+        Node c10 = advance(n10, stepLog), c11 = advance(n11, stepLog), c12 = advance(n12, stepLog);
+        Node c20 = advance(n20, stepLog), c21 = advance(n21, stepLog), c22 = advance(n22, stepLog);
+        return join(join(c00.se, c01.sw, c10.ne, c11.nw), join(c01.se, c02.sw, c11.ne, c12.nw),
+                join(c10.se, c11.sw, c20.ne, c21.nw), join(c11.se, c12.sw, c21.ne, c22.nw));
+    }
+
+    // Steps the center 2x2 cells of a 4x4 node by one generation
+    private Node computeBaseResult(Node node) {
+        int cells = 0;
+        for (int y = 0; y < 4; y++) {
+            for (int x = 0; x < 4; x++) {
+                if (getLeaf(node, x, y).population == 1) {
+                    cells |= 1 << (y * 4 + x);
+                }
+            }
+        }
+        return join(leaf(nextState(cells, 1, 1)), leaf(nextState(cells, 2, 1)),
+                leaf(nextState(cells, 1, 2)), leaf(nextState(cells, 2, 2)));
+    }
+
+    private boolean nextState(int cells, int x, int y) {
+        int neighbors = 0;
+        for (int dy = -1; dy <= 1; dy++) {
+            for (int dx = -1; dx <= 1; dx++) {
+                if ((dx != 0 || dy != 0) && ((cells >> ((y + dy) * 4 + x + dx)) & 1) == 1) {
+                    neighbors++;
+                }
+            }
+        }
+        boolean alive = ((cells >> (y * 4 + x)) & 1) == 1;
+        return alive ? rules.isSurvive(neighbors) : rules.isBirth(neighbors);
+    }
+
+    private static Node getLeaf(Node node, int x, int y) {
+        while (node.level > 0) {
+            int half = 1 << (node.level - 1);
+            if (y < half) {
+                node = x < half ? node.nw : node.ne;
+            } else {
+                node = x < half ? node.sw : node.se;
+                y -= half;
+            }
+            if (x >= half) {
+                x -= half;
+            }
+        }
+        return node;
+    }
+
+    private Node set(Node node, long x, long y, boolean alive) {
+        if (node.level == 0) {
+            return leaf(alive);
+        }
+        long half = 1L << (node.level - 1);
+        if (y < half) {
+            if (x < half) {
+                return join(set(node.nw, x, y, alive), node.ne, node.sw, node.se);
+            }
+            return join(node.nw, set(node.ne, x - half, y, alive), node.sw, node.se);
+        }
+        if (x < half) {
+            return join(node.nw, node.ne, set(node.sw, x, y - half, alive), node.se);
+        }
+        return join(node.nw, node.ne, node.sw, set(node.se, x - half, y - half, alive));
+    }
+
+    // Builds the node of the given level whose north west corner is at (x, y) in the universe
+    private Node build(boolean[][] board, int level, long x, long y) {
+        long size = 1L << level;
+        int height = board.length;
+        int width = height == 0 ? 0 : board[0].length;
+        if (x + size <= 0 || y + size <= 0 || x >= width || y >= height) {
+            return empty(level);
+        }
+        if (level == 0) {
+            return leaf(board[(int) y][(int) x]);
+        }
+        long half = size >> 1;
+        return join(build(board, level - 1, x, y), build(board, level - 1, x + half, y),
+                build(board, level - 1, x, y + half), build(board, level - 1, x + half, y + half));
+    }
+
+    Node leaf(boolean alive) {
+        return alive ? aliveLeaf : deadLeaf;
+    }
+
+    Node empty(int level) {
+        while (emptyNodes.size() <= level) {
+            Node smaller = emptyNodes.get(emptyNodes.size() - 1);
+            emptyNodes.add(join(smaller, smaller, smaller, smaller));
+        }
+        return emptyNodes.get(level);
+    }
+
+    /**
+     * Gets the canonical node with the given quadrants, creating it if it doesn't exist yet.
+     */
+    Node join(Node nw, Node ne, Node sw, Node se) {
+        int hash = hash(nw, ne, sw, se);
+        int index = hash & (table.length - 1);
+        for (Node node = table[index]; node != null; node = node.next) {
+            if (node.nw == nw && node.ne == ne && node.sw == sw && node.se == se) {
+                return node;
+            }
+        }
+        Node node = new Node(nw, ne, sw, se, hash);
+        node.next = table[index];
+        table[index] = node;
+        nodeCount++;
+        if (nodeCount > table.length - (table.length >> 2)) {
+            resize(table.length << 1);
+        }
+        return node;
+    }
+
+    private static int hash(Node nw, Node ne, Node sw, Node se) {
+        int hash = nw.hash;
+        hash = hash * 31 + ne.hash;
+        hash = hash * 31 + sw.hash;
+        hash = hash * 31 + se.hash;
+        hash ^= hash >>> 16;
+        hash *= 0x45d9f3b;
+        return hash ^ (hash >>> 16);
+    }
+
+    private void resize(int size) {
+        Node[] old = table;
+        table = new Node[size];
+        for (Node bucket : old) {
+            Node node = bucket;
+            while (node != null) {
+                Node next = node.next;
+                int index = node.hash & (size - 1);
+                node.next = table[index];
+                table[index] = node;
+                node = next;
+            }
+        }
+    }
+
+    /**
+     * Removes every node that is no longer part of the universe from the node table. Memoized results that point at
+     * removed nodes are forgotten so the removed nodes can't come back as duplicates of canonical ones.
+     */
+    void collectGarbage() {
+        mark(root);
+        for (Node empty : emptyNodes) {
+            mark(empty);
+        }
+        Node[] old = table;
+        table = new Node[old.length];
+        nodeCount = 0;
+        for (Node bucket : old) {
+            Node node = bucket;
+            while (node != null) {
+                Node next = node.next;
+                if (node.marked) {
+                    if (node.result != null && !node.result.marked) {
+                        node.result = null;
+                    }
+                    if (node.stepResult != null && !node.stepResult.marked) {
+                        node.stepResult = null;
+                        node.stepLog = -1;
+                    }
+                    int index = node.hash & (table.length - 1);
+                    node.next = table[index];
+                    table[index] = node;
+                    nodeCount++;
+                }
+                node = next;
+            }
+        }
+        for (Node bucket : table) {
+            for (Node node = bucket; node != null; node = node.next) {
+                node.marked = false;
+            }
+        }
+        garbageCollections++;
+    }
+
+    private static void mark(Node node) {
+        if (node.level == 0 || node.marked) {
+            return;
+        }
+        node.marked = true;
+        mark(node.nw);
+        mark(node.ne);
+        mark(node.sw);
+        mark(node.se);
+    }
+
+    /**
+     * A square of the universe 2^level cells wide. Nodes are canonical, so two nodes with the same contents are always
+     * the same object and can be compared by identity.
+     */
+    static final class Node {
+        final int level;
+        final Node nw, ne, sw, se;
+        final long population;
+        final int hash;
+
+        // Next node in the same bucket of the node table
+        Node next;
+        // The center of this node 2^(level - 2) generations later
+        Node result;
+        // The center of this node 2^stepLog generations later, for jumps that are smaller than the full result
+        Node stepResult;
+        int stepLog = -1;
+        boolean marked;
+
+        private Node(boolean alive) {
+            level = 0;
+            nw = ne = sw = se = null;
+            population = alive ? 1 : 0;
+            hash = alive ? 2 : 1;
+        }
+
+        private Node(Node nw, Node ne, Node sw, Node se, int hash) {
+            this.level = nw.level + 1;
+            this.nw = nw;
+            this.ne = ne;
+            this.sw = sw;
+            this.se = se;
+            this.population = nw.population + ne.population + sw.population + se.population;
+            this.hash = hash;
+        }
+    }
+}
@@ -0,0 +1,396 @@
+package conlife;
+
+import conlife.HashLife.Node;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads and writes patterns in the macrocell format, which stores a pattern as a quadtree where every distinct square
+ * is written once and referred to by number wherever it repeats. Patterns with large empty areas or a lot of repeated
+ * structure take a tiny fraction of the space of a grid, and are read straight into the canonical nodes of a
+ * {@link HashLife} universe without ever laying out the grid.
+ * <p>
+ * A file starts with a [M2] line, then # lines giving the rules (#R) and the generation (#G). Each line after that is
+ * one node, numbered from 1. An 8x8 square is written as rows of . and * ended by $, and a bigger square of level k,
+ * 2^k cells wide, as k followed by the numbers of its north west, north east, south west and south east quarters, with
+ * 0 standing for an empty one. The last node is the whole pattern, centered on the origin.
+ */
+public final class Macrocell {
+
+    private static final int LEAF_LEVEL = 3;
+
+    private Macrocell() {
+    }
+
+    /**
+     * Reads a pattern from the given resource or file into a new universe. The resource is first checked for on the
+     * class path and if it is not found there it is treated as a file name.
+     */
+    public static HashLife read(String resourceName) throws IOException, ParseException, Rules.RulesException {
+        try (Reader in = open(resourceName)) {
+            return read(in);
+        }
+    }
+
+    /**
+     * Reads a pattern into a new universe, at the generation the file gives and with its rules, or the default rules
+     * if it doesn't give any.
+     */
+    public static HashLife read(Reader reader) throws IOException, ParseException, Rules.RulesException {
+        BufferedReader in = new BufferedReader(reader);
+        String line = in.readLine();
+        if (line == null || !line.startsWith("[M2]")) {
+            throw new ParseException("Unknown format", 0);
+        }
+        Rules rules = Rules.parseRules(GameState.DEFAULT_RULES_STRING);
+        long generation = 0;
+        HashLife universe = null;
+        // Every node read so far, by number
+        List<Node> nodes = new ArrayList<>();
+        nodes.add(null);
+        for (int lineNumber = 2; (line = in.readLine()) != null; lineNumber++) {
+            if (line.isEmpty()) {
+                continue;
+            }
+            char first = line.charAt(0);
+            if (first == '#') {
+                if (line.startsWith("#R")) {
+                    rules = Rules.parsePatternRules(line.substring(2));
+                    if (rules.isBirth(0)) {
+                        throw new ParseException("Rules with births on zero neighbors can't be run as a quadtree",
+                                lineNumber);
+                    }
+                } else if (line.startsWith("#G")) {
+                    try {
+                        generation = Long.parseLong(line.substring(2).trim());
+                    } catch (NumberFormatException e) {
+                        throw new ParseException("Bad generation " + line.substring(2).trim(), lineNumber);
+                    }
+                }
+                continue;
+            }
+            if (universe == null) {
+                // The rules come before the first node
+                universe = new HashLife(rules);
+            }
+            if (first == '.' || first == '*' || first == '$') {
+                nodes.add(leafNode(universe, parseLeaf(line, lineNumber), LEAF_LEVEL, 0, 0));
+            } else {
+                nodes.add(parseNode(universe, nodes, line, lineNumber));
+            }
+        }
+        if (universe == null) {
+            universe = new HashLife(rules);
+        }
+        if (nodes.size() > 1) {
+            universe.setRoot(nodes.get(nodes.size() - 1), generation);
+        }
+        return universe;
+    }
+
+    // The cells of an 8x8 square, with bit y * 8 + x set for a living cell at (x, y)
+    private static long parseLeaf(String line, int lineNumber) throws ParseException {
+        long bits = 0;
+        int x = 0, y = 0;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '$') {
+                x = 0;
+                y++;
+                continue;
+            }
+            if (x >= 8 || y >= 8) {
+                throw new ParseException("An 8x8 square has cells outside it", lineNumber);
+            }
+            if (c == '*') {
+                bits |= 1L << (y * 8 + x);
+            } else if (c != '.') {
+                throw new ParseException("Unknown cell state " + c, lineNumber);
+            }
+            x++;
+        }
+        return bits;
+    }
+
+    // Builds the canonical node of the given level for the square of the bits whose north west corner is at (x, y)
+    private static Node leafNode(HashLife universe, long bits, int level, int x, int y) {
+        if (level == 0) {
+            return universe.leaf(((bits >>> (y * 8 + x)) & 1L) == 1L);
+        }
+        int half = 1 << (level - 1);
+        return universe.join(leafNode(universe, bits, level - 1, x, y),
+                leafNode(universe, bits, level - 1, x + half, y),
+                leafNode(universe, bits, level - 1, x, y + half),
+                leafNode(universe, bits, level - 1, x + half, y + half));
+    }
+
+    private static Node parseNode(HashLife universe, List<Node> nodes, String line, int lineNumber)
+            throws ParseException {
+        String[] fields = line.trim().split("\\s+");
+        if (fields.length != 5) {
+            throw new ParseException("A node needs a level and four quarters", lineNumber);
+        }
+        int level;
+        Node[] quarters = new Node[4];
+        try {
+            level = Integer.parseInt(fields[0]);
+            if (level <= LEAF_LEVEL || level > 62) {
+                throw new ParseException("Bad node level " + level, lineNumber);
+            }
+            for (int i = 0; i < 4; i++) {
+                int index = Integer.parseInt(fields[i + 1]);
+                if (index < 0 || index >= nodes.size()) {
+                    throw new ParseException("Node " + index + " hasn't been read yet", lineNumber);
+                }
+                quarters[i] = index == 0 ? universe.empty(level - 1) : nodes.get(index);
+                if (quarters[i].level != level - 1) {
+                    throw new ParseException("Node " + index + " is the wrong size to be a quarter", lineNumber);
+                }
+            }
+        } catch (NumberFormatException e) {
+            throw new ParseException("Bad node " + line, lineNumber);
+        }
+        return universe.join(quarters[0], quarters[1], quarters[2], quarters[3]);
+    }
+
+    /**
+     * Writes a universe as a macrocell pattern. Only the distinct nodes of the universe are visited, so a universe
+     * far too big to lay out as a grid can be written.
+     */
+    public static void write(HashLife universe, Writer out) throws IOException {
+        out.write("[M2] (conlife)\n");
+        out.write("#R " + universe.getRules() + "\n");
+        if (universe.getGeneration() != 0) {
+            out.write("#G " + universe.getGeneration() + "\n");
+        }
+        Node root = universe.getRoot();
+        if (root.population == 0) {
+            return;
+        }
+        writeNode(root, new IdentityHashMap<>(), out);
+    }
+
+    // Writes a node after its quarters, unless it has been written already, and gives its number
+    private static int writeNode(Node node, Map<Node, Integer> written, Writer out) throws IOException {
+        if (node.population == 0) {
+            return 0;
+        }
+        Integer number = written.get(node);
+        if (number != null) {
+            return number;
+        }
+        if (node.level == LEAF_LEVEL) {
+            StringBuilder line = new StringBuilder();
+            for (int y = 0; y < 8; y++) {
+                int end = 8;
+                while (end > 0 && !isAlive(node, end - 1, y)) {
+                    end--;
+                }
+                for (int x = 0; x < end; x++) {
+                    line.append(isAlive(node, x, y) ? '*' : '.');
+                }
+                line.append('$');
+            }
+            // Empty rows at the end of the square are left out
+            int length = line.length();
+            while (length > 1 && line.charAt(length - 1) == '$' && line.charAt(length - 2) == '$') {
+                length--;
+            }
+            line.setLength(length);
+            out.write(line.append('\n').toString());
+        } else {
+            int nw = writeNode(node.nw, written, out);
+            int ne = writeNode(node.ne, written, out);
+            int sw = writeNode(node.sw, written, out);
+            int se = writeNode(node.se, written, out);
+            out.write(node.level + " " + nw + " " + ne + " " + sw + " " + se + "\n");
+        }
+        number = written.size() + 1;
+        written.put(node, number);
+        return number;
+    }
+
+    private static boolean isAlive(Node node, int x, int y) {
+        while (node.level > 0) {
+            int half = 1 << (node.level - 1);
+            if (y < half) {
+                node = x < half ? node.nw : node.ne;
+            } else {
+                node = x < half ? node.sw : node.se;
+                y -= half;
+            }
+            if (x >= half) {
+                x -= half;
+            }
+        }
+        return node.population == 1;
+    }
+
+    /**
+     * Loads a macrocell pattern from the given resource or file onto the board of a game, with the origin of the
+     * pattern at the center of the board, the same way Life 1.05 patterns are placed. The cells of the pattern are
+     * added to what is already on the board, and if the pattern can't be loaded the board is left as it was.
+     *
+     * @return The rules in the pattern, which are not applied to the game.
+     * @throws ParseException If the pattern is malformed or doesn't fit on the board.
+     */
+    public static Rules loadInto(GameState game, String resourceName) throws IOException, ParseException,
+            Rules.RulesException {
+        try (Reader in = open(resourceName)) {
+            return loadInto(game, in);
+        }
+    }
+
+    /**
+     * Loads a macrocell pattern from a stream onto the board of a game, like {@link #loadInto(GameState, String)}.
+     */
+    public static Rules loadInto(GameState game, Reader in) throws IOException, ParseException,
+            Rules.RulesException {
+        HashLife universe = read(in);
+        Node root = universe.getRoot();
+        long half = 1L << (root.level - 1);
+        long left = game.getBoardWidth() / 2 - half, top = game.getBoardHeight() / 2 - half;
+        // The whole pattern is checked before any of it is set, so a pattern that doesn't fit leaves the board alone
+        boolean fits = game.getEngine().isBounded()
+                ? fits(root, left, top, 0, 0, game.getBoardWidth(), game.getBoardHeight())
+                : fits(root, left, top, Integer.MIN_VALUE, Integer.MIN_VALUE, 1L + Integer.MAX_VALUE,
+                1L + Integer.MAX_VALUE);
+        if (!fits) {
+            throw new ParseException("The pattern doesn't fit on the board", 0);
+        }
+        try (GameState.CellBatch batch = game.beginBatch()) {
+            setLivingCells(root, left, top, batch);
+        }
+        return universe.getRules();
+    }
+
+    // Whether every living cell of a node whose north west corner is at (x, y) is inside [minX, maxX) by [minY, maxY)
+    private static boolean fits(Node node, long x, long y, long minX, long minY, long maxX, long maxY) {
+        long size = 1L << node.level;
+        if (node.population == 0 || (x >= minX && y >= minY && x + size <= maxX && y + size <= maxY)) {
+            return true;
+        }
+        if (node.level == 0) {
+            return false;
+        }
+        long half = size >> 1;
+        return fits(node.nw, x, y, minX, minY, maxX, maxY) && fits(node.ne, x + half, y, minX, minY, maxX, maxY)
+                && fits(node.sw, x, y + half, minX, minY, maxX, maxY)
+                && fits(node.se, x + half, y + half, minX, minY, maxX, maxY);
+    }
+
+    // Sets the living cells of a node whose north west corner is at (x, y) on the board, skipping empty quarters
+    private static void setLivingCells(Node node, long x, long y, GameState.CellBatch batch) {
+        if (node.population == 0) {
+            return;
+        }
+        if (node.level == 0) {
+            batch.setAlive((int) x, (int) y, true);
+            return;
+        }
+        long half = 1L << (node.level - 1);
+        setLivingCells(node.nw, x, y, batch);
+        setLivingCells(node.ne, x + half, y, batch);
+        setLivingCells(node.sw, x, y + half, batch);
+        setLivingCells(node.se, x + half, y + half, batch);
+    }
+
+    /**
+     * Writes a generation of a game as a macrocell pattern, with the center of the board at the origin, so loading it
+     * onto a board of the same size puts every cell back where it was.
+     */
+    public static void write(Generation generation, Rules rules, Writer out) throws IOException {
+        write(fromGeneration(rules, generation), out);
+    }
+
+    /**
+     * Builds a universe holding a generation of a game, with the center of the board at the origin and the step of
+     * the generation as its generation. The squares of the board are read eight rows at a time straight from the
+     * words of the generation, and squares whose rows are all empty aren't read at all.
+     */
+    static HashLife fromGeneration(Rules rules, Generation generation) {
+        HashLife universe = new HashLife(rules);
+        int width = generation.getWidth(), height = generation.getHeight();
+        int level = LEAF_LEVEL;
+        while ((1L << (level - 1)) < Math.max(width - width / 2, height - height / 2)) {
+            level++;
+        }
+        // How many rows above each row have living cells
+        int[] livingRowsAbove = new int[height + 1];
+        for (int y = 0; y < height; y++) {
+            boolean living = false;
+            for (int w = 0; w < generation.getWordsPerRow() && !living; w++) {
+                living = generation.getWord(y, w) != 0;
+            }
+            livingRowsAbove[y + 1] = livingRowsAbove[y] + (living ? 1 : 0);
+        }
+        long half = 1L << (level - 1);
+        universe.setRoot(build(universe, generation, livingRowsAbove, level, width / 2 - half, height / 2 - half),
+                generation.getStep());
+        return universe;
+    }
+
+    // Builds the node of the given level whose north west corner is at (x, y) on the board
+    private static Node build(HashLife universe, Generation generation, int[] livingRowsAbove, int level, long x,
+                              long y) {
+        long size = 1L << level;
+        if (x + size <= 0 || y + size <= 0 || x >= generation.getWidth() || y >= generation.getHeight()
+                || livingRowsAbove[(int) Math.min(y + size, generation.getHeight())]
+                == livingRowsAbove[(int) Math.max(y, 0)]) {
+            return universe.empty(level);
+        }
+        if (level == LEAF_LEVEL) {
+            long bits = 0;
+            for (int row = 0; row < 8; row++) {
+                bits |= (long) eightCells(generation, x, y + row) << (row * 8);
+            }
+            return bits == 0 ? universe.empty(level) : leafNode(universe, bits, level, 0, 0);
+        }
+        long half = size >> 1;
+        Node nw = build(universe, generation, livingRowsAbove, level - 1, x, y);
+        Node ne = build(universe, generation, livingRowsAbove, level - 1, x + half, y);
+        Node sw = build(universe, generation, livingRowsAbove, level - 1, x, y + half);
+        Node se = build(universe, generation, livingRowsAbove, level - 1, x + half, y + half);
+        if (nw.population + ne.population + sw.population + se.population == 0) {
+            return universe.empty(level);
+        }
+        return universe.join(nw, ne, sw, se);
+    }
+
+    // The cells in columns x to x + 7 of a row as the bits of a byte, with the columns off the board dead. The bits past
+    // the end of a row are always clear, so only the words a row has need to be checked.
+    private static int eightCells(Generation generation, long x, long y) {
+        if (y < 0 || y >= generation.getHeight()) {
+            return 0;
+        }
+        if (x < 0) {
+            return (int) (generation.getWord((int) y, 0) << -x) & 0xff;
+        }
+        int word = (int) (x >>> 6), offset = (int) (x & 63);
+        long cells = generation.getWord((int) y, word) >>> offset;
+        if (offset > 56 && word + 1 < generation.getWordsPerRow()) {
+            cells |= generation.getWord((int) y, word + 1) << (64 - offset);
+        }
+        return (int) cells & 0xff;
+    }
+
+    private static Reader open(String resourceName) throws IOException {
+        InputStream is = Macrocell.class.getResourceAsStream(resourceName);
+        if (is == null) {
+            is = new FileInputStream(resourceName);
+        }
+        return new InputStreamReader(is, StandardCharsets.ISO_8859_1);
+    }
+}
@@ -0,0 +1,27 @@
+package conlife;
+
+/**
+ * A {@link BoardEngine} that computes each row of the next generation from the current generation of the rows around
+ * it, so bands of rows can be computed by different threads at the same time. A step is split into
+ * {@link #beginStep(Rules)}, any number of calls to {@link #stepRows(int, int)} that together cover every row once,
+ * and {@link #endStep()}.
+ */
+interface RowEngine extends BoardEngine {
+
+    int getRowCount();
+
+    /**
+     * Gets ready to compute the next generation with the given rules. Called before any rows are stepped.
+     */
+    void beginStep(Rules rules);
+
+    /**
+     * Computes the next generation of the rows in [from, to). Bands that don't overlap can be computed concurrently.
+     */
+    void stepRows(int from, int to);
+
+    /**
+     * Makes the generation computed by {@link #stepRows(int, int)} the current one.
+     */
+    void endStep();
+}
@@ -0,0 +1,331 @@
+package conlife;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Turns a set of {@link Rules} into tables and circuits for the board engines to step with:
+ * <ul>
+ * <li>a lookup table of the next state of every 3x3 neighborhood, for byte boards.</li>
+ * <li>a table of the {@link Rules.Rule} for every state and neighbor count, for the cell engine.</li>
+ * <li>a boolean circuit over the bits of the neighbor counts, for bit-packed boards. Conway's rules get a kernel
+ * written by hand. Other rules are minimized to a sum of up to three products, which is run by a straight-line kernel
+ * for that many terms with the inputs of each term picked out by masks. That takes more operations than a kernel
+ * written for the rule, but fewer than a selection over every neighbor count, which is what the rules with more terms
+ * and the vector kernel use.</li>
+ * </ul>
+ */
+final class RuleCompiler {
+
+    // Neighbor counts only go up to 8, so the bit patterns for 9 through 15 can be whatever makes the circuit smaller
+    private static final int MAX_COUNT = 8;
+    // Inputs of the circuit, which are also their bits in the masks of a term
+    private static final int ALIVE = 0, ONES = 1, TWOS = 2, FOURS = 3, EIGHTS = 4;
+    private static final int INPUTS = 5;
+    // A term takes about as many operations as a third of the selection over every neighbor count
+    private static final int MAX_TERMS = 3;
+
+    private static final Map<Integer, Circuit> circuits = new ConcurrentHashMap<>();
+
+    private RuleCompiler() {
+    }
+
+    /**
+     * Computes the next state of 64 cells at once, given their current state and the bits of their living neighbor
+     * counts.
+     */
+    interface Circuit {
+        long next(long alive, long ones, long twos, long fours, long eights);
+    }
+
+    /**
+     * Builds the next state of a cell for every 3x3 neighborhood. The neighborhood is indexed by three columns of three
+     * bits each, west in the high bits and east in the low bits, with the north cell of a column in its lowest bit. The
+     * cell itself is bit 4.
+     */
+    static byte[] compileNeighborhoodTable(Rules rules) {
+        byte[] table = new byte[512];
+        for (int neighborhood = 0; neighborhood < 512; neighborhood++) {
+            boolean alive = (neighborhood & 0x10) != 0;
+            int neighbors = Integer.bitCount(neighborhood & ~0x10);
+            boolean next = alive ? rules.isSurvive(neighbors) : rules.isBirth(neighbors);
+            table[neighborhood] = (byte) (next ? 1 : 0);
+        }
+        return table;
+    }
+
+    /**
+     * Builds the rule for every neighbor count of a dead cell, followed by those of a living one.
+     */
+    static Rules.Rule[] compileRuleTable(Rules rules) {
+        Rules.Rule[] table = new Rules.Rule[2 * (MAX_COUNT + 1)];
+        for (int count = 0; count <= MAX_COUNT; count++) {
+            table[count] = rules.isBirth(count) ? Rules.Rule.BIRTH : Rules.Rule.DEAD_NO_BIRTH;
+            table[MAX_COUNT + 1 + count] = rules.isSurvive(count) ? Rules.Rule.SURVIVE : Rules.Rule.DEATH;
+        }
+        return table;
+    }
+
+    /**
+     * Gets the circuit for the given rules, generating it the first time those rules are seen.
+     */
+    static Circuit compileCircuit(Rules rules) {
+        int key = (rules.birth << 16) | rules.survive;
+        Circuit circuit = circuits.get(key);
+        if (circuit == null) {
+            circuit = generateCircuit(rules);
+            circuits.put(key, circuit);
+        }
+        return circuit;
+    }
+
+    private static Circuit generateCircuit(Rules rules) {
+        if (rules.birth == LifeCircuit.BIRTH && rules.survive == LifeCircuit.SURVIVE) {
+            return new LifeCircuit();
+        }
+        List<int[]> terms = minimize(rules);
+        return terms.size() <= MAX_TERMS ? TermCircuit.of(terms) : new MaskCircuit(rules);
+    }
+
+    /**
+     * Finds a small sum of products for the next state of a cell in terms of its state and the bits of its neighbor
+     * count, using Quine-McCluskey with the impossible counts as don't cares.
+     *
+     * @return the terms, each as a pair of bitmasks of the inputs that must be set and the inputs that must be clear.
+     */
+    static List<int[]> minimize(Rules rules) {
+        boolean[] onSet = new boolean[1 << INPUTS];
+        boolean[] careSet = new boolean[1 << INPUTS];
+        for (int count = 0; count <= MAX_COUNT; count++) {
+            int dead = count << 1;
+            int alive = dead | 1;
+            careSet[dead] = careSet[alive] = true;
+            onSet[dead] = rules.isBirth(count);
+            onSet[alive] = rules.isSurvive(count);
+        }
+
+        // Implicants are {value, mask of inputs that don't matter}, merged until no pair differs by only one input
+        List<int[]> implicants = new ArrayList<>();
+        for (int input = 0; input < 1 << INPUTS; input++) {
+            if (onSet[input] || !careSet[input]) {
+                implicants.add(new int[]{input, 0});
+            }
+        }
+        List<int[]> primes = new ArrayList<>();
+        while (!implicants.isEmpty()) {
+            List<int[]> merged = new ArrayList<>();
+            boolean[] used = new boolean[implicants.size()];
+            for (int i = 0; i < implicants.size(); i++) {
+                for (int j = i + 1; j < implicants.size(); j++) {
+                    int[] a = implicants.get(i), b = implicants.get(j);
+                    int difference = a[0] ^ b[0];
+                    if (a[1] == b[1] && Integer.bitCount(difference) == 1) {
+                        used[i] = used[j] = true;
+                        int[] combined = {a[0] & ~difference, a[1] | difference};
+                        if (!containsImplicant(merged, combined)) {
+                            merged.add(combined);
+                        }
+                    }
+                }
+            }
+            for (int i = 0; i < implicants.size(); i++) {
+                if (!used[i] && !containsImplicant(primes, implicants.get(i))) {
+                    primes.add(implicants.get(i));
+                }
+            }
+            implicants = merged;
+        }
+
+        // Greedily cover the inputs that have to be true, preferring implicants that cover more and use fewer inputs
+        List<int[]> terms = new ArrayList<>();
+        boolean[] covered = new boolean[1 << INPUTS];
+        while (true) {
+            int[] best = null;
+            int bestCovered = 0;
+            for (int[] prime : primes) {
+                int count = 0;
+                for (int input = 0; input < 1 << INPUTS; input++) {
+                    if (onSet[input] && !covered[input] && (input & ~prime[1]) == prime[0]) {
+                        count++;
+                    }
+                }
+                if (count > bestCovered || (count == bestCovered && count > 0
+                        && Integer.bitCount(prime[1]) > Integer.bitCount(best[1]))) {
+                    best = prime;
+                    bestCovered = count;
+                }
+            }
+            if (best == null) {
+                break;
+            }
+            for (int input = 0; input < 1 << INPUTS; input++) {
+                if ((input & ~best[1]) == best[0]) {
+                    covered[input] = true;
+                }
+            }
+            int relevant = ((1 << INPUTS) - 1) & ~best[1];
+            terms.add(new int[]{best[0] & relevant, ~best[0] & relevant});
+        }
+        return terms;
+    }
+
+    private static boolean containsImplicant(List<int[]> implicants, int[] implicant) {
+        for (int[] other : implicants) {
+            if (other[0] == implicant[0] && other[1] == implicant[1]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Evaluates terms from {@link #minimize(Rules)} one input at a time. Only used to check the circuits.
+     */
+    static boolean evaluate(List<int[]> terms, boolean alive, int count) {
+        int input = (count << 1) | (alive ? 1 : 0);
+        for (int[] term : terms) {
+            if ((input & term[0]) == term[0] && (input & term[1]) == 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Conway's rules, B3/S23, written out by hand. A cell is alive next with three neighbors, or with two if it's alive
+     * now, and the fours bit rules out six and seven.
+     */
+    static final class LifeCircuit implements Circuit {
+        static final int BIRTH = 1 << 3, SURVIVE = 1 << 2 | 1 << 3;
+
+        @Override
+        public long next(long alive, long ones, long twos, long fours, long eights) {
+            return twos & (ones | alive) & ~fours;
+        }
+    }
+
+    /**
+     * A sum of products from {@link #minimize(Rules)} applied to 64 cells at once, written out for each number of
+     * terms so there is no loop over them.
+     */
+    abstract static class TermCircuit implements Circuit {
+        // Only a count of twelve or more neighbors has both of these bits set, so a term needing them is never true
+        private static final int[] NEVER = {1 << FOURS | 1 << EIGHTS, 0};
+
+        static TermCircuit of(List<int[]> terms) {
+            switch (terms.size()) {
+                case 0:
+                    return new OneTerm(new Term(NEVER));
+                case 1:
+                    return new OneTerm(new Term(terms.get(0)));
+                case 2:
+                    return new TwoTerms(new Term(terms.get(0)), new Term(terms.get(1)));
+                case 3:
+                    return new ThreeTerms(new Term(terms.get(0)), new Term(terms.get(1)), new Term(terms.get(2)));
+                default:
+                    throw new IllegalArgumentException("Too many terms: " + terms.size());
+            }
+        }
+    }
+
+    private static final class OneTerm extends TermCircuit {
+        private final Term first;
+
+        OneTerm(Term first) {
+            this.first = first;
+        }
+
+        @Override
+        public long next(long alive, long ones, long twos, long fours, long eights) {
+            return first.of(alive, ones, twos, fours, eights);
+        }
+    }
+
+    private static final class TwoTerms extends TermCircuit {
+        private final Term first, second;
+
+        TwoTerms(Term first, Term second) {
+            this.first = first;
+            this.second = second;
+        }
+
+        @Override
+        public long next(long alive, long ones, long twos, long fours, long eights) {
+            return first.of(alive, ones, twos, fours, eights) | second.of(alive, ones, twos, fours, eights);
+        }
+    }
+
+    private static final class ThreeTerms extends TermCircuit {
+        private final Term first, second, third;
+
+        ThreeTerms(Term first, Term second, Term third) {
+            this.first = first;
+            this.second = second;
+            this.third = third;
+        }
+
+        @Override
+        public long next(long alive, long ones, long twos, long fours, long eights) {
+            return first.of(alive, ones, twos, fours, eights) | second.of(alive, ones, twos, fours, eights)
+                    | third.of(alive, ones, twos, fours, eights);
+        }
+    }
+
+    /**
+     * One product of a sum of products. Each input has a mask that flips it if the term needs it clear and one that
+     * ignores it if the term doesn't care about it.
+     */
+    private static final class Term {
+        private final long flipAlive, flipOnes, flipTwos, flipFours, flipEights;
+        private final long ignoreAlive, ignoreOnes, ignoreTwos, ignoreFours, ignoreEights;
+
+        Term(int[] term) {
+            flipAlive = flip(term, ALIVE);
+            flipOnes = flip(term, ONES);
+            flipTwos = flip(term, TWOS);
+            flipFours = flip(term, FOURS);
+            flipEights = flip(term, EIGHTS);
+            ignoreAlive = ignore(term, ALIVE);
+            ignoreOnes = ignore(term, ONES);
+            ignoreTwos = ignore(term, TWOS);
+            ignoreFours = ignore(term, FOURS);
+            ignoreEights = ignore(term, EIGHTS);
+        }
+
+        private static long flip(int[] term, int input) {
+            return (term[1] & (1 << input)) != 0 ? -1L : 0L;
+        }
+
+        private static long ignore(int[] term, int input) {
+            return ((term[0] | term[1]) & (1 << input)) != 0 ? 0L : -1L;
+        }
+
+        long of(long alive, long ones, long twos, long fours, long eights) {
+            return ((alive ^ flipAlive) | ignoreAlive)
+                    & ((ones ^ flipOnes) | ignoreOnes)
+                    & ((twos ^ flipTwos) | ignoreTwos)
+                    & ((fours ^ flipFours) | ignoreFours)
+                    & ((eights ^ flipEights) | ignoreEights);
+        }
+    }
+
+    /**
+     * Selects the next state from the rule masks of every neighbor count, for rules whose sum of products has too many
+     * terms to be any quicker.
+     */
+    static final class MaskCircuit implements Circuit {
+        private final long[] birth, survive;
+
+        MaskCircuit(Rules rules) {
+            birth = BitBoardEngine.ruleMasks(rules.birth);
+            survive = BitBoardEngine.ruleMasks(rules.survive);
+        }
+
+        @Override
+        public long next(long alive, long ones, long twos, long fours, long eights) {
+            return BitBoardEngine.applyRules(alive, ones, twos, fours, eights, birth, survive);
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package conlife;
 
 import java.text.ParseException;
+import java.util.Locale;
 
 /**
  * A enum that can assist in processing a cell's next state.
@@ -42,8 +43,51 @@ public class Rules {
         return new Rules(birth, survive);
     }
 
+    /**
+     * Reads rules the way pattern files write them: as B3/S23, or as 23/3 with the survival counts first, in either
+     * case. Anything after a colon describes the shape of the board, which is up to the game, and is left out.
+     */
+    public static Rules parsePatternRules(String rulesString) throws ParseException, RulesException {
+        String upper = rulesString.trim().toUpperCase(Locale.ROOT);
+        int colon = upper.indexOf(':');
+        if (colon >= 0) {
+            upper = upper.substring(0, colon);
+        }
+        int slash = upper.indexOf('/');
+        if (slash < 0) {
+            throw new ParseException("Unknown rules " + rulesString, -1);
+        }
+        if (upper.startsWith("B")) {
+            return parseRules(upper);
+        }
+        return parseRules("B" + upper.substring(slash + 1) + "/S" + upper.substring(0, slash));
+    }
+
+    /**
+     * Makes rules from bitmasks of the neighbor counts for birth and survival, such as the ones stored in a
+     * {@link Checkpoint}.
+     */
+    static Rules fromMasks(int birth, int survive) throws RulesException {
+        if ((birth | survive) >>> 9 != 0) {
+            throw new RulesException();
+        }
+        return new Rules(countsIn(birth), countsIn(survive));
+    }
+
+    private static int[] countsIn(int mask) {
+        int[] counts = new int[Integer.bitCount(mask)];
+        for (int count = 0, i = 0; count <= 8; count++) {
+            if (isBitEnabled(mask, count)) {
+                counts[i++] = count;
+            }
+        }
+        return counts;
+    }
+
     int birth;
     int survive;
+    // The rule for every neighbor count of a dead cell, then of a living one
+    private final Rule[] ruleTable;
 
     private Rules(int[] birth, int[] survive) throws RulesException {
         this.birth = 0;
@@ -64,18 +108,11 @@ public class Rules {
             int s = 1 << survive[i];
             this.survive = this.survive | s;
         }
+        ruleTable = RuleCompiler.compileRuleTable(this);
     }
 
     public Rule getRule(boolean alive, int numNeighbors) {
-        if (!alive && isBirth(numNeighbors)) {
-            return Rule.BIRTH;
-        } else if (alive && isSurvive(numNeighbors)) {
-            return Rule.SURVIVE;
-        } else if (alive){
-            return Rule.DEATH;
-        } else {
-            return Rule.DEAD_NO_BIRTH;
-        }
+        return ruleTable[alive ? 9 + numNeighbors : numNeighbors];
     }
 
     boolean isBirth(int numNeighbors) {
@@ -86,6 +123,26 @@ public class Rules {
         return isBitEnabled(survive, numNeighbors);
     }
 
+    /**
+     * The rules in the same form {@link #parseRules(String)} reads, such as B3/S23.
+     */
+    @Override
+    public String toString() {
+        StringBuilder b = new StringBuilder("B");
+        for (int count = 0; count <= 8; count++) {
+            if (isBirth(count)) {
+                b.append(count);
+            }
+        }
+        b.append("/S");
+        for (int count = 0; count <= 8; count++) {
+            if (isSurvive(count)) {
+                b.append(count);
+            }
+        }
+        return b.toString();
+    }
+
     public static class RulesException extends Exception {
         RulesException() {
             super();
@@ -0,0 +1,317 @@
+package conlife;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An unbounded board that only stores the parts of the plane that have living cells. The plane is split into tiles of
+ * 64x64 cells, one long per tile row, which are kept in a hash map keyed by tile coordinate. Tiles are created when
+ * cells could be born in them and are freed once they are empty and nothing next to them is alive, so memory follows
+ * the live area rather than the size of the board. Each step only computes the tiles that changed in the previous
+ * step and the tiles around them, so still lifes and empty space cost nothing and stepping time follows activity
+ * rather than population.
+ */
+class SparseEngine implements BoardEngine {
+
+    static final int TILE_SIZE = 64;
+    private static final int TILE_SHIFT = 6;
+    private static final int TILE_MASK = TILE_SIZE - 1;
+
+    private final Map<Long, Tile> tiles = new HashMap<>();
+    // Tiles that changed during the last step, and tiles that were edited since then
+    private final List<Tile> changedTiles = new ArrayList<>();
+    private final List<Tile> editedTiles = new ArrayList<>();
+    private int stepCount = 0;
+    private int lastActiveTileCount = 0;
+
+    private static long key(int tileX, int tileY) {
+        return ((long) tileY << 32) | (tileX & 0xffffffffL);
+    }
+
+    private Tile getTile(int tileX, int tileY) {
+        return tiles.get(key(tileX, tileY));
+    }
+
+    private Tile getOrCreateTile(int tileX, int tileY) {
+        long key = key(tileX, tileY);
+        Tile tile = tiles.get(key);
+        if (tile == null) {
+            tile = new Tile(tileX, tileY);
+            tiles.put(key, tile);
+        }
+        return tile;
+    }
+
+    /**
+     * The number of tiles currently allocated.
+     */
+    int getTileCount() {
+        return tiles.size();
+    }
+
+    /**
+     * The number of tiles that were computed during the last step. Tiles away from any change are skipped.
+     */
+    int getLastActiveTileCount() {
+        return lastActiveTileCount;
+    }
+
+    long getPopulation() {
+        long population = 0;
+        for (Tile tile : tiles.values()) {
+            for (long row : tile.cells) {
+                population += Long.bitCount(row);
+            }
+        }
+        return population;
+    }
+
+    @Override
+    public boolean isAlive(int x, int y) {
+        Tile tile = getTile(x >> TILE_SHIFT, y >> TILE_SHIFT);
+        return tile != null && ((tile.cells[y & TILE_MASK] >>> (x & TILE_MASK)) & 1L) == 1L;
+    }
+
+    @Override
+    public void setAlive(int x, int y, boolean alive) {
+        long bit = 1L << (x & TILE_MASK);
+        int row = y & TILE_MASK;
+        // The edit is mirrored into the previous generation so it isn't reported as a change made by the last step
+        if (alive) {
+            Tile tile = getOrCreateTile(x >> TILE_SHIFT, y >> TILE_SHIFT);
+            tile.cells[row] |= bit;
+            tile.previous[row] |= bit;
+            markEdited(tile);
+        } else {
+            Tile tile = getTile(x >> TILE_SHIFT, y >> TILE_SHIFT);
+            if (tile != null) {
+                tile.cells[row] &= ~bit;
+                tile.previous[row] &= ~bit;
+                markEdited(tile);
+            }
+        }
+    }
+
+    private void markEdited(Tile tile) {
+        if (!tile.edited) {
+            tile.edited = true;
+            editedTiles.add(tile);
+        }
+    }
+
+    @Override
+    public void step(Rules rules) {
+        if (rules.isBirth(0)) {
+            throw new IllegalArgumentException("Rules with births on zero neighbors would fill an unbounded board");
+        }
+        final RuleCompiler.Circuit circuit = RuleCompiler.compileCircuit(rules);
+        stepCount++;
+
+        // Only tiles next to a change can change themselves, everything else would come out the same as it is now.
+        // Tiles that cells could be born into are created on the way.
+        List<Tile> stepping = new ArrayList<>();
+        addActiveTiles(changedTiles, stepping);
+        addActiveTiles(editedTiles, stepping);
+        for (Tile tile : editedTiles) {
+            tile.edited = false;
+        }
+        editedTiles.clear();
+
+        for (Tile tile : stepping) {
+            stepTile(tile, circuit);
+        }
+
+        changedTiles.clear();
+        for (Tile tile : stepping) {
+            long[] previous = tile.cells;
+            tile.cells = tile.next;
+            tile.next = tile.previous;
+            tile.previous = previous;
+            if (tile.changed) {
+                changedTiles.add(tile);
+            } else if (isEmpty(tile.cells) && !isBorderingLife(tile)) {
+                tiles.remove(key(tile.x, tile.y));
+            }
+        }
+        lastActiveTileCount = stepping.size();
+    }
+
+    private void addActiveTiles(List<Tile> sources, List<Tile> active) {
+        for (Tile tile : sources) {
+            for (int dy = -1; dy <= 1; dy++) {
+                for (int dx = -1; dx <= 1; dx++) {
+                    Tile neighbor = getTile(tile.x + dx, tile.y + dy);
+                    if (neighbor == null) {
+                        if (!hasLifeOnBorder(tile, dx, dy)) {
+                            continue;
+                        }
+                        neighbor = getOrCreateTile(tile.x + dx, tile.y + dy);
+                    }
+                    if (neighbor.stepStamp != stepCount) {
+                        neighbor.stepStamp = stepCount;
+                        active.add(neighbor);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Whether the tile has living cells along the side or corner that faces the given direction, which means cells
+     * could be born in the tile over there.
+     */
+    private static boolean hasLifeOnBorder(Tile tile, int dx, int dy) {
+        long[] cells = tile.cells;
+        long rows;
+        if (dy < 0) {
+            rows = cells[0];
+        } else if (dy > 0) {
+            rows = cells[TILE_MASK];
+        } else {
+            rows = 0;
+            for (long row : cells) {
+                rows |= row;
+            }
+        }
+        if (dx < 0) {
+            return (rows & 1L) != 0;
+        } else if (dx > 0) {
+            return (rows >>> TILE_MASK) != 0;
+        }
+        return rows != 0;
+    }
+
+    private boolean isBorderingLife(Tile tile) {
+        for (int dy = -1; dy <= 1; dy++) {
+            for (int dx = -1; dx <= 1; dx++) {
+                Tile neighbor = getTile(tile.x + dx, tile.y + dy);
+                if (neighbor != null && neighbor != tile && hasLifeOnBorder(neighbor, -dx, -dy)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private void stepTile(Tile tile, RuleCompiler.Circuit circuit) {
+        long[] cells = tile.cells;
+        long[] north = rows(getTile(tile.x, tile.y - 1));
+        long[] south = rows(getTile(tile.x, tile.y + 1));
+        long[] west = rows(getTile(tile.x - 1, tile.y));
+        long[] east = rows(getTile(tile.x + 1, tile.y));
+        long northWest = rows(getTile(tile.x - 1, tile.y - 1))[TILE_MASK];
+        long northEast = rows(getTile(tile.x + 1, tile.y - 1))[TILE_MASK];
+        long southWest = rows(getTile(tile.x - 1, tile.y + 1))[0];
+        long southEast = rows(getTile(tile.x + 1, tile.y + 1))[0];
+
+        long differences = 0;
+        for (int row = 0; row < TILE_SIZE; row++) {
+            long up, upWest, upEast, down, downWest, downEast;
+            if (row == 0) {
+                up = north[TILE_MASK];
+                upWest = northWest;
+                upEast = northEast;
+            } else {
+                up = cells[row - 1];
+                upWest = west[row - 1];
+                upEast = east[row - 1];
+            }
+            if (row == TILE_MASK) {
+                down = south[0];
+                downWest = southWest;
+                downEast = southEast;
+            } else {
+                down = cells[row + 1];
+                downWest = west[row + 1];
+                downEast = east[row + 1];
+            }
+            long mid = cells[row], midWest = west[row], midEast = east[row];
+            long next;
+            if ((up | mid | down | ((upWest | midWest | downWest) >>> 63) | ((upEast | midEast | downEast) & 1L)) == 0) {
+                next = 0;
+            } else {
+                next = BitBoardEngine.nextWord(mid,
+                        (up << 1) | (upWest >>> 63), up, (up >>> 1) | (upEast << 63),
+                        (mid << 1) | (midWest >>> 63), (mid >>> 1) | (midEast << 63),
+                        (down << 1) | (downWest >>> 63), down, (down >>> 1) | (downEast << 63),
+                        circuit);
+            }
+            tile.next[row] = next;
+            differences |= next ^ mid;
+        }
+        tile.changed = differences != 0;
+    }
+
+    private static final long[] EMPTY_ROWS = new long[TILE_SIZE];
+
+    private static long[] rows(Tile tile) {
+        return tile == null ? EMPTY_ROWS : tile.cells;
+    }
+
+    private static boolean isEmpty(long[] rows) {
+        for (long row : rows) {
+            if (row != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Visits every living cell on the plane, reporting each one as alive.
+     */
+    void forEachLivingCell(ChangeVisitor visitor) {
+        for (Tile tile : tiles.values()) {
+            int originX = tile.x << TILE_SHIFT;
+            int originY = tile.y << TILE_SHIFT;
+            for (int row = 0; row < TILE_SIZE; row++) {
+                long word = tile.cells[row];
+                while (word != 0) {
+                    visitor.visit(originX + Long.numberOfTrailingZeros(word), originY + row, true);
+                    word &= word - 1;
+                }
+            }
+        }
+    }
+
+    @Override
+    public void forEachChangedCell(ChangeVisitor visitor) {
+        for (Tile tile : changedTiles) {
+            int originX = tile.x << TILE_SHIFT;
+            int originY = tile.y << TILE_SHIFT;
+            for (int row = 0; row < TILE_SIZE; row++) {
+                long word = tile.cells[row];
+                long changed = word ^ tile.previous[row];
+                while (changed != 0) {
+                    int bit = Long.numberOfTrailingZeros(changed);
+                    visitor.visit(originX + bit, originY + row, ((word >>> bit) & 1L) == 1L);
+                    changed &= changed - 1;
+                }
+            }
+        }
+    }
+
+    /**
+     * A 64x64 square of the plane. Bit x of cells[y] is the cell at (x, y) within the tile.
+     */
+    private static final class Tile {
+        final int x, y;
+        long[] cells = new long[TILE_SIZE];
+        // The generation before cells, used to report changes
+        long[] previous = new long[TILE_SIZE];
+        // Scratch space the next generation is computed into
+        long[] next = new long[TILE_SIZE];
+        // Whether the last step changed any cell in this tile
+        boolean changed;
+        boolean edited;
+        // The step this tile was last queued for, so it's only computed once
+        int stepStamp;
+
+        Tile(int x, int y) {
+            this.x = x;
+            this.y = y;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package conlife;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+
+/**
+ * The one pool of threads that steps every game in the process. Games don't own any threads, they hand the parts of
+ * each step to this pool, so the number of threads doesn't grow with the number of games. There is one thread per
+ * core unless the conlife.workers system property says otherwise. The threads are daemons and are created as they
+ * are needed, so a process that never steps a game on more than one thread never starts any.
+ */
+final class StepPool {
+
+    private static final ForkJoinPool POOL = new ForkJoinPool(
+            Math.max(1, Integer.getInteger("conlife.workers", Runtime.getRuntime().availableProcessors())),
+            pool -> {
+                ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                thread.setName("game-logic-thread-" + thread.getPoolIndex());
+                thread.setDaemon(true);
+                return thread;
+            }, null, false);
+
+    private StepPool() {
+    }
+
+    static ForkJoinPool get() {
+        return POOL;
+    }
+}
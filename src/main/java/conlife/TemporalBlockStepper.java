@@ -0,0 +1,109 @@
+package conlife;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Steps a {@link DenseEngine} several generations at a time. The board is cut into bands of rows, and each band is
+ * advanced on its own through a whole block of generations, starting from a copy padded with as many extra rows above
+ * and below as there are generations in the block. The workers only have to wait for each other once per block
+ * instead of once per generation, at the cost of computing the padding rows more than once, and a band small enough to
+ * stay in the cache is swept over and over without going back to memory.
+ */
+class TemporalBlockStepper {
+
+    // The board is split into at least this many bands per worker, so one slow band doesn't hold the others up for long
+    private static final int BANDS_PER_WORKER = 2;
+    // Bands are kept small enough that the two generations of one fit in a typical L2 cache
+    private static final int BAND_BYTES = 256 * 1024;
+    /**
+     * The most generations a block defaults to. The padding grows with the depth of a block, so deeper blocks stop
+     * paying off long before this on all but the tallest bands.
+     */
+    static final int MAX_DEFAULT_DEPTH = 32;
+
+    private final DenseEngine engine;
+    // Null when the bands are all computed on the calling thread
+    private final ForkJoinPool pool;
+    private final int bandRows;
+    // The work buffers of each band, kept from one block to the next
+    private byte[][] bandBuffers = new byte[0][];
+
+    TemporalBlockStepper(DenseEngine engine, ForkJoinPool pool) {
+        this.engine = engine;
+        this.pool = pool;
+        int rows = engine.getRowCount();
+        int workers = pool == null ? 1 : pool.getParallelism();
+        int perWorker = (rows + workers * BANDS_PER_WORKER - 1) / (workers * BANDS_PER_WORKER);
+        int fitInCache = BAND_BYTES / (2 * (engine.getWidth() + 2));
+        bandRows = Math.max(1, Math.min(perWorker, fitInCache));
+    }
+
+    /**
+     * How many generations to compute per block unless told otherwise. The padding computed on top of each band is
+     * kept to about a sixteenth of the band. Without other workers to wait for there is nothing to save, so the default
+     * is then a generation at a time.
+     */
+    int getDefaultDepth() {
+        if (pool == null) {
+            return 1;
+        }
+        return Math.max(1, Math.min(MAX_DEFAULT_DEPTH, bandRows / 16));
+    }
+
+    /**
+     * Advances the board the given number of generations, in blocks of at most depth generations.
+     */
+    void step(Rules rules, int generations, int depth) {
+        if (depth < 1) {
+            throw new IllegalArgumentException("Blocks need at least one generation");
+        }
+        engine.beginBlock(rules);
+        int rows = engine.getRowCount();
+        int bands = (rows + bandRows - 1) / bandRows;
+        int bufferSize = (bandRows + 2 * Math.min(depth, generations)) * (engine.getWidth() + 2);
+        if (bandBuffers.length != bands * 2 || bandBuffers[0].length < bufferSize) {
+            bandBuffers = new byte[bands * 2][bufferSize];
+        }
+        for (int done = 0; done < generations; ) {
+            int block = Math.min(depth, generations - done);
+            if (pool == null) {
+                for (int band = 0; band < bands; band++) {
+                    stepBand(band, block);
+                }
+            } else {
+                pool.invoke(new Bands(0, bands, block));
+            }
+            engine.endBlock();
+            done += block;
+        }
+    }
+
+    private void stepBand(int band, int generations) {
+        int from = band * bandRows;
+        int to = Math.min(engine.getRowCount(), from + bandRows);
+        engine.stepBand(from, to, generations, bandBuffers[band * 2], bandBuffers[band * 2 + 1]);
+    }
+
+    private final class Bands extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int from, to, generations;
+
+        Bands(int from, int to, int generations) {
+            this.from = from;
+            this.to = to;
+            this.generations = generations;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new Bands(from, middle, generations), new Bands(middle, to, generations));
+                return;
+            }
+            stepBand(from, generations);
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package conlife.console;
+
+import conlife.GameState;
+import conlife.Rules;
+import conlife.utils.Patterns;
+
+import java.awt.*;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs every pattern under every rule set, with as many games running at once as there are cores, and writes a CSV
+ * line for each run as it finishes. Each game is stepped on a single thread, so the runs never wait on each other and
+ * the total throughput grows with the number of cores.
+ *
+ * <pre>
+ * java conlife.console.BatchRunner -f samples -r B3/S23,B36/S23,B2/S -b 500 -s 1000 -o sweep.csv
+ * </pre>
+ *
+ * -f takes a comma separated list of patterns, where a directory stands for every .LIF, .RLE and .MC file in it. -r takes a
+ * comma separated list of rule strings, -j how many games to run at once, and -o the CSV file to write, which is
+ * standard out by default. -b, -s and -e are the board size, steps and engine, as for {@link ConlifeCLI}.
+ */
+public class BatchRunner {
+
+    static final String CSV_HEADER = "pattern,rules,engine,board_size,generations,elapsed_ms,generations_per_second,"
+            + "final_population";
+
+    private final List<String> patterns = new ArrayList<>();
+    private final List<String> rules = new ArrayList<>();
+    private int boardSize = 500;
+    private int totalSteps = 1000;
+    private GameState.Engine engine = GameState.Engine.DENSE;
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+
+    public BatchRunner addPattern(String pattern) {
+        File file = new File(pattern);
+        if (file.isDirectory()) {
+            File[] files = file.listFiles((dir, name) -> Patterns.isPatternFile(name));
+            if (files != null) {
+                Arrays.sort(files);
+                for (File found : files) {
+                    patterns.add(found.getPath());
+                }
+            }
+        } else {
+            patterns.add(pattern);
+        }
+        return this;
+    }
+
+    public BatchRunner addRules(String rulesString) throws ParseException, Rules.RulesException {
+        // Bad rules are reported before any games are run
+        Rules.parseRules(rulesString);
+        rules.add(rulesString);
+        return this;
+    }
+
+    public BatchRunner setBoardSize(int boardSize) {
+        this.boardSize = boardSize;
+        return this;
+    }
+
+    public BatchRunner setTotalSteps(int totalSteps) {
+        this.totalSteps = totalSteps;
+        return this;
+    }
+
+    public BatchRunner setEngine(GameState.Engine engine) {
+        this.engine = engine;
+        return this;
+    }
+
+    public BatchRunner setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("At least one game has to run at a time");
+        }
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    /**
+     * Runs every pattern under every rule set and writes a CSV header followed by a line for every run, in the order
+     * the runs finish. Runs that fail get a line of their own on standard error, naming the pattern and rules, and
+     * leave the rest running.
+     *
+     * @return how many runs failed.
+     */
+    public int run(PrintWriter csv) throws InterruptedException {
+        csv.println(CSV_HEADER);
+        csv.flush();
+        ExecutorService pool = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "batch-runner");
+            thread.setDaemon(true);
+            return thread;
+        });
+        int failures = 0;
+        try {
+            ExecutorCompletionService<String> runs = new ExecutorCompletionService<>(pool);
+            Map<Future<String>, String> names = new HashMap<>();
+            for (String pattern : patterns) {
+                for (String rulesString : rules) {
+                    names.put(runs.submit(() -> runGame(pattern, rulesString)), pattern + " under " + rulesString);
+                }
+            }
+            for (int i = patterns.size() * rules.size(); i > 0; i--) {
+                Future<String> run = runs.take();
+                try {
+                    csv.println(run.get());
+                    csv.flush();
+                } catch (ExecutionException e) {
+                    System.err.println("Unable to run " + names.get(run) + ": " + e.getCause());
+                    failures++;
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        return failures;
+    }
+
+    private String runGame(String pattern, String rulesString) throws Exception {
+        try (GameState game = GameState.createNewGame(Rules.parseRules(rulesString),
+                new Dimension(boardSize, boardSize), 1, engine)) {
+            Patterns.loadInto(game, pattern);
+            long start = System.nanoTime();
+            game.processGameSteps(totalSteps);
+            long elapsed = System.nanoTime() - start;
+            double perSecond = elapsed == 0 ? 0 : totalSteps * 1e9 / elapsed;
+            return String.format(Locale.ROOT, "%s,%s,%s,%d,%d,%.3f,%.1f,%d", csvField(pattern), csvField(rulesString),
+                    engine, boardSize, totalSteps, elapsed / 1e6, perSecond, game.getPopulation());
+        }
+    }
+
+    /**
+     * Quotes a field for a CSV line if it contains a comma, a quote or a line break, doubling any quotes in it.
+     */
+    static String csvField(String field) {
+        if (field.indexOf(',') < 0 && field.indexOf('"') < 0 && field.indexOf('\r') < 0 && field.indexOf('\n') < 0) {
+            return field;
+        }
+        return '"' + field.replace("\"", "\"\"") + '"';
+    }
+
+    public static void main(String[] args) throws Exception {
+        BatchRunner runner = new BatchRunner();
+        String output = null;
+        for (int argsi = 0; argsi + 1 < args.length; argsi += 2) {
+            String value = args[argsi + 1];
+            switch (args[argsi]) {
+                case "-f"://patterns
+                    for (String pattern : value.split(",")) {
+                        runner.addPattern(pattern);
+                    }
+                    break;
+                case "-r"://rule strings
+                    for (String rulesString : value.split(",")) {
+                        runner.addRules(rulesString);
+                    }
+                    break;
+                case "-b"://board size
+                    runner.setBoardSize(Integer.parseInt(value));
+                    break;
+                case "-s"://steps per game
+                    runner.setTotalSteps(Integer.parseInt(value));
+                    break;
+                case "-e"://board engine
+                    runner.setEngine(GameState.Engine.valueOf(value.toUpperCase()));
+                    break;
+                case "-j"://games to run at once
+                    runner.setParallelism(Integer.parseInt(value));
+                    break;
+                case "-o"://csv file
+                    output = value;
+                    break;
+                default:
+                    System.out.printf("Unknown flag %s\n", args[argsi]);
+                    System.exit(1);
+            }
+        }
+        if (runner.patterns.isEmpty() || runner.rules.isEmpty()) {
+            System.out.println("Usage: BatchRunner -f patterns -r rules [-b board size] [-s steps] [-e engine] "
+                    + "[-j games at once] [-o csv file]");
+            System.exit(1);
+        }
+        long start = System.nanoTime();
+        int failures;
+        try (PrintWriter csv = output == null ? new PrintWriter(System.out)
+                : new PrintWriter(new FileWriter(output))) {
+            failures = runner.run(csv);
+        } catch (IOException e) {
+            System.out.println("Unable to write " + output);
+            System.exit(1);
+            return;
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long generations = (long) runner.totalSteps * runner.patterns.size() * runner.rules.size();
+        System.err.printf("%d runs in %.1f s, %.1f generations per second in total, %d failed\n",
+                runner.patterns.size() * runner.rules.size(), seconds, generations / seconds, failures);
+        System.exit(failures == 0 ? 0 : 1);
+    }
+}
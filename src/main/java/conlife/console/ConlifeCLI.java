@@ -1,22 +1,35 @@
 package conlife.console;
 
 import conlife.GameState;
+import conlife.Generation;
+import conlife.HashLife;
+import conlife.Macrocell;
 import conlife.Rules;
 import conlife.utils.Lif1_5Reader;
+import conlife.utils.Patterns;
 import conlife.utils.PgmWriter;
+import conlife.utils.RecordingWriter;
 
 import java.awt.*;
+import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileWriter;
 import java.io.IOException;
+import java.io.Writer;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.nio.file.StandardOpenOption;
 import java.text.ParseException;
+import java.util.Locale;
 
 import static conlife.utils.PgmWriter.createPgmWriter;
+import static conlife.utils.RecordingWriter.createRecordingWriter;
 
 /**
- * A program to run timing tests and create pgm image files of the game board.
+ * A program to run timing tests and create pgm image files of the game board. Passing -g jumps the initial conditions
+ * straight to the given generation with HashLife instead of stepping through every generation, and -r records every
+ * generation to the given file for a {@link conlife.utils.RecordingReader}. Macrocell (.mc) patterns are jumped without
+ * ever being laid out on a board, and -x writes the universe a jump ends at to the given macrocell file.
  *
  * @author Nathan Coggins
  */
@@ -30,7 +43,16 @@ public class ConlifeCLI {
     private static String inFile = "/samples/LINEPUF.LIF";
     private static int threadCount = 4;
     private static boolean outputs = false;
+    private static GameState.Engine engine = GameState.Engine.CELLS;
+    private static GameState.EdgePolicy edgePolicy = GameState.EdgePolicy.TORUS;
+    private static long jumpGeneration = -1;
+    private static boolean comparePartitioning = false;
+    private static GameState.StepMode stepMode = GameState.StepMode.PHASED;
+    private static int generationsPerSync = -1;
+    private static int spinBudget = -1;
     private static PgmWriter writer;
+    private static String recordingFile;
+    private static String macrocellFile;
 
     private static void parseArgs(String[] args) {
         int argsi = 0;
@@ -52,14 +74,44 @@ public class ConlifeCLI {
                         case 't'://threads
                             threadCount = Integer.parseInt(args[argsi]);
                             break;
+                        case 'c'://time every way of partitioning the cells between the threads
+                            argsi--; // This flag isn't interested in the next arg
+                            comparePartitioning = true;
+                            break;
                         case 'o'://ouputs wanted
                             argsi--; // This flag isn't interested in the next arg
                             outputs = true;
                             break;
+                        case 'g'://generation to jump to
+                            jumpGeneration = Long.parseLong(args[argsi]);
+                            break;
+                        case 'e'://board engine
+                            engine = GameState.Engine.valueOf(args[argsi].toUpperCase());
+                            break;
+                        case 'm'://how the game threads step the cells
+                            stepMode = GameState.StepMode.valueOf(args[argsi].toUpperCase());
+                            break;
+                        case 'w'://what is beyond the edges of the board
+                            edgePolicy = GameState.EdgePolicy.valueOf(args[argsi].toUpperCase());
+                            break;
+                        case 'k'://generations dense games advance between synchronizations
+                            generationsPerSync = Integer.parseInt(args[argsi]);
+                            break;
+                        case 'p'://spins before the stepping thread blocks on a phase
+                            spinBudget = Integer.parseInt(args[argsi]);
+                            break;
+                        case 'r'://file to record the generations to
+                            recordingFile = args[argsi];
+                            break;
+                        case 'x'://macrocell file to write the universe a jump ends at to
+                            macrocellFile = args[argsi];
+                            break;
                     }
                 } catch (NumberFormatException e) {
                     System.out.printf("Was expecting number for flag -%c but received \"%s\" instead. Using default...\n",
                             flag, args[argsi]);
+                } catch (IllegalArgumentException e) {
+                    System.out.printf("Unknown value \"%s\" for flag -%c. Using default...\n", args[argsi], flag);
                 }
             }
             argsi++;
@@ -67,19 +119,72 @@ public class ConlifeCLI {
     }
 
     private static void runGame() {
-        if (outputs) {
-            writer.createOutputForCurrentGameStep();
+        if (!outputs && recordingFile == null) {
+            gameState.processGameSteps(totalSteps);
+            return;
         }
-        for (int step = 0; step < totalSteps; step++) {
-            gameState.processGameStep();
+        RecordingWriter recorder = null;
+        try {
+            if (recordingFile != null) {
+                recorder = createRecordingWriter(new File(recordingFile), gameState);
+                recorder.recordCurrentGameStep();
+            }
             if (outputs) {
                 writer.createOutputForCurrentGameStep();
             }
+            // Each generation is written while the game computes the one after it ahead of time
+            for (int step = 0; step < totalSteps; step++) {
+                Generation generation = gameState.stepAsync(1).join();
+                if (outputs) {
+                    writer.createOutput(generation);
+                }
+                if (recorder != null) {
+                    recorder.record(generation);
+                }
+            }
+            if (recorder != null) {
+                recorder.close();
+            }
+        } catch (IOException e) {
+            System.out.println("Unable to record to " + recordingFile);
+            System.exit(1);
+        }
+    }
+
+    private static void jump() throws ParseException, Rules.RulesException, IOException {
+        HashLife universe = loadUniverse(inFile, boardSize);
+        long start = System.nanoTime();
+        universe.advance(jumpGeneration);
+        double totalTime = calcTime(start);
+        System.out.printf("Generation %d has a population of %d (%d nodes, %d garbage collections)\n",
+                universe.getGeneration(), universe.getPopulation(), universe.getNodeCount(),
+                universe.getGarbageCollectionCount());
+        report(jumpGeneration, totalTime);
+        if (macrocellFile != null) {
+            try (Writer out = new BufferedWriter(new FileWriter(macrocellFile))) {
+                Macrocell.write(universe, out);
+            }
         }
     }
 
-    private static void report(double totalTime) {
-        String report = String.format("%s\t%d\t%d\t%d\t%f\n", inFile, boardSize, totalSteps, threadCount, totalTime);
+    /**
+     * Reads a pattern into a universe that runs under the pattern's own rules. Life 1.05 and RLE patterns are placed
+     * where they would be on a board of the given size, but none of their cells are cut off by its edges.
+     */
+    static HashLife loadUniverse(String file, int boardSize) throws ParseException, Rules.RulesException,
+            IOException {
+        if (file.toUpperCase(Locale.ROOT).endsWith(".MC")) {
+            return Macrocell.read(file);
+        }
+        try (GameState plane = GameState.createNewGame(Rules.parseRules(GameState.DEFAULT_RULES_STRING),
+                new Dimension(boardSize, boardSize), 1, GameState.Engine.UNBOUNDED)) {
+            Rules rules = Patterns.loadInto(plane, file);
+            return HashLife.fromGame(rules, plane);
+        }
+    }
+
+    private static void report(long steps, double totalTime) {
+        String report = String.format("%s\t%d\t%d\t%d\t%f\n", inFile, boardSize, steps, threadCount, totalTime);
         try {
             Files.write(Paths.get("timings.txt"), report.getBytes(), StandardOpenOption.APPEND);
         } catch (IOException e) {
@@ -88,8 +193,20 @@ public class ConlifeCLI {
     }
 
     private static void init() throws ParseException, Rules.RulesException, IOException {
-        Lif1_5Reader reader = Lif1_5Reader.fromResourceOrFile(new Dimension(boardSize, boardSize), inFile);
-        gameState = GameState.createNewGame(reader.createBoardString('.', '*').split("\n"), '*', threadCount);
+        Rules rules = Rules.parseRules(GameState.DEFAULT_RULES_STRING);
+        if (gameState != null) {
+            gameState.close();
+        }
+        gameState = GameState.createNewGame(rules, new Dimension(boardSize, boardSize), threadCount, engine,
+                edgePolicy);
+        Patterns.loadInto(gameState, inFile);
+        gameState.setStepMode(stepMode);
+        if (spinBudget >= 0) {
+            gameState.setBarrierSpinBudget(spinBudget);
+        }
+        if (generationsPerSync > 0) {
+            gameState.setGenerationsPerSync(generationsPerSync);
+        }
         if (outputs) {
             writer = createPgmWriter(new File("./testOutput"), gameState);
         }
@@ -115,6 +232,10 @@ public class ConlifeCLI {
         parseArgs(args);
         System.out.println("Performing timing");
         try {
+            if (jumpGeneration >= 0) {
+                jump();
+                System.exit(0);
+            }
             init();
         } catch (ParseException e) {
             System.out.println("Unable to read initial conditions.");
@@ -125,11 +246,37 @@ public class ConlifeCLI {
         } catch (IOException e) {
             System.out.println("Unable to open initial conditions file.");
             System.exit(1);
+        } catch (IllegalArgumentException e) {
+            // Settings that don't go together, like edges the engine doesn't support
+            System.out.println(e.getMessage());
+            System.exit(1);
+        }
+        if (comparePartitioning) {
+            comparePartitioning();
+        } else {
+            timeGame();
         }
+        System.exit(0);
+    }
+
+    private static void timeGame() {
         long start = System.nanoTime();
         runGame();
         double totalTime = calcTime(start);
-        report(totalTime);
-        System.exit(0);
+        report(totalSteps, totalTime);
+        long[] waits = gameState.getBarrierWaitNanos();
+        for (int i = 0; i < waits.length; i++) {
+            System.out.printf("Game thread %d's share sat idle %.1f ms waiting for the rest of its phases\n", i,
+                    waits[i] * NANOSECONDS_TO_MILLISECONDS);
+        }
+    }
+
+    private static void comparePartitioning() throws ParseException, Rules.RulesException, IOException {
+        for (GameState.Partitioning partitioning : GameState.Partitioning.values()) {
+            init();
+            gameState.setPartitioning(partitioning);
+            System.out.println(partitioning + ":");
+            timeGame();
+        }
     }
 }
@@ -5,7 +5,6 @@ import conlife.utils.Lif1_5Reader;
 import net.miginfocom.swing.MigLayout;
 
 import java.io.File;
-import java.util.Collection;
 import java.util.HashSet;
 
 import javax.swing.*;
@@ -17,10 +16,10 @@ import java.awt.event.*;
 import java.text.ParseException;
 import java.util.Random;
 import java.util.Set;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
 import java.util.regex.Pattern;
 
 /**
@@ -102,12 +101,17 @@ public class ConlifeGUI extends JFrame {
 
     private GameLoop gameLoop = new GameLoop(this);
     private ExecutorService gameThread = Executors.newSingleThreadExecutor();
+    // Only runs the game loop. The cells on screen and the edits made to them are only touched on the Swing thread.
     private ExecutorService workerThread = Executors.newSingleThreadExecutor();
+    // The last step asked for, which the next one waits for, changes and all
+    private CompletableFuture<Void> lastStep = CompletableFuture.completedFuture(null);
 
     private final Random random = new Random();
 
     private ConlifeGUI(GameState gameState) {
         this.gameState = gameState;
+        // Edits from the board go into the generation on screen, so the game can't run ahead of it
+        gameState.setLookahead(0);
         setTitle("Conway's Game of Life (with Concurrency!)");
         setDefaultCloseOperation(WindowConstants.EXIT_ON_CLOSE);
         setLocationRelativeTo(this);
@@ -234,21 +238,19 @@ public class ConlifeGUI extends JFrame {
                 if (cell == null) {
                     return;
                 }
-                workerThread.submit(() -> {
-                    if (cell.isAlive()) {
-                        drawing = MouseState.DRAWING_OFF;
-                        if (cell.setAlive(false)) {
-                            cellsThatChangedState.add(cell);
-                            SwingUtilities.invokeLater(cell::repaint);
-                        }
-                    } else {
-                        drawing = MouseState.DRAWING_ON;
-                        if (cell.setAlive(true)) {
-                            cellsThatChangedState.add(cell);
-                            SwingUtilities.invokeLater(cell::repaint);
-                        }
+                if (cell.isAlive()) {
+                    drawing = MouseState.DRAWING_OFF;
+                    if (cell.setAlive(false)) {
+                        cellsThatChangedState.add(cell);
+                        cell.repaint();
                     }
-                });
+                } else {
+                    drawing = MouseState.DRAWING_ON;
+                    if (cell.setAlive(true)) {
+                        cellsThatChangedState.add(cell);
+                        cell.repaint();
+                    }
+                }
             }
 
             @Override
@@ -256,7 +258,7 @@ public class ConlifeGUI extends JFrame {
                 if (gameLoop.running.get()) {
                     return;
                 }
-                workerThread.submit(() -> { drawing = MouseState.NOT_DRAWING; });
+                drawing = MouseState.NOT_DRAWING;
             }
 
             @Override
@@ -264,7 +266,7 @@ public class ConlifeGUI extends JFrame {
                 if (gameLoop.running.get()) {
                     return;
                 }
-                workerThread.submit(() -> { drawing = MouseState.NOT_DRAWING; });
+                drawing = MouseState.NOT_DRAWING;
             }
 
             @Override
@@ -276,22 +278,13 @@ public class ConlifeGUI extends JFrame {
                 if (cell == null) {
                     return;
                 }
-                workerThread.submit(() -> {
-                    if (drawing == MouseState.NOT_DRAWING) {
-                        return;
-                    }
-                    if (drawing == MouseState.DRAWING_ON) {
-                        if (cell.setAlive(true)) {
-                            cellsThatChangedState.add(cell);
-                            SwingUtilities.invokeLater(cell::repaint);
-                        }
-                    } else {
-                        if (cell.setAlive(false)) {
-                            cellsThatChangedState.add(cell);
-                            SwingUtilities.invokeLater(cell::repaint);
-                        }
-                    }
-                });
+                if (drawing == MouseState.NOT_DRAWING) {
+                    return;
+                }
+                if (cell.setAlive(drawing == MouseState.DRAWING_ON)) {
+                    cellsThatChangedState.add(cell);
+                    cell.repaint();
+                }
 
             }
         };
@@ -345,7 +338,7 @@ public class ConlifeGUI extends JFrame {
             if (gameLoop.running.get()) {
                 return;
             }
-            workerThread.submit(this::step);
+            step();
         });
         buttonsPanel.add(stepButton, "center, growx");
 
@@ -389,44 +382,47 @@ public class ConlifeGUI extends JFrame {
         workerThread.submit(gameLoop);
     }
 
+    /**
+     * Hands the edits made on screen to the game and steps it. Must be called on the Swing thread.
+     */
     void step() {
-        final CellUpdate[] cellUpdatesFromUI = new CellUpdate[cellsThatChangedState.size()];
+        final int[] xsFromUI = new int[cellsThatChangedState.size()];
+        final int[] ysFromUI = new int[xsFromUI.length];
+        final boolean[] aliveFromUI = new boolean[xsFromUI.length];
         int i = 0;
         for (CellComponent cellComponent : cellsThatChangedState) {
-            cellUpdatesFromUI[i] = new CellUpdate(cellComponent.getCellX(), cellComponent.getCellY(), cellComponent.isAlive());
+            xsFromUI[i] = cellComponent.getCellX();
+            ysFromUI[i] = cellComponent.getCellY();
+            aliveFromUI[i] = cellComponent.isAlive();
             i++;
         }
-
-        final Future<CellUpdate[]> futureCellUpdates = gameThread.submit(() -> {
-            for (CellUpdate cellUpdate : cellUpdatesFromUI) {
-                Cell cell = gameState.getCell(cellUpdate.getX(), cellUpdate.getY());
-                cell.setCurrentlyAlive(cellUpdate.isAlive());
-            }
-            gameState.processGameStep();
-            Collection<Cell> cellUpdates = gameState.getCellsThatChangedState();
-            CellUpdate[] cellUpdatesFromGame = new CellUpdate[cellUpdates.size()];
-            int j = 0;
-            for (Cell cell : cellUpdates) {
-                cellUpdatesFromGame[j] = new CellUpdate(cell.getX(), cell.getY(), cell.isAlive());
-                j++;
-            }
-            return cellUpdatesFromGame;
-        });
-
-
-        try {
-            CellUpdate[] cellUpdatesFromGame = futureCellUpdates.get();
-            for (CellUpdate cell : cellUpdatesFromGame) {
-                CellComponent cellComponent = board[cell.getY()][cell.getX()];
-                cellComponent.setAlive(cell.isAlive());
-            }
-        } catch (InterruptedException | ExecutionException e) {
-            throw new RuntimeException(e);
-        }
-
-        SwingUtilities.invokeLater(() -> {
-            gamePanel.repaint();
-            stepField.setText(Integer.toString(gameState.getCurrentStep()));
-        });
+        // The game has them now, and the board only changes again through the game or the user
+        cellsThatChangedState.clear();
+
+        // Nothing here waits for the step. The board is brought up to date once the game has computed it. Each step
+        // starts only once the one before it has copied its changes, and the copy is made on the game thread, so the
+        // game's change set is never edited or stepped while it's being copied.
+        lastStep = lastStep.thenRunAsync(() -> gameState.setCells(xsFromUI, ysFromUI, aliveFromUI), gameThread)
+                .thenCompose(edited -> gameState.stepAsync(1))
+                .thenAcceptAsync(generation -> {
+                    // Nothing is computed ahead of the board on screen, so the changes stay put until the next step
+                    ChangeSet changes = gameState.getChanges().copy();
+                    SwingUtilities.invokeLater(() -> {
+                        changes.forEach((x, y, born) -> board[y][x].setAlive(born));
+                        gamePanel.repaint();
+                        stepField.setText(Integer.toString(generation.getStep()));
+                    });
+                }, gameThread)
+                .exceptionally(e -> {
+                    Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                    SwingUtilities.invokeLater(() -> {
+                        if (gameLoop.running.get()) {
+                            togglePlay();
+                        }
+                        JOptionPane.showMessageDialog(this, cause, "Error stepping the game",
+                                JOptionPane.ERROR_MESSAGE);
+                    });
+                    return null;
+                });
     }
 }
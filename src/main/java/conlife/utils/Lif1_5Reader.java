@@ -1,15 +1,20 @@
 package conlife.utils;
 
+import conlife.GameState;
 import conlife.Rules;
 
 import java.awt.Dimension;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
 import java.text.ParseException;
-import java.util.Scanner;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Arrays;
 
 /**
  * Supports reading initial game conditions in the format of Life 1.05. Can read from a String or from a File.
@@ -18,14 +23,6 @@ import java.util.regex.Pattern;
  */
 public class Lif1_5Reader {
 
-    private final static Pattern DELIMITER_PATTERN = Pattern.compile("[\\r\\n;]+");
-    private final static Pattern VERSION_PATTERN = Pattern.compile("(?:#(Life 1.05))");
-    private final static Pattern DESCRIPTION_PATTERN = Pattern.compile("(?:#D.*)");
-    private final static Pattern RULES_PATTERN = Pattern.compile("#R ([012345678]+)\\/([012345678]+)");
-    private final static Pattern DEFAULT_RULES_PATTERN = Pattern.compile("(?:#N)");
-    private final static Pattern POSITION_PATTERN = Pattern.compile("#P (-?\\d+) (-?\\d+)");
-    private final static Pattern BOARD_LINE_PATTERN = Pattern.compile("(\\*|\\.)+");
-
     /**
      * Creates a Life 1.5 reader that loads the initial conditions from the given resource onto a board of the given
      * dimensions. The resource is first checked for on the class path and if it is not found there it is treated as
@@ -39,14 +36,11 @@ public class Lif1_5Reader {
      * @throws Rules.RulesException If the file contains invalid rules.
      */
     public static Lif1_5Reader fromResourceOrFile(Dimension boardSize, String resourceName) throws FileNotFoundException, ParseException, Rules.RulesException {
-        Scanner scanner;
         InputStream is = Lif1_5Reader.class.getResourceAsStream(resourceName);
-        if (is != null) {
-            scanner = new Scanner(is);
-        } else {
-            scanner = new Scanner(new File(resourceName));
+        if (is == null) {
+            is = new FileInputStream(resourceName);
         }
-        return new Lif1_5Reader(boardSize, scanner);
+        return new Lif1_5Reader(boardSize, new InputStreamReader(is, StandardCharsets.ISO_8859_1));
     }
 
     /**
@@ -61,8 +55,8 @@ public class Lif1_5Reader {
      * @throws Rules.RulesException If the file contains invalid rules.
      */
     public static Lif1_5Reader fromFile(Dimension boardSize, File file) throws FileNotFoundException, ParseException, Rules.RulesException {
-        Scanner scanner = new Scanner(file);
-        return new Lif1_5Reader(boardSize, scanner);
+        return new Lif1_5Reader(boardSize, new InputStreamReader(new FileInputStream(file),
+                StandardCharsets.ISO_8859_1));
     }
 
     /**
@@ -76,65 +70,287 @@ public class Lif1_5Reader {
      * @throws Rules.RulesException If the string contains invalid rules.
      */
     public static Lif1_5Reader fromString(Dimension boardSize, String string) throws ParseException, Rules.RulesException {
-        Scanner scanner = new Scanner(string);
-        return new Lif1_5Reader(boardSize, scanner);
+        return new Lif1_5Reader(boardSize, new StringReader(string));
+    }
+
+    /**
+     * Loads the initial conditions from the given resource or file straight onto the board of a game, centered the
+     * same way as a reader would place them. The pattern is read in one pass and each living cell is set through a
+     * {@link GameState.CellBatch}, so no copy of the board is ever made. The cells of the pattern are added to what is
+     * already on the board. If the pattern can't be loaded, the board is left as it was.
+     *
+     * @param game The game to load onto.
+     * @param resourceName The name of the resource or file to load from.
+     * @return The rules in the pattern, which are not applied to the game.
+     * @throws IOException If the pattern can't be read.
+     * @throws ParseException If the file format cannot be determined, or the pattern doesn't fit on the board.
+     * @throws Rules.RulesException If the file contains invalid rules.
+     */
+    public static Rules loadInto(GameState game, String resourceName) throws IOException, ParseException,
+            Rules.RulesException {
+        InputStream is = Lif1_5Reader.class.getResourceAsStream(resourceName);
+        if (is == null) {
+            is = new FileInputStream(resourceName);
+        }
+        try (Reader in = new InputStreamReader(is, StandardCharsets.ISO_8859_1)) {
+            return loadInto(game, in);
+        }
+    }
+
+    /**
+     * Loads initial conditions from a stream of Life 1.05 text straight onto the board of a game, like
+     * {@link #loadInto(GameState, String)}.
+     */
+    public static Rules loadInto(GameState game, Reader in) throws IOException, ParseException, Rules.RulesException {
+        int width = game.getBoardWidth(), height = game.getBoardHeight();
+        boolean bounded = game.getEngine().isBounded();
+        try (GameState.CellBatch batch = game.beginBatch()) {
+            try {
+                return parse(in, width, height, (x, y) -> {
+                    if (bounded && (x < 0 || x >= width || y < 0 || y >= height)) {
+                        return false;
+                    }
+                    batch.setAlive(x, y, true);
+                    return true;
+                });
+            } catch (Exception e) {
+                // Nothing is loaded from a pattern that can't be loaded completely
+                batch.rollBack();
+                throw e;
+            }
+        }
     }
 
     private boolean[][] board;
     private Rules rules;
     private int boardWidth, boardHeight;
 
-    private Lif1_5Reader(Dimension boardSize, Scanner scanner) throws ParseException, Rules.RulesException {
+    private Lif1_5Reader(Dimension boardSize, Reader in) throws ParseException, Rules.RulesException {
         boardWidth = (int) boardSize.getWidth();
         boardHeight = (int) boardSize.getHeight();
-        int centerX = (int) Math.floor((double) boardWidth / 2D);
-        int centerY = (int) Math.floor((double) boardHeight / 2D);
         board = new boolean[boardHeight][boardWidth];
+        try {
+            rules = parse(in, boardWidth, boardHeight, (x, y) -> {
+                if (x < 0 || x >= boardWidth || y < 0 || y >= boardHeight) {
+                    return false;
+                }
+                board[y][x] = true;
+                return true;
+            });
+        } catch (IOException e) {
+            throw new ParseException("Unable to read the initial conditions: " + e, -1);
+        } finally {
+            try {
+                in.close();
+            } catch (IOException e) {
+                // Everything needed has been read
+            }
+        }
+    }
 
-        scanner.useDelimiter(DELIMITER_PATTERN);
+    /**
+     * Receives the living cells of a pattern as it is read.
+     */
+    private interface CellSink {
+        /**
+         * @return false if the cell is off the board.
+         */
+        boolean setAlive(int x, int y);
+    }
 
-        if (scanner.hasNext(VERSION_PATTERN)) {
-            String version = scanner.next(VERSION_PATTERN);
-            Matcher matcher = VERSION_PATTERN.matcher(version);
-            matcher.matches();
-        } else {
+    /**
+     * Reads a pattern in one pass, token by token, handing each living cell to the sink as soon as it is read. Tokens
+     * are separated by line breaks and semicolons.
+     */
+    private static Rules parse(Reader in, int boardWidth, int boardHeight, CellSink sink) throws IOException,
+            ParseException, Rules.RulesException {
+        int centerX = boardWidth / 2;
+        int centerY = boardHeight / 2;
+        Tokenizer tokens = new Tokenizer(in);
+
+        if (!tokens.next() || !tokens.isVersion()) {
             throw new ParseException("Unknown format", -1);
         }
 
-        while (scanner.hasNext(DESCRIPTION_PATTERN)) {
-            scanner.next();
+        // Descriptions can contain the ';' delimiter, so everything up to the rules or the first block is skipped
+        boolean more = tokens.next();
+        while (more && !tokens.isRules() && !tokens.is("#N") && !tokens.isPosition()) {
+            more = tokens.next();
         }
 
-        String rulesString = "#R 23/3";
-        if (scanner.hasNext(RULES_PATTERN)) {
-            rulesString = scanner.next(RULES_PATTERN);
+        String surviveRules = "23";
+        String birthRules = "3";
+        if (more && tokens.isRules()) {
+            int slash = tokens.indexOf('/');
+            surviveRules = tokens.substring(3, slash);
+            birthRules = tokens.substring(slash + 1, tokens.length);
+            more = tokens.next();
         }
-        if (scanner.hasNext(DEFAULT_RULES_PATTERN)) {
-            scanner.next(DEFAULT_RULES_PATTERN);
+        if (more && tokens.is("#N")) {
+            more = tokens.next();
         }
-        Matcher rulesMatcher = RULES_PATTERN.matcher(rulesString);
-        rulesMatcher.matches();
-        String surviveRules = rulesMatcher.group(1);
-        String birthRules = rulesMatcher.group(2);
-        rules = Rules.parseRules("B" + birthRules + "/S" + surviveRules);
+        Rules rules = Rules.parseRules("B" + birthRules + "/S" + surviveRules);
 
-        while (scanner.hasNext(POSITION_PATTERN)) {
-            String positionPattern = scanner.next();
-            Matcher positionMatcher = POSITION_PATTERN.matcher(positionPattern);
-            positionMatcher.matches();
-            int originX = centerX + Integer.parseInt(positionMatcher.group(1));
-            int originY = centerY + Integer.parseInt(positionMatcher.group(2));
-            int y = originY;
-            while (scanner.hasNext(BOARD_LINE_PATTERN)) {
-                String line = scanner.next();
-                for (int j = 0, x = originX; j < line.length(); j++, x++) {
-                    if (line.charAt(j) == '*') {
-                        board[y][x] = true;
+        while (more && tokens.isPosition()) {
+            int originX = centerX + tokens.positionX;
+            int y = centerY + tokens.positionY;
+            while ((more = tokens.next()) && tokens.isBoardLine()) {
+                for (int j = 0, x = originX; j < tokens.length; j++, x++) {
+                    if (tokens.chars[j] == '*' && !sink.setAlive(x, y)) {
+                        throw new ParseException(String.format("The cell at (%d, %d) is off the board", x, y), -1);
                     }
                 }
                 y++;
             }
         }
+        return rules;
+    }
+
+    /**
+     * Splits a stream into tokens without building a string for each one.
+     */
+    private static final class Tokenizer {
+        private final Reader in;
+        private final char[] buffer = new char[8192];
+        private int position, limit;
+        char[] chars = new char[128];
+        int length;
+        // Set by isPosition()
+        int positionX, positionY;
+
+        Tokenizer(Reader in) {
+            this.in = in;
+        }
+
+        private int read() throws IOException {
+            if (position == limit) {
+                limit = in.read(buffer, 0, buffer.length);
+                position = 0;
+                if (limit <= 0) {
+                    limit = 0;
+                    return -1;
+                }
+            }
+            return buffer[position++];
+        }
+
+        private static boolean isDelimiter(int c) {
+            return c == '\r' || c == '\n' || c == ';';
+        }
+
+        /**
+         * Reads the next token.
+         *
+         * @return false at the end of the stream.
+         */
+        boolean next() throws IOException {
+            int c = read();
+            while (isDelimiter(c)) {
+                c = read();
+            }
+            length = 0;
+            while (c != -1 && !isDelimiter(c)) {
+                if (length == chars.length) {
+                    chars = Arrays.copyOf(chars, length * 2);
+                }
+                chars[length++] = (char) c;
+                c = read();
+            }
+            return length > 0;
+        }
+
+        boolean startsWith(String prefix) {
+            if (length < prefix.length()) {
+                return false;
+            }
+            for (int i = 0; i < prefix.length(); i++) {
+                if (chars[i] != prefix.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        boolean is(String token) {
+            return length == token.length() && startsWith(token);
+        }
+
+        int indexOf(char c) {
+            for (int i = 0; i < length; i++) {
+                if (chars[i] == c) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        String substring(int from, int to) {
+            return new String(chars, from, to - from);
+        }
+
+        // #Life 1.05, where the dot stands for any character
+        boolean isVersion() {
+            return length == 10 && startsWith("#Life 1") && chars[8] == '0' && chars[9] == '5';
+        }
+
+        // #R followed by two runs of neighbor counts separated by a slash
+        boolean isRules() {
+            if (!startsWith("#R ")) {
+                return false;
+            }
+            int slash = indexOf('/');
+            return slash > 3 && slash < length - 1 && areCounts(3, slash) && areCounts(slash + 1, length);
+        }
+
+        private boolean areCounts(int from, int to) {
+            for (int i = from; i < to; i++) {
+                if (chars[i] < '0' || chars[i] > '8') {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        // #P followed by two integers, which are parsed into positionX and positionY
+        boolean isPosition() {
+            if (!startsWith("#P ")) {
+                return false;
+            }
+            int space = 3;
+            while (space < length && chars[space] != ' ') {
+                space++;
+            }
+            if (!isInteger(3, space) || !isInteger(space + 1, length)) {
+                return false;
+            }
+            positionX = Integer.parseInt(substring(3, space));
+            positionY = Integer.parseInt(substring(space + 1, length));
+            return true;
+        }
+
+        private boolean isInteger(int from, int to) {
+            if (from < to && chars[from] == '-') {
+                from++;
+            }
+            if (from >= to || to - from > 9) {
+                return false;
+            }
+            for (int i = from; i < to; i++) {
+                if (chars[i] < '0' || chars[i] > '9') {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        boolean isBoardLine() {
+            for (int i = 0; i < length; i++) {
+                if (chars[i] != '*' && chars[i] != '.') {
+                    return false;
+                }
+            }
+            return length > 0;
+        }
     }
 
     /**
@@ -0,0 +1,41 @@
+package conlife.utils;
+
+import conlife.GameState;
+import conlife.Macrocell;
+import conlife.Rules;
+
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.Locale;
+
+/**
+ * Loads a pattern in whichever format its name says it is in: run length encoded for names ending in .rle, macrocell for
+ * names ending in .mc, and Life 1.05 for everything else.
+ */
+public final class Patterns {
+
+    private Patterns() {
+    }
+
+    public static boolean isPatternFile(String name) {
+        String upper = name.toUpperCase(Locale.ROOT);
+        return upper.endsWith(".LIF") || upper.endsWith(".RLE") || upper.endsWith(".MC");
+    }
+
+    /**
+     * Loads a pattern onto the board of a game with {@link RleReader#loadInto(GameState, String)},
+     * {@link Macrocell#loadInto(GameState, String)} or {@link Lif1_5Reader#loadInto(GameState, String)}.
+     *
+     * @return The rules in the pattern, which are not applied to the game.
+     */
+    public static Rules loadInto(GameState game, String resourceName) throws IOException, ParseException,
+            Rules.RulesException {
+        String upper = resourceName.toUpperCase(Locale.ROOT);
+        if (upper.endsWith(".RLE")) {
+            return RleReader.loadInto(game, resourceName);
+        } else if (upper.endsWith(".MC")) {
+            return Macrocell.loadInto(game, resourceName);
+        }
+        return Lif1_5Reader.loadInto(game, resourceName);
+    }
+}
@@ -1,6 +1,7 @@
 package conlife.utils;
 
 import conlife.GameState;
+import conlife.Generation;
 
 import java.awt.Dimension;
 import java.io.BufferedWriter;
@@ -17,8 +18,8 @@ public class PgmWriter {
 
     // Sample of how to use PgmWriter
     public static void main(String[] args) throws Exception {
-        Lif1_5Reader reader = Lif1_5Reader.fromFile(new Dimension(1000, 1000), new File("./samples/LINEPUF.LIF"));
-        GameState game = GameState.createNewGame(reader.createBoardString('.', '*').split("\n"), '*');
+        GameState game = GameState.createNewGame(new Dimension(1000, 1000));
+        Lif1_5Reader.loadInto(game, "./samples/LINEPUF.LIF");
         PgmWriter writer = createPgmWriter(new File("./testOutput"), game);
         writer.createOutputForCurrentGameStep();
         game.processGameStep();
@@ -55,33 +56,41 @@ public class PgmWriter {
      * Creates a pgm file with in the output directory of this PgmWriter using an ordered numbering file name.
      */
     public void createOutputForCurrentGameStep() {
-        writeOutputToFile(createOutputString());
+        createOutput(gameState.snapshot());
+    }
+
+    /**
+     * Creates the next pgm file in the output directory from a generation of the game. The game can go on stepping
+     * while this runs.
+     */
+    public void createOutput(Generation generation) {
+        writeOutputToFile(createOutputString(generation), generation.getStep());
         currentOutputNum++;
     }
 
-    private String createOutputString() {
+    private String createOutputString(Generation generation) {
         StringBuilder b = new StringBuilder();
         b.append("P2\n");
-        b.append(gameState.getBoardWidth()).append(" ").append(gameState.getBoardHeight()).append("\n");
+        b.append(generation.getWidth()).append(" ").append(generation.getHeight()).append("\n");
         b.append("1\n");
-        for (int y = 0; y < gameState.getBoardHeight(); y++) {
-            for (int x = 0; x < gameState.getBoardWidth(); x++) {
+        for (int y = 0; y < generation.getHeight(); y++) {
+            for (int x = 0; x < generation.getWidth(); x++) {
                 if (x != 0) {
                     b.append(" ");
                 }
-                b.append(gameState.getCell(x, y).isAlive() ? 1 : 0);
+                b.append(generation.isAlive(x, y) ? 1 : 0);
             }
             b.append("\n");
         }
         return b.toString();
     }
 
-    private void writeOutputToFile(String outputString) {
+    private void writeOutputToFile(String outputString, int step) {
         String fileName = "out" + getStepString() + ".pgm";
         try (BufferedWriter writer = new BufferedWriter(new FileWriter(new File(outputDirectory, fileName)))) {
             writer.write(outputString);
         } catch (IOException e) {
-            System.out.println("Unable to create " + fileName + " for game step " + gameState.getCurrentStep());
+            System.out.println("Unable to create " + fileName + " for game step " + step);
             e.printStackTrace();
         }
     }
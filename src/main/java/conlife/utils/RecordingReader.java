@@ -0,0 +1,245 @@
+package conlife.utils;
+
+import conlife.GameState;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+
+import static conlife.utils.RecordingWriter.*;
+
+/**
+ * Plays back a recording made by a {@link RecordingWriter}. The reader is always at one of the recorded generations,
+ * starting with the first, and can move to the next one or seek to any other. Seeking reads the last keyframe at or
+ * before the generation wanted and the deltas after it, so it takes about as long wherever it goes.
+ */
+public class RecordingReader implements Closeable {
+
+    /**
+     * Opens a recording and reads its first generation.
+     *
+     * @param file a recording written by a {@link RecordingWriter} that has been closed.
+     * @return a new RecordingReader.
+     */
+    public static RecordingReader open(File file) throws IOException {
+        RandomAccessFile in = new RandomAccessFile(file, "r");
+        try {
+            return new RecordingReader(in);
+        } catch (IOException | RuntimeException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    private final RandomAccessFile in;
+    private final int width, height, wordsPerRow;
+    private final int frameCount, lastStep;
+    private final int[] keyframeSteps;
+    private final long[] keyframePositions;
+    // Where the frames end and the list of keyframes starts
+    private final long framesEnd;
+    private final long[] cells;
+    private int step;
+    // The contents of the last frame read, and how far into them a delta has been read
+    private byte[] buffer = new byte[256];
+    private int at;
+
+    private RecordingReader(RandomAccessFile in) throws IOException {
+        this.in = in;
+        if (in.length() < HEADER_BYTES + TRAILER_BYTES || in.readInt() != MAGIC) {
+            throw new IOException("Not a recording");
+        }
+        int version = in.readInt();
+        if (version != VERSION) {
+            throw new IOException("Unknown recording version " + version);
+        }
+        width = in.readInt();
+        height = in.readInt();
+        wordsPerRow = (width + 63) >>> 6;
+        cells = new long[wordsPerRow * height];
+        in.seek(in.length() - TRAILER_BYTES);
+        frameCount = in.readInt();
+        lastStep = in.readInt();
+        framesEnd = in.readLong();
+        if (in.readInt() != MAGIC) {
+            throw new IOException("The recording wasn't finished");
+        }
+        in.seek(framesEnd);
+        int keyframes = in.readInt();
+        if (keyframes < 1) {
+            throw new IOException("The recording is empty");
+        }
+        keyframeSteps = new int[keyframes];
+        keyframePositions = new long[keyframes];
+        for (int i = 0; i < keyframes; i++) {
+            keyframeSteps[i] = in.readInt();
+            keyframePositions[i] = in.readLong();
+        }
+        in.seek(keyframePositions[0]);
+        readFrame();
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getFrameCount() {
+        return frameCount;
+    }
+
+    public int getFirstStep() {
+        return keyframeSteps[0];
+    }
+
+    public int getLastStep() {
+        return lastStep;
+    }
+
+    /**
+     * The step of the generation the reader is at.
+     */
+    public int getStep() {
+        return step;
+    }
+
+    public boolean isAlive(int x, int y) {
+        if (x < 0 || x >= width || y < 0 || y >= height) {
+            throw new IllegalArgumentException(String.format("(%d, %d) is not on the board", x, y));
+        }
+        return (cells[y * wordsPerRow + (x >>> 6)] & (1L << x)) != 0;
+    }
+
+    public int getPopulation() {
+        int population = 0;
+        for (long word : cells) {
+            population += Long.bitCount(word);
+        }
+        return population;
+    }
+
+    /**
+     * Moves to the next recorded generation.
+     *
+     * @return false if the reader was already at the last one.
+     */
+    public boolean next() throws IOException {
+        if (in.getFilePointer() >= framesEnd) {
+            return false;
+        }
+        readFrame();
+        return true;
+    }
+
+    /**
+     * Moves to the last recorded generation at or before the given step. Going forward without passing a keyframe
+     * carries on from the generation the reader is at.
+     */
+    public void seek(int target) throws IOException {
+        if (target < getFirstStep()) {
+            throw new IllegalArgumentException(String.format("Step %d is before the recording starts at step %d",
+                    target, getFirstStep()));
+        }
+        int keyframe = Arrays.binarySearch(keyframeSteps, target);
+        if (keyframe < 0) {
+            keyframe = -keyframe - 2;
+        }
+        if (target < step || step < keyframeSteps[keyframe]) {
+            in.seek(keyframePositions[keyframe]);
+            readFrame();
+        }
+        while (in.getFilePointer() < framesEnd && peekStep() <= target) {
+            readFrame();
+        }
+    }
+
+    /**
+     * Sets every cell of a game to the generation the reader is at. The game's step count is left alone.
+     */
+    public void restore(GameState gameState) {
+        if (gameState.getBoardWidth() != width || gameState.getBoardHeight() != height) {
+            throw new IllegalArgumentException("The game's board isn't the size of the recording");
+        }
+        boolean[][] board = new boolean[height][width];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                board[y][x] = (cells[y * wordsPerRow + (x >>> 6)] & (1L << x)) != 0;
+            }
+        }
+        gameState.setCells(0, 0, board);
+    }
+
+    private int peekStep() throws IOException {
+        long position = in.getFilePointer();
+        in.skipBytes(1);
+        int next = in.readInt();
+        in.seek(position);
+        return next;
+    }
+
+    private void readFrame() throws IOException {
+        byte kind = in.readByte();
+        int frameStep = in.readInt();
+        int length = in.readInt();
+        if (length > buffer.length) {
+            buffer = new byte[Math.max(length, buffer.length * 2)];
+        }
+        in.readFully(buffer, 0, length);
+        if (kind == KEYFRAME) {
+            if (length != cells.length * 8) {
+                throw new IOException("Keyframe for step " + frameStep + " is the wrong size");
+            }
+            for (int i = 0, offset = 0; i < cells.length; i++) {
+                long word = 0;
+                for (int b = 0; b < 8; b++) {
+                    word = (word << 8) | (buffer[offset++] & 0xff);
+                }
+                cells[i] = word;
+            }
+        } else if (kind == DELTA) {
+            applyDelta(length);
+        } else {
+            throw new IOException("Unknown frame kind " + kind + " for step " + frameStep);
+        }
+        step = frameStep;
+    }
+
+    private void applyDelta(int length) throws IOException {
+        at = 0;
+        long changes = readVarInt(length);
+        long index = -1;
+        for (long i = 0; i < changes; i++) {
+            index += readVarInt(length) + 1;
+            int y = (int) (index / width);
+            int x = (int) (index % width);
+            if (y >= height) {
+                throw new IOException("A change at step " + step + " is off the board");
+            }
+            cells[y * wordsPerRow + (x >>> 6)] ^= 1L << x;
+        }
+    }
+
+    private long readVarInt(int length) throws IOException {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            if (at >= length) {
+                throw new IOException("A delta ends early");
+            }
+            byte b = buffer[at++];
+            value |= (long) (b & 0x7f) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
@@ -0,0 +1,242 @@
+package conlife.utils;
+
+import conlife.GameState;
+import conlife.Generation;
+
+import java.awt.Dimension;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Records the generations of a game to a file as they are computed. Every so often a whole generation is written as a
+ * keyframe, and in between only the cells that changed since the generation before are written, so a recording takes
+ * a small fraction of the space of an image per generation. The positions of the keyframes are written at the end of
+ * the file when the writer is closed, so a {@link RecordingReader} can go to any generation by reading at most one
+ * keyframe and the changes after it.
+ * <p>
+ * A recording starts with a header of the magic number, the format version, and the width and height of the board.
+ * Each generation follows as a frame of a kind byte, the step, and the length and bytes of its contents. A keyframe
+ * holds the rows of the board as in {@link Generation#getWord(int, int)}. A delta holds how many cells changed, then
+ * the index y * width + x of each of them in increasing order, as the gap from the one before, in variable length
+ * quantities. The file ends with the step and position of every keyframe, then the number of frames, the last step,
+ * the position of the keyframe list and the magic number again.
+ */
+public class RecordingWriter implements Closeable {
+
+    static final int MAGIC = 0x434c5243; // CLRC
+    static final int VERSION = 1;
+    static final byte KEYFRAME = 0, DELTA = 1;
+    static final int HEADER_BYTES = 16;
+    static final int TRAILER_BYTES = 20;
+    public static final int DEFAULT_KEYFRAME_INTERVAL = 100;
+
+    // Sample of how to use RecordingWriter
+    public static void main(String[] args) throws Exception {
+        GameState game = GameState.createNewGame(new Dimension(1000, 1000));
+        Lif1_5Reader.loadInto(game, "./samples/LINEPUF.LIF");
+        try (RecordingWriter writer = createRecordingWriter(new File("./linepuf.rec"), game)) {
+            writer.recordCurrentGameStep();
+            for (int step = 0; step < 100; step++) {
+                writer.record(game.stepAsync(1).join());
+            }
+        }
+    }
+
+    /**
+     * Creates a RecordingWriter that records the generations of a game to a file, replacing anything already in it.
+     *
+     * @param file the file to record to.
+     * @param gameState the game to record, which has to have a bounded board.
+     * @return a new RecordingWriter.
+     */
+    public static RecordingWriter createRecordingWriter(File file, GameState gameState) throws IOException {
+        return new RecordingWriter(file, gameState);
+    }
+
+    private final GameState gameState;
+    private final int width, height, wordsPerRow;
+    private final DataOutputStream out;
+    private long position;
+    private int keyframeInterval = DEFAULT_KEYFRAME_INTERVAL;
+    private int sinceKeyframe;
+    private int frames;
+    private int lastStep = -1;
+    // The last generation recorded, to find the cells that changed since
+    private long[] previous;
+    // The contents of the frame being written
+    private byte[] buffer = new byte[256];
+    private int bufferSize;
+    // The step and position of every keyframe, in the order they were written
+    private int[] keyframeSteps = new int[16];
+    private long[] keyframePositions = new long[16];
+    private int keyframes;
+
+    private RecordingWriter(File file, GameState gameState) throws IOException {
+        if (!gameState.getEngine().isBounded()) {
+            throw new IllegalArgumentException("Only games on a bounded board can be recorded");
+        }
+        this.gameState = gameState;
+        width = gameState.getBoardWidth();
+        height = gameState.getBoardHeight();
+        wordsPerRow = (width + 63) >>> 6;
+        previous = new long[wordsPerRow * height];
+        out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16));
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(width);
+        out.writeInt(height);
+        position = HEADER_BYTES;
+    }
+
+    /**
+     * Sets the most generations written as deltas between keyframes. Seeking reads at most this many deltas, and fewer
+     * keyframes make the recording smaller. A generation that changes so much that its delta would be as big as a
+     * keyframe is always written as a keyframe.
+     */
+    public void setKeyframeInterval(int keyframeInterval) {
+        if (keyframeInterval < 1) {
+            throw new IllegalArgumentException("The keyframe interval has to be at least one generation");
+        }
+        this.keyframeInterval = keyframeInterval;
+    }
+
+    public int getKeyframeInterval() {
+        return keyframeInterval;
+    }
+
+    /**
+     * Records the generation the game is at. This waits for any steps the game is computing in the background.
+     */
+    public void recordCurrentGameStep() throws IOException {
+        record(gameState.snapshot());
+    }
+
+    /**
+     * Records a generation of the game. Generations have to be recorded in the order they were computed, and the game
+     * can go on stepping while this runs.
+     */
+    public void record(Generation generation) throws IOException {
+        if (generation.getWidth() != width || generation.getHeight() != height) {
+            throw new IllegalArgumentException("The generation isn't from a board the size of the recording");
+        }
+        if (generation.getStep() <= lastStep) {
+            throw new IllegalArgumentException(String.format("Step %d was recorded after step %d",
+                    generation.getStep(), lastStep));
+        }
+        int keyframeBytes = previous.length * 8;
+        boolean keyframe = frames == 0 || sinceKeyframe + 1 >= keyframeInterval;
+        if (!keyframe) {
+            keyframe = !encodeDelta(generation, keyframeBytes);
+        }
+        if (keyframe) {
+            encodeKeyframe(generation);
+            addKeyframe(generation.getStep(), position);
+            sinceKeyframe = 0;
+        } else {
+            sinceKeyframe++;
+        }
+        out.writeByte(keyframe ? KEYFRAME : DELTA);
+        out.writeInt(generation.getStep());
+        out.writeInt(bufferSize);
+        out.write(buffer, 0, bufferSize);
+        position += 9 + bufferSize;
+        frames++;
+        lastStep = generation.getStep();
+    }
+
+    // Writes the cells that changed into the buffer, unless that takes more than the given number of bytes
+    private boolean encodeDelta(Generation generation, int limit) {
+        int changes = 0;
+        for (int y = 0, i = 0; y < height; y++) {
+            for (int w = 0; w < wordsPerRow; w++, i++) {
+                changes += Long.bitCount(generation.getWord(y, w) ^ previous[i]);
+            }
+        }
+        bufferSize = 0;
+        writeVarInt(changes);
+        long last = -1;
+        for (int y = 0, i = 0; y < height; y++) {
+            for (int w = 0; w < wordsPerRow; w++, i++) {
+                long word = generation.getWord(y, w);
+                long changed = word ^ previous[i];
+                previous[i] = word;
+                while (changed != 0) {
+                    long index = (long) y * width + (w << 6) + Long.numberOfTrailingZeros(changed);
+                    writeVarInt(index - last - 1);
+                    last = index;
+                    changed &= changed - 1;
+                }
+            }
+            if (bufferSize > limit) {
+                // The keyframe written instead brings the rest of the last generation up to date
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void encodeKeyframe(Generation generation) {
+        bufferSize = 0;
+        ensureCapacity(previous.length * 8);
+        for (int y = 0, i = 0; y < height; y++) {
+            for (int w = 0; w < wordsPerRow; w++, i++) {
+                long word = generation.getWord(y, w);
+                previous[i] = word;
+                for (int shift = 56; shift >= 0; shift -= 8) {
+                    buffer[bufferSize++] = (byte) (word >>> shift);
+                }
+            }
+        }
+    }
+
+    private void writeVarInt(long value) {
+        ensureCapacity(bufferSize + 10);
+        while ((value & ~0x7fL) != 0) {
+            buffer[bufferSize++] = (byte) ((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        buffer[bufferSize++] = (byte) value;
+    }
+
+    private void ensureCapacity(int size) {
+        if (size > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(size, buffer.length * 2));
+        }
+    }
+
+    private void addKeyframe(int step, long at) {
+        if (keyframes == keyframeSteps.length) {
+            keyframeSteps = Arrays.copyOf(keyframeSteps, keyframes * 2);
+            keyframePositions = Arrays.copyOf(keyframePositions, keyframes * 2);
+        }
+        keyframeSteps[keyframes] = step;
+        keyframePositions[keyframes] = at;
+        keyframes++;
+    }
+
+    /**
+     * Writes the list of keyframes and closes the file. A recording can't be read until its writer has been closed.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            long index = position;
+            out.writeInt(keyframes);
+            for (int i = 0; i < keyframes; i++) {
+                out.writeInt(keyframeSteps[i]);
+                out.writeLong(keyframePositions[i]);
+            }
+            out.writeInt(frames);
+            out.writeInt(lastStep);
+            out.writeLong(index);
+            out.writeInt(MAGIC);
+        } finally {
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package conlife.utils;
+
+import conlife.GameState;
+import conlife.Rules;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+
+/**
+ * Loads patterns in the run length encoded format most patterns are published in. A pattern starts with # lines of
+ * comments, then a header line giving its size and optionally its rules, such as
+ * <pre>
+ * x = 3, y = 3, rule = B3/S23
+ * </pre>
+ * and then runs of b for dead cells, o for living ones and $ for the ends of rows, each optionally preceded by how many
+ * there are, up to a closing !. The runs are read a character at a time and each living cell is set on the board as
+ * soon as it is read, so a pattern is never expanded into a grid first.
+ */
+public class RleReader {
+
+    private RleReader() {
+    }
+
+    /**
+     * Loads a pattern from the given resource or file onto the board of a game, centered on it. The resource is first
+     * checked for on the class path and if it is not found there it is treated as a file name. The cells of the pattern
+     * are added to what is already on the board, and if the pattern can't be loaded the board is left as it was.
+     *
+     * @param game The game to load onto.
+     * @param resourceName The name of the resource or file to load from.
+     * @return The rules in the pattern, or the default rules if it doesn't give any. They are not applied to the game.
+     * @throws IOException If the pattern can't be read.
+     * @throws ParseException If the pattern is malformed or doesn't fit on the board.
+     * @throws Rules.RulesException If the pattern contains invalid rules.
+     */
+    public static Rules loadInto(GameState game, String resourceName) throws IOException, ParseException,
+            Rules.RulesException {
+        InputStream is = RleReader.class.getResourceAsStream(resourceName);
+        if (is == null) {
+            is = new FileInputStream(resourceName);
+        }
+        try (Reader in = new InputStreamReader(is, StandardCharsets.ISO_8859_1)) {
+            return loadInto(game, in);
+        }
+    }
+
+    /**
+     * Loads a pattern from a stream of RLE text onto the board of a game, like {@link #loadInto(GameState, String)}.
+     */
+    public static Rules loadInto(GameState game, Reader reader) throws IOException, ParseException,
+            Rules.RulesException {
+        Input in = new Input(reader);
+        // Comment lines come first
+        int c = in.read();
+        while (c == '#' || c == '\r' || c == '\n') {
+            while (c != '\n' && c != -1) {
+                c = in.read();
+            }
+            c = in.read();
+        }
+        in.unread(c);
+        String header = in.readLine();
+        if (header == null) {
+            throw new ParseException("The pattern has no header", in.line);
+        }
+        int width = -1, height = -1;
+        Rules rules = Rules.parseRules(GameState.DEFAULT_RULES_STRING);
+        for (String field : header.split(",")) {
+            int equals = field.indexOf('=');
+            if (equals < 0) {
+                throw new ParseException("Unknown header field " + field.trim(), in.line);
+            }
+            String name = field.substring(0, equals).trim();
+            String value = field.substring(equals + 1).trim();
+            try {
+                if (name.equals("x")) {
+                    width = Integer.parseInt(value);
+                } else if (name.equals("y")) {
+                    height = Integer.parseInt(value);
+                } else if (name.equals("rule")) {
+                    rules = Rules.parsePatternRules(value);
+                }
+            } catch (NumberFormatException e) {
+                throw new ParseException("Bad pattern size " + value, in.line);
+            }
+        }
+        if (width < 0 || height < 0) {
+            throw new ParseException("The header doesn't give the size of the pattern", in.line);
+        }
+
+        int left = (game.getBoardWidth() - width) / 2;
+        int top = (game.getBoardHeight() - height) / 2;
+        boolean bounded = game.getEngine().isBounded();
+        if (bounded && (left < 0 || top < 0)) {
+            throw new ParseException(String.format("A %dx%d pattern doesn't fit on the board", width, height), in.line);
+        }
+        try (GameState.CellBatch batch = game.beginBatch()) {
+            try {
+                readRuns(in, batch, left, top, width, height);
+            } catch (Exception e) {
+                // Nothing is loaded from a pattern that can't be loaded completely
+                batch.rollBack();
+                throw e;
+            }
+        }
+        return rules;
+    }
+
+    private static void readRuns(Input in, GameState.CellBatch batch, int left, int top, int width, int height)
+            throws IOException, ParseException {
+        int x = 0, y = 0;
+        int count = 0;
+        int c;
+        while ((c = in.read()) != '!') {
+            if (c == -1) {
+                // Some patterns leave off the closing !
+                break;
+            } else if (c >= '0' && c <= '9') {
+                count = count * 10 + (c - '0');
+                if (count > 100_000_000) {
+                    throw in.error("Run too long");
+                }
+                continue;
+            } else if (c == ' ' || c == '\t' || c == '\r' || c == '\n') {
+                continue;
+            }
+            int run = Math.max(1, count);
+            count = 0;
+            if (c == '$') {
+                x = 0;
+                y += run;
+                // The last row can be ended with a $ too, which leaves y just past the pattern
+                if (y > height) {
+                    throw in.error(String.format("Row %d is outside the %dx%d pattern", y, width, height));
+                }
+            } else if (c == 'b' || c == '.') {
+                x += run;
+            } else if (c == 'o' || (c >= 'A' && c <= 'X')) {
+                // Patterns with more than two states are loaded with every state but the first as alive
+                if (x + run > width || y >= height) {
+                    throw in.error(String.format("The cells at (%d, %d) are outside the %dx%d pattern",
+                            x, y, width, height));
+                }
+                for (int end = x + run; x < end; x++) {
+                    batch.setAlive(left + x, top + y, true);
+                }
+            } else {
+                throw in.error("Unknown cell state " + (char) c);
+            }
+        }
+    }
+
+    /**
+     * A buffered stream of characters that counts lines and columns.
+     */
+    private static final class Input {
+        private final Reader in;
+        private final char[] buffer = new char[8192];
+        private int position, limit;
+        private int pushedBack = -2;
+        int line = 1, column = 0;
+
+        Input(Reader in) {
+            this.in = in;
+        }
+
+        int read() throws IOException {
+            int c;
+            if (pushedBack != -2) {
+                c = pushedBack;
+                pushedBack = -2;
+                return c;
+            }
+            if (position == limit) {
+                limit = in.read(buffer, 0, buffer.length);
+                position = 0;
+                if (limit <= 0) {
+                    limit = 0;
+                    return -1;
+                }
+            }
+            c = buffer[position++];
+            if (c == '\n') {
+                line++;
+                column = 0;
+            } else {
+                column++;
+            }
+            return c;
+        }
+
+        // An error at the last character read, with the line as its offset
+        ParseException error(String message) {
+            return new ParseException(String.format("%s at line %d, column %d", message, line, column), line);
+        }
+
+        void unread(int c) {
+            pushedBack = c;
+        }
+
+        String readLine() throws IOException {
+            StringBuilder b = new StringBuilder();
+            int c = read();
+            if (c == -1) {
+                return null;
+            }
+            while (c != '\n' && c != -1) {
+                if (c != '\r') {
+                    b.append((char) c);
+                }
+                c = read();
+            }
+            return b.toString();
+        }
+    }
+}
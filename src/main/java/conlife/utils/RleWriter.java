@@ -0,0 +1,154 @@
+package conlife.utils;
+
+import conlife.GameState;
+import conlife.Generation;
+import conlife.Rules;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Used to create run length encoded pattern files of a game's current state. Only the smallest rectangle holding every
+ * living cell is written, and runs of the same state are written as a count and the state, so a file is usually a tiny
+ * fraction of the size of a {@link PgmWriter} image of the same board. The files can be loaded again with an
+ * {@link RleReader}.
+ */
+public class RleWriter {
+
+    // Lines of runs are kept under this length, as the format asks
+    private static final int LINE_LENGTH = 70;
+
+    /**
+     * Creates an RleWriter that can be used to create RLE files in a given directory.
+     *
+     * @param outputDirectory the directory to store all the RLE files.
+     * @param gameState the game state to create RLE output for.
+     * @return a new RleWriter.
+     */
+    public static RleWriter createRleWriter(File outputDirectory, GameState gameState) throws IOException {
+        return new RleWriter(outputDirectory, gameState);
+    }
+
+    private final File outputDirectory;
+    private final GameState gameState;
+    private int currentOutputNum = 0;
+
+    private RleWriter(File outputDirectory, GameState gameState) throws IOException {
+        this.outputDirectory = outputDirectory;
+        this.gameState = gameState;
+
+        if (!outputDirectory.exists() && !outputDirectory.mkdir()) {
+            throw new IOException("The output directory cannot be found or created");
+        }
+    }
+
+    /**
+     * Creates an RLE file in the output directory of this RleWriter using an ordered numbering file name.
+     */
+    public void createOutputForCurrentGameStep() throws IOException {
+        createOutput(gameState.snapshot());
+    }
+
+    /**
+     * Creates the next RLE file in the output directory from a generation of the game. The game can go on stepping
+     * while this runs.
+     */
+    public void createOutput(Generation generation) throws IOException {
+        File file = new File(outputDirectory, String.format("out%04d.rle", currentOutputNum));
+        try (Writer out = new BufferedWriter(new FileWriter(file))) {
+            write(generation, gameState.getRules(), out);
+        }
+        currentOutputNum++;
+    }
+
+    /**
+     * Writes the living cells of a generation as an RLE pattern.
+     */
+    public static void write(Generation generation, Rules rules, Writer out) throws IOException {
+        int top = -1, bottom = -1;
+        int left = Integer.MAX_VALUE, right = -1;
+        for (int y = 0; y < generation.getHeight(); y++) {
+            for (int w = 0; w < generation.getWordsPerRow(); w++) {
+                long word = generation.getWord(y, w);
+                if (word != 0) {
+                    if (top < 0) {
+                        top = y;
+                    }
+                    bottom = y;
+                    left = Math.min(left, (w << 6) + Long.numberOfTrailingZeros(word));
+                    right = Math.max(right, (w << 6) + 63 - Long.numberOfLeadingZeros(word));
+                }
+            }
+        }
+        out.write("#C Generation " + generation.getStep() + "\n");
+        if (top < 0) {
+            out.write("x = 0, y = 0, rule = " + rules + "\n!\n");
+            return;
+        }
+        out.write(String.format("x = %d, y = %d, rule = %s\n", right - left + 1, bottom - top + 1, rules));
+        Runs runs = new Runs(out);
+        for (int y = top; y <= bottom; y++) {
+            int x = left;
+            while (x <= right) {
+                boolean alive = generation.isAlive(x, y);
+                int end = x + 1;
+                while (end <= right && generation.isAlive(end, y) == alive) {
+                    end++;
+                }
+                // Dead cells at the end of a row are left out
+                if (alive || end <= right) {
+                    runs.add(end - x, alive ? 'o' : 'b');
+                }
+                x = end;
+            }
+            runs.add(1, y == bottom ? '!' : '$');
+        }
+        runs.finish();
+    }
+
+    /**
+     * Writes runs, merging the ends of empty rows into one run and breaking lines before they get too long.
+     */
+    private static final class Runs {
+        private final Writer out;
+        private int lineLength;
+        private int pendingCount;
+        private char pendingTag;
+
+        Runs(Writer out) {
+            this.out = out;
+        }
+
+        void add(int count, char tag) throws IOException {
+            if (tag == '$' && pendingTag == '$') {
+                pendingCount += count;
+                return;
+            }
+            flush();
+            pendingCount = count;
+            pendingTag = tag;
+        }
+
+        private void flush() throws IOException {
+            if (pendingTag == 0) {
+                return;
+            }
+            String run = pendingCount == 1 ? String.valueOf(pendingTag) : pendingCount + String.valueOf(pendingTag);
+            if (lineLength + run.length() > LINE_LENGTH) {
+                out.write('\n');
+                lineLength = 0;
+            }
+            out.write(run);
+            lineLength += run.length();
+            pendingTag = 0;
+        }
+
+        void finish() throws IOException {
+            flush();
+            out.write('\n');
+        }
+    }
+}
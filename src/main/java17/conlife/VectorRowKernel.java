@@ -0,0 +1,101 @@
+package conlife;
+
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorSpecies;
+
+import static jdk.incubator.vector.VectorOperators.LSHL;
+import static jdk.incubator.vector.VectorOperators.LSHR;
+import static jdk.incubator.vector.VectorOperators.NE;
+import static jdk.incubator.vector.VectorOperators.XOR;
+
+/**
+ * Steps as many words of a bit-packed row at once as the widest vector the CPU supports will hold, four with AVX2 and
+ * eight with AVX-512. The neighbor counts and the rules are worked out the same way as
+ * {@link BitBoardEngine#nextWord}, just across every lane of the vectors. This is only built by the vector profile and
+ * {@link BitBoardEngine} only picks it up when the jdk.incubator.vector module is present.
+ */
+class VectorRowKernel implements BitBoardEngine.RowKernel {
+
+    private static final VectorSpecies<Long> SPECIES = LongVector.SPECIES_PREFERRED;
+
+    @Override
+    public int stepWords(long[] board, long[] result, int up, int mid, int down, int from, int to, long[] birth,
+                         long[] survive) {
+        final int lanes = SPECIES.length();
+        int w = from;
+        for (; w + lanes <= to; w += lanes) {
+            stepVector(board, result, up + w, mid + w, down + w, birth, survive);
+        }
+        return w;
+    }
+
+    // Computes one vector's worth of words, given the positions of the first of them in each of the three rows. It's
+    // all written out in here because the JIT doesn't reliably inline helper methods into a method this big, and any
+    // vector that's passed to a call that isn't inlined gets allocated on the heap.
+    private static void stepVector(long[] board, long[] result, int up, int mid, int down, long[] birth,
+                                   long[] survive) {
+        LongVector north = LongVector.fromArray(SPECIES, board, up);
+        LongVector alive = LongVector.fromArray(SPECIES, board, mid);
+        LongVector south = LongVector.fromArray(SPECIES, board, down);
+        LongVector northBefore = LongVector.fromArray(SPECIES, board, up - 1);
+        LongVector midBefore = LongVector.fromArray(SPECIES, board, mid - 1);
+        LongVector southBefore = LongVector.fromArray(SPECIES, board, down - 1);
+        LongVector northAfter = LongVector.fromArray(SPECIES, board, up + 1);
+        LongVector midAfter = LongVector.fromArray(SPECIES, board, mid + 1);
+        LongVector southAfter = LongVector.fromArray(SPECIES, board, down + 1);
+
+        LongVector any = north.or(alive).or(south).or(northBefore).or(midBefore).or(southBefore)
+                .or(northAfter).or(midAfter).or(southAfter);
+        if (!any.compare(NE, 0).anyTrue()) {
+            // Nothing alive in or around these cells, which is most of a sparse board
+            LongVector.broadcast(SPECIES, birth[0]).intoArray(result, mid);
+            return;
+        }
+
+        // The cell on the far end of the word before moves into bit 0 of the west neighbors, and bit 0 of the word
+        // after into bit 63 of the east neighbors
+        LongVector northWest = north.lanewise(LSHL, 1).or(northBefore.lanewise(LSHR, 63));
+        LongVector northEast = north.lanewise(LSHR, 1).or(northAfter.lanewise(LSHL, 63));
+        LongVector west = alive.lanewise(LSHL, 1).or(midBefore.lanewise(LSHR, 63));
+        LongVector east = alive.lanewise(LSHR, 1).or(midAfter.lanewise(LSHL, 63));
+        LongVector southWest = south.lanewise(LSHL, 1).or(southBefore.lanewise(LSHR, 63));
+        LongVector southEast = south.lanewise(LSHR, 1).or(southAfter.lanewise(LSHL, 63));
+
+        // The same carry-save adders as BitBoardEngine.nextWord
+        LongVector sum1 = northWest.lanewise(XOR, north).lanewise(XOR, northEast);
+        LongVector carry1 = northWest.and(north).or(northEast.and(northWest.lanewise(XOR, north)));
+        LongVector sum2 = west.lanewise(XOR, east).lanewise(XOR, southWest);
+        LongVector carry2 = west.and(east).or(southWest.and(west.lanewise(XOR, east)));
+        LongVector sum3 = south.lanewise(XOR, southEast);
+        LongVector carry3 = south.and(southEast);
+        LongVector ones = sum1.lanewise(XOR, sum2).lanewise(XOR, sum3);
+        LongVector carry4 = sum1.and(sum2).or(sum3.and(sum1.lanewise(XOR, sum2)));
+        LongVector sum5 = carry1.lanewise(XOR, carry2).lanewise(XOR, carry3);
+        LongVector carry5 = carry1.and(carry2).or(carry3.and(carry1.lanewise(XOR, carry2)));
+        LongVector twos = sum5.lanewise(XOR, carry4);
+        LongVector carry6 = sum5.and(carry4);
+        LongVector fours = carry5.lanewise(XOR, carry6);
+        LongVector eights = carry5.and(carry6);
+
+        // The next state of every cell for each neighbor count, which are then selected from on the bits of the count
+        // like BitBoardEngine.applyRules does
+        LongVector rule0 = alive.and(birth[0] ^ survive[0]).lanewise(XOR, birth[0]);
+        LongVector rule1 = alive.and(birth[1] ^ survive[1]).lanewise(XOR, birth[1]);
+        LongVector rule2 = alive.and(birth[2] ^ survive[2]).lanewise(XOR, birth[2]);
+        LongVector rule3 = alive.and(birth[3] ^ survive[3]).lanewise(XOR, birth[3]);
+        LongVector rule4 = alive.and(birth[4] ^ survive[4]).lanewise(XOR, birth[4]);
+        LongVector rule5 = alive.and(birth[5] ^ survive[5]).lanewise(XOR, birth[5]);
+        LongVector rule6 = alive.and(birth[6] ^ survive[6]).lanewise(XOR, birth[6]);
+        LongVector rule7 = alive.and(birth[7] ^ survive[7]).lanewise(XOR, birth[7]);
+        LongVector rule8 = alive.and(birth[8] ^ survive[8]).lanewise(XOR, birth[8]);
+        // Each selection takes the second value where the selector is set and the first everywhere else
+        LongVector zeroOrOne = rule0.lanewise(XOR, rule0.lanewise(XOR, rule1).and(ones));
+        LongVector twoOrThree = rule2.lanewise(XOR, rule2.lanewise(XOR, rule3).and(ones));
+        LongVector fourOrFive = rule4.lanewise(XOR, rule4.lanewise(XOR, rule5).and(ones));
+        LongVector sixOrSeven = rule6.lanewise(XOR, rule6.lanewise(XOR, rule7).and(ones));
+        LongVector upToThree = zeroOrOne.lanewise(XOR, zeroOrOne.lanewise(XOR, twoOrThree).and(twos));
+        LongVector fourToSeven = fourOrFive.lanewise(XOR, fourOrFive.lanewise(XOR, sixOrSeven).and(twos));
+        LongVector lowCounts = upToThree.lanewise(XOR, upToThree.lanewise(XOR, fourToSeven).and(fours));
+        lowCounts.lanewise(XOR, lowCounts.lanewise(XOR, rule8).and(eights)).intoArray(result, mid);
+    }
+}
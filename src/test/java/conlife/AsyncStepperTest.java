@@ -0,0 +1,111 @@
+package conlife;
+
+import conlife.utils.Lif1_5Reader;
+import org.junit.Test;
+
+import java.awt.Dimension;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.Assert.*;
+
+public class AsyncStepperTest {
+
+    @Test
+    public void testMatchesDirectSteps() throws Exception {
+        String[] lines = Lif1_5Reader.fromResourceOrFile(new Dimension(80, 80), "/samples/ACORN.LIF")
+                .createBoardString('.', '#').split("\n");
+        int[] requests = {1, 1, 3, 1, 7, 2, 1};
+        for (GameState.Engine engine : new GameState.Engine[]{GameState.Engine.CELLS, GameState.Engine.DENSE}) {
+            for (int lookahead : new int[]{0, 1, 3}) {
+                GameState direct = GameState.createNewGame(lines, '#', 3, engine);
+                GameState async = GameState.createNewGame(lines, '#', 3, engine);
+                async.setLookahead(lookahead);
+                // Asks for the next generation before reading the last one, as a consumer that overlaps would
+                CompletableFuture<Generation> next = async.stepAsync(requests[0]);
+                for (int i = 0; i < requests.length; i++) {
+                    Generation generation = next.join();
+                    if (i + 1 < requests.length) {
+                        next = async.stepAsync(requests[i + 1]);
+                    }
+                    direct.processGameSteps(requests[i]);
+                    assertEquals(engine + " lookahead " + lookahead, direct.getCurrentStep(), generation.getStep());
+                    assertEquals(engine + " lookahead " + lookahead + " step " + generation.getStep(),
+                            direct.createBoardString('.', '#'), boardString(generation));
+                }
+                // Direct use picks up from the last generation computed ahead of time
+                Generation last = async.snapshot();
+                assertEquals(direct.getCurrentStep() + lookahead, last.getStep());
+                async.close();
+            }
+        }
+    }
+
+    @Test
+    public void testClosedGameRefusesSteps() {
+        GameState game = GameState.createNewGame(new Dimension(10, 10), 1);
+        game.stepAsync(5);
+        game.close();
+        assertEquals(6, game.getCurrentStep());
+        try {
+            game.stepAsync(1);
+            fail("Expected a closed game to refuse steps");
+        } catch (IllegalStateException expected) {
+        }
+    }
+
+    @Test
+    public void testFailedStepFailsLaterOnes() {
+        GameState game = GameState.createNewGame(new Dimension(10, 10), 1);
+        game.setLookahead(0);
+        game.getCell(5, 5).setCurrentlyAlive(true);
+        game.setRules(null);
+        CompletableFuture<Generation> failed = game.stepAsync(1);
+        CompletableFuture<Generation> later = game.stepAsync(1);
+        try {
+            later.join();
+            fail("Expected the step after a failed one to fail");
+        } catch (CompletionException expected) {
+            assertTrue(failed.isCompletedExceptionally());
+        }
+    }
+
+    @Test
+    public void testSteppingCarriesOnAfterAFailure() throws Exception {
+        GameState game = GameState.createNewGame(new Dimension(10, 10), 1);
+        game.setLookahead(0);
+        game.getCell(5, 5).setCurrentlyAlive(true);
+        Rules rules = game.getRules();
+        game.setRules(null);
+        try {
+            game.stepAsync(1).join();
+            fail("Expected a step without rules to fail");
+        } catch (CompletionException expected) {
+        }
+        game.setRules(rules);
+        Generation generation = game.stepAsync(2).join();
+        assertEquals(game.getCurrentStep(), generation.getStep());
+        // Settling after a failure leaves the game able to step too
+        game.getCell(5, 5).setCurrentlyAlive(true);
+        game.setRules(null);
+        CompletableFuture<Generation> failed = game.stepAsync(1);
+        game.snapshot();
+        assertTrue(failed.isCompletedExceptionally());
+        game.setRules(rules);
+        assertEquals(game.getCurrentStep() + 1, game.stepAsync(1).join().getStep());
+        game.close();
+    }
+
+    private static String boardString(Generation generation) {
+        StringBuilder builder = new StringBuilder();
+        for (int y = 0; y < generation.getHeight(); y++) {
+            if (y != 0) {
+                builder.append("\n");
+            }
+            for (int x = 0; x < generation.getWidth(); x++) {
+                builder.append(generation.isAlive(x, y) ? '#' : '.');
+            }
+        }
+        return builder.toString();
+    }
+}
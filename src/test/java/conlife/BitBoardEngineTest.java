@@ -0,0 +1,100 @@
+package conlife;
+
+import org.junit.Test;
+
+import java.awt.Dimension;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class BitBoardEngineTest {
+
+    private static final String initialCondition
+            = ".......\n"
+            + ".###...\n"
+            + ".......\n"
+            + ".......\n"
+            + ".......\n"
+            + "...##..\n"
+            + "...##..\n"
+            + ".......\n"
+            + ".......";
+
+    private static final String step1
+            = "..#....\n"
+            + "..#....\n"
+            + "..#....\n"
+            + ".......\n"
+            + ".......\n"
+            + "...##..\n"
+            + "...##..\n"
+            + ".......\n"
+            + ".......";
+
+    @Test
+    public void testSampleGame() {
+        GameState game = GameState.createNewGame(initialCondition.split("\n"), '#', GameState.Engine.BIT_PACKED);
+        assertEquals(GameState.Engine.BIT_PACKED, game.getEngine());
+        assertEquals(initialCondition, game.createBoardString('.', '#'));
+        game.processGameStep();
+        assertEquals(step1, game.createBoardString('.', '#'));
+        assertEquals(1, game.getCurrentStep());
+        game.processGameStep();
+        assertEquals(initialCondition, game.createBoardString('.', '#'));
+    }
+
+    @Test
+    public void testMatchesCellEngine() throws Exception {
+        compareWithCellEngine(Rules.parseRules("B3/S23"));
+        compareWithCellEngine(Rules.parseRules("B36/S23"));
+    }
+
+    private void compareWithCellEngine(Rules rules) {
+        // Widths on both sides of a word boundary so the wrap around between words gets exercised, and a wide one for
+        // the vector kernel when it's available
+        int[][] sizes = {{5, 7}, {63, 10}, {64, 9}, {65, 12}, {130, 20}, {1000, 12}};
+        Random random = new Random(42);
+        for (int[] size : sizes) {
+            Dimension boardSize = new Dimension(size[0], size[1]);
+            GameState cells = GameState.createNewGame(rules, boardSize, 1);
+            GameState bits = GameState.createNewGame(rules, boardSize, 1, GameState.Engine.BIT_PACKED);
+            for (int y = 0; y < size[1]; y++) {
+                for (int x = 0; x < size[0]; x++) {
+                    if (random.nextInt(3) == 0) {
+                        cells.getCell(x, y).setCurrentlyAlive(true);
+                        bits.getCell(x, y).setCurrentlyAlive(true);
+                    }
+                }
+            }
+            for (int step = 0; step < 30; step++) {
+                cells.processGameStep();
+                bits.processGameStep();
+                assertEquals("Size " + size[0] + "x" + size[1] + " step " + step,
+                        cells.createBoardString('.', '#'), bits.createBoardString('.', '#'));
+                assertEquals(changedCells(cells), changedCells(bits));
+            }
+        }
+    }
+
+    @Test
+    public void testCellView() {
+        GameState game = GameState.createNewGame(initialCondition.split("\n"), '#', GameState.Engine.BIT_PACKED);
+        Cell cell = game.getCell(2, 1);
+        assertTrue(cell.isAlive());
+        assertEquals(2, cell.getLivingNeighborCount());
+        assertTrue(cell.getNeighbor(Direction.EAST).isAlive());
+        assertFalse(cell.getNeighbor(Direction.NORTH).isAlive());
+        cell.setCurrentlyAlive(false);
+        assertFalse(game.isAlive(2, 1));
+    }
+
+    private static Set<String> changedCells(GameState game) {
+        Set<String> changed = new HashSet<>();
+        for (Cell cell : game.getCellsThatChangedState()) {
+            changed.add(cell.getX() + "," + cell.getY() + "," + cell.isAlive());
+        }
+        return changed;
+    }
+}
@@ -0,0 +1,68 @@
+package conlife;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class CellFrontierTest {
+
+    @Test
+    public void testMarks() {
+        CellFrontier frontier = new CellFrontier(130);
+        frontier.addToUpdate(3);
+        frontier.addToNextStep(129);
+        assertTrue(frontier.isInUpdate(3));
+        assertFalse(frontier.isInNextStep(3));
+        // Cells checked next step are updated in this one too
+        assertTrue(frontier.isInUpdate(129));
+        assertTrue(frontier.isInNextStep(129));
+        assertFalse(frontier.isInUpdate(128));
+    }
+
+    @Test
+    public void testMarksFromEveryThreadAreMerged() {
+        // A random soup spread over the work queues of every thread, so the cells where the threads' shares meet are
+        // marked by more than one of them
+        Random random = new Random(5);
+        String[] lines = new String[64];
+        for (int y = 0; y < lines.length; y++) {
+            StringBuilder line = new StringBuilder();
+            for (int x = 0; x < 64; x++) {
+                line.append(random.nextInt(3) == 0 ? '#' : '.');
+            }
+            lines[y] = line.toString();
+        }
+        try (GameState single = GameState.createNewGame(lines, '#', 1);
+             GameState shared = GameState.createNewGame(lines, '#', 4)) {
+            for (int step = 0; step < 20; step++) {
+                single._determineCellsNextState();
+                shared._determineCellsNextState();
+                for (int y = 0; y < 64; y++) {
+                    for (int x = 0; x < 64; x++) {
+                        String at = "Step " + step + " at " + x + "," + y;
+                        assertEquals(at, single.getCell(x, y).isMarkedForUpdate(),
+                                shared.getCell(x, y).isMarkedForUpdate());
+                        assertEquals(at, single.getCell(x, y).isMarkedForNextStep(),
+                                shared.getCell(x, y).isMarkedForNextStep());
+                    }
+                }
+                single._updateCellStates();
+                shared._updateCellStates();
+                // Merging clears the marks of every thread
+                for (int y = 0; y < 64; y++) {
+                    for (int x = 0; x < 64; x++) {
+                        assertFalse(shared.getCell(x, y).isMarkedForUpdate());
+                    }
+                }
+                single._copyNextCellQueueToCurrent();
+                shared._copyNextCellQueueToCurrent();
+                single._incrementGameStep();
+                shared._incrementGameStep();
+                assertEquals("Step " + step, single.createBoardString('.', '#'), shared.createBoardString('.', '#'));
+                assertEquals(single.getCurrentCellQueueSize(), shared.getCurrentCellQueueSize());
+            }
+        }
+    }
+}
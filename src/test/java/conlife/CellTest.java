@@ -37,7 +37,7 @@ public class CellTest {
         assertFalse(cell.isAlive());
         assertFalse(cell.isAliveNextStep());
         assertFalse(cell.isStateCalculatedThisStep());
-        assertFalse(cell.isAddedToNextStepQueue().get());
+        assertFalse(cell.isMarkedForNextStep());
     }
 
     @Test
@@ -94,7 +94,10 @@ public class CellTest {
         assertTrue(cell.isStateCalculatedThisStep());
         assertFalse(cell.isAlive());
         assertTrue(cell.isAliveNextStep());
+        assertTrue(cell.isMarkedForNextStep());
+        // The old accessors still report the same marks
         assertTrue(cell.isAddedToNextStepQueue().get());
+        assertTrue(cell.isAddedToUpdateQueue().get());
 
         for (int i = 0; i < 9; i++) {
             if (i == 3) {
@@ -111,10 +114,10 @@ public class CellTest {
             assertFalse(cell.isAliveNextStep());
             if (i == 0) {
                 // If there are no neighbors, and this cell is dead, it won't be checked next step
-                assertFalse(cell.isAddedToNextStepQueue().get());
+                assertFalse(cell.isMarkedForNextStep());
             } else {
                 // But if there are any number of neighbors alive, it will be checked next step
-                assertTrue(cell.isAddedToNextStepQueue().get());
+                assertTrue(cell.isMarkedForNextStep());
             }
         }
 
@@ -187,15 +190,15 @@ public class CellTest {
             Rule rule = game.getRules().getRule(false, i);
             if (rule == Rule.BIRTH) {
                 cell._determineNextState(false, i);
-                assertTrue("Neighbors: " + i, cell.isAddedToUpdateQueue().get()); // Needs to be updated
+                assertTrue("Neighbors: " + i, cell.isMarkedForUpdate()); // Needs to be updated
                 cell.updateToNextState(); // Needs to be updated/reset
             } else {
                 cell._determineNextState(false, i);
                 if (i == 0) {
                     // Only dead cells with no neighbors don't need an update...
-                    assertFalse("Neighbors: " + i, cell.isAddedToUpdateQueue().get());
+                    assertFalse("Neighbors: " + i, cell.isMarkedForUpdate());
                 } else {
-                    assertTrue("Neighbors: " + i, cell.isAddedToUpdateQueue().get());
+                    assertTrue("Neighbors: " + i, cell.isMarkedForUpdate());
                     cell.updateToNextState(); // Needs to be updated/reset
                 }
             }
@@ -205,7 +208,7 @@ public class CellTest {
         // In every case of the cell being alive, the next state needs to be shifted to current state
         for (int i = 0; i < 9; i++) {
             cell._determineNextState(true, i);
-            assertTrue("Neighbors: " + i, cell.isAddedToUpdateQueue().get());
+            assertTrue("Neighbors: " + i, cell.isMarkedForUpdate());
             cell.updateToNextState(); // Needs to be updated/reset
         }
     }
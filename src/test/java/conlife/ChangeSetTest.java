@@ -0,0 +1,85 @@
+package conlife;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class ChangeSetTest {
+
+    @Test
+    public void testChangesMatchCellsThatChanged() {
+        String[] lines = randomBoard(40, 30, new Random(7));
+        for (GameState.Engine engine : GameState.Engine.values()) {
+            GameState game = GameState.createNewGame(lines, '#', 3, engine);
+            for (int step = 0; step < 10; step++) {
+                game.processGameStep();
+                ChangeSet changes = game.getChanges();
+                Set<String> fromChanges = new HashSet<>();
+                int births = 0;
+                for (int i = 0; i < changes.size(); i++) {
+                    fromChanges.add(changes.getX(i) + "," + changes.getY(i) + "," + changes.isBirth(i));
+                    assertEquals(changes.isBirth(i), game.isAlive(changes.getX(i), changes.getY(i)));
+                    births += changes.isBirth(i) ? 1 : 0;
+                }
+                Set<String> fromCells = new HashSet<>();
+                for (Cell cell : game.getCellsThatChangedState()) {
+                    fromCells.add(cell.getX() + "," + cell.getY() + "," + cell.isAlive());
+                }
+                assertEquals(engine.name(), fromCells, fromChanges);
+                assertEquals(changes.size(), fromChanges.size());
+                assertEquals(births, changes.getBirthCount());
+                assertEquals(changes.size() - births, changes.getDeathCount());
+            }
+            game.close();
+        }
+    }
+
+    @Test
+    public void testCopiesOutliveTheNextStep() {
+        GameState game = GameState.createNewGame(new String[]{".....", "..#..", "..#..", "..#..", "....."}, '#');
+        game.processGameStep();
+        ChangeSet copy = game.getChanges().copy();
+        game.processGameStep();
+        assertEquals(4, copy.size());
+        assertEquals(2, copy.getBirthCount());
+        final StringBuilder visited = new StringBuilder();
+        copy.forEach((x, y, born) -> visited.append(x).append(',').append(y).append(born ? "+" : "-").append(' '));
+        for (String change : new String[]{"1,2+", "3,2+", "2,1-", "2,3-"}) {
+            assertTrue(visited.toString(), visited.toString().contains(change));
+        }
+    }
+
+    @Test
+    public void testGrowsPastItsFirstCapacity() {
+        ChangeSet changes = new ChangeSet();
+        for (int i = 0; i < 1000; i++) {
+            changes.add(i, -i, i % 3 == 0);
+        }
+        assertEquals(1000, changes.size());
+        assertEquals(334, changes.getBirthCount());
+        assertEquals(999, changes.getX(999));
+        assertEquals(-999, changes.getY(999));
+        assertTrue(changes.isBirth(999));
+        changes.clear();
+        assertTrue(changes.isEmpty());
+        changes.add(1, 1, false);
+        assertFalse(changes.isBirth(0));
+        assertEquals(0, changes.getBirthCount());
+    }
+
+    private static String[] randomBoard(int width, int height, Random random) {
+        String[] lines = new String[height];
+        for (int y = 0; y < height; y++) {
+            StringBuilder line = new StringBuilder();
+            for (int x = 0; x < width; x++) {
+                line.append(random.nextInt(3) == 0 ? '#' : '.');
+            }
+            lines[y] = line.toString();
+        }
+        return lines;
+    }
+}
@@ -0,0 +1,224 @@
+package conlife;
+
+import conlife.utils.Lif1_5Reader;
+import org.junit.Test;
+
+import java.awt.Dimension;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static conlife.GenerationTest.boardString;
+import static org.junit.Assert.*;
+
+public class CheckpointTest {
+
+    private static Path tempFile() throws IOException {
+        Path file = Files.createTempFile("conlife", ".ckpt");
+        file.toFile().deleteOnExit();
+        return file;
+    }
+
+    @Test
+    public void testRestoredGamesCarryOn() throws Exception {
+        String[] acorn = Lif1_5Reader.fromResourceOrFile(new Dimension(150, 70), "/samples/ACORN.LIF")
+                .createBoardString('.', '#').split("\n");
+        Rules rules = Rules.parseRules("B36/S23");
+        for (GameState.Engine engine : new GameState.Engine[]{GameState.Engine.CELLS, GameState.Engine.BIT_PACKED,
+                GameState.Engine.DENSE}) {
+            Path file = tempFile();
+            try (GameState game = GameState.createNewGame(rules, acorn, '#', 2, engine)) {
+                game.processGameSteps(25);
+                Checkpoint.write(game, file);
+                try (GameState restored = Checkpoint.restore(file, 3)) {
+                    assertEquals(engine, restored.getEngine());
+                    assertEquals(25, restored.getCurrentStep());
+                    assertEquals(boardString(game.snapshot()), boardString(restored.snapshot()));
+                    // Stepping both under the rules that were saved keeps them the same
+                    game.processGameSteps(20);
+                    restored.processGameSteps(20);
+                    assertEquals(45, restored.getCurrentStep());
+                    assertEquals(engine.toString(), boardString(game.snapshot()), boardString(restored.snapshot()));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testOnlyChangedTilesAreRewritten() throws Exception {
+        String glider = ".#.\n..#\n###";
+        Path file = tempFile();
+        try (GameState game = GameState.createNewGame(GameState.getDefaultRules(), new Dimension(300, 200), 1,
+                GameState.Engine.DENSE, GameState.EdgePolicy.DEAD);
+             Checkpoint checkpoint = Checkpoint.create(game, file)) {
+            boolean[][] cells = new boolean[3][3];
+            for (int y = 0; y < 3; y++) {
+                for (int x = 0; x < 3; x++) {
+                    cells[y][x] = glider.split("\n")[y].charAt(x) == '#';
+                }
+            }
+            game.setCells(100, 100, cells);
+            // 5 tiles across and 4 down
+            assertEquals(20, checkpoint.save());
+            assertEquals(0, checkpoint.save());
+            game.processGameSteps(4);
+            assertEquals(1, checkpoint.save());
+            try (GameState restored = Checkpoint.restore(file, 1)) {
+                assertEquals(GameState.EdgePolicy.DEAD, restored.getEdgePolicy());
+                assertEquals(4, restored.getCurrentStep());
+                assertEquals(boardString(game.snapshot()), boardString(restored.snapshot()));
+            }
+        }
+    }
+
+    @Test
+    public void testTilesAreOnDiskBeforeTheHeader() throws Exception {
+        Path file = tempFile();
+        try (GameState game = GameState.createNewGame(GameState.getDefaultRules(), new Dimension(130, 70), 1,
+                GameState.Engine.DENSE, GameState.EdgePolicy.DEAD);
+             RecordingChannel channel = new RecordingChannel(FileChannel.open(file, StandardOpenOption.READ,
+                     StandardOpenOption.WRITE));
+             Checkpoint checkpoint = Checkpoint.create(game, channel)) {
+            game.setCells(new int[]{1, 2, 3}, new int[]{1, 1, 1}, new boolean[]{true, true, true});
+            checkpoint.save();
+            assertEquals(Arrays.asList("tiles", "force", "header", "force"), channel.events);
+            channel.events.clear();
+            game.processGameStep();
+            checkpoint.save();
+            assertEquals(Arrays.asList("incomplete", "force", "tiles", "force", "header", "force"), channel.events);
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testUnfinishedCheckpointsArentRestored() throws Exception {
+        Path file = tempFile();
+        try (GameState game = GameState.createNewGame(new Dimension(10, 10))) {
+            Checkpoint.write(game, file);
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{0}), 32);
+        }
+        Checkpoint.restore(file, 1);
+    }
+
+    // Records the order of the writes and forces made through it, a run of tile writes counting once
+    private static final class RecordingChannel extends FileChannel {
+        final List<String> events = new ArrayList<>();
+        private final FileChannel file;
+
+        RecordingChannel(FileChannel file) {
+            this.file = file;
+        }
+
+        private void record(String event) {
+            if (!event.equals("tiles") || events.isEmpty() || !events.get(events.size() - 1).equals("tiles")) {
+                events.add(event);
+            }
+        }
+
+        @Override
+        public int write(ByteBuffer src, long position) throws IOException {
+            if (position >= Checkpoint.HEADER_BYTES) {
+                record("tiles");
+            } else if (position == 0) {
+                record("header");
+            } else {
+                record("incomplete");
+            }
+            return file.write(src, position);
+        }
+
+        @Override
+        public void force(boolean metaData) throws IOException {
+            record("force");
+            file.force(metaData);
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            return file.read(dst);
+        }
+
+        @Override
+        public long read(ByteBuffer[] dsts, int offset, int length) throws IOException {
+            return file.read(dsts, offset, length);
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public long position() throws IOException {
+            return file.position();
+        }
+
+        @Override
+        public FileChannel position(long newPosition) throws IOException {
+            file.position(newPosition);
+            return this;
+        }
+
+        @Override
+        public long size() throws IOException {
+            return file.size();
+        }
+
+        @Override
+        public FileChannel truncate(long size) throws IOException {
+            file.truncate(size);
+            return this;
+        }
+
+        @Override
+        public long transferTo(long position, long count, WritableByteChannel target) throws IOException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public long transferFrom(ReadableByteChannel src, long position, long count) throws IOException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int read(ByteBuffer dst, long position) throws IOException {
+            return file.read(dst, position);
+        }
+
+        @Override
+        public MappedByteBuffer map(MapMode mode, long position, long size) throws IOException {
+            return file.map(mode, position, size);
+        }
+
+        @Override
+        public FileLock lock(long position, long size, boolean shared) throws IOException {
+            return file.lock(position, size, shared);
+        }
+
+        @Override
+        public FileLock tryLock(long position, long size, boolean shared) throws IOException {
+            return file.tryLock(position, size, shared);
+        }
+
+        @Override
+        protected void implCloseChannel() throws IOException {
+            file.close();
+        }
+    }
+}
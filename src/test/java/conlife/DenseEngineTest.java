@@ -0,0 +1,118 @@
+package conlife;
+
+import org.junit.Test;
+
+import java.awt.Dimension;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class DenseEngineTest {
+
+    @Test
+    public void testMatchesBitBoard() throws Exception {
+        compareWithBitBoard(Rules.parseRules("B3/S23"));
+        compareWithBitBoard(Rules.parseRules("B36/S23"));
+        compareWithBitBoard(Rules.parseRules("B2/S"));
+    }
+
+    private void compareWithBitBoard(Rules rules) {
+        // Includes a board wider than a block so the sweep has to cross from one strip to the next
+        int[][] sizes = {{1, 1}, {3, 3}, {5, 7}, {64, 9}, {130, 20}, {DenseEngine.BLOCK_WIDTH + 37, 4}};
+        Random random = new Random(7);
+        for (int[] size : sizes) {
+            Dimension boardSize = new Dimension(size[0], size[1]);
+            GameState bits = GameState.createNewGame(rules, boardSize, 1, GameState.Engine.BIT_PACKED);
+            GameState dense = GameState.createNewGame(rules, boardSize, 1, GameState.Engine.DENSE);
+            for (int y = 0; y < size[1]; y++) {
+                for (int x = 0; x < size[0]; x++) {
+                    if (random.nextInt(3) == 0) {
+                        bits.getCell(x, y).setCurrentlyAlive(true);
+                        dense.getCell(x, y).setCurrentlyAlive(true);
+                    }
+                }
+            }
+            for (int step = 0; step < 20; step++) {
+                bits.processGameStep();
+                dense.processGameStep();
+                assertEquals("Size " + size[0] + "x" + size[1] + " step " + step,
+                        bits.createBoardString('.', '#'), dense.createBoardString('.', '#'));
+                assertEquals(changedCells(bits), changedCells(dense));
+            }
+        }
+    }
+
+    @Test
+    public void testEdgePolicies() throws Exception {
+        Rules rules = Rules.parseRules("B36/S23");
+        int[][] sizes = {{1, 1}, {3, 3}, {5, 7}, {64, 9}};
+        for (GameState.EdgePolicy edges : GameState.EdgePolicy.values()) {
+            Random random = new Random(3);
+            for (int[] size : sizes) {
+                GameState game = GameState.createNewGame(rules, new Dimension(size[0], size[1]), 1,
+                        GameState.Engine.DENSE, edges);
+                for (int y = 0; y < size[1]; y++) {
+                    for (int x = 0; x < size[0]; x++) {
+                        game.getCell(x, y).setCurrentlyAlive(random.nextInt(3) == 0);
+                    }
+                }
+                for (int step = 0; step < 10; step++) {
+                    // The neighbors of the cell views go through the edge policy one cell at a time
+                    boolean[][] expected = new boolean[size[1]][size[0]];
+                    for (int y = 0; y < size[1]; y++) {
+                        for (int x = 0; x < size[0]; x++) {
+                            Cell cell = game.getCell(x, y);
+                            int neighbors = cell.getLivingNeighborCount();
+                            expected[y][x] = cell.isAlive() ? rules.isSurvive(neighbors) : rules.isBirth(neighbors);
+                        }
+                    }
+                    game.processGameStep();
+                    for (int y = 0; y < size[1]; y++) {
+                        for (int x = 0; x < size[0]; x++) {
+                            assertEquals(edges + " " + size[0] + "x" + size[1] + " step " + step + " at " + x + ","
+                                    + y, expected[y][x], game.isAlive(x, y));
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testDeadEdges() {
+        String glider
+                = ".#...\n"
+                + "..#..\n"
+                + "###..\n"
+                + ".....\n"
+                + ".....";
+        GameState game = GameState.createNewGame(glider.split("\n"), '#', GameState.Engine.DENSE,
+                GameState.EdgePolicy.DEAD);
+        for (int i = 0; i < 20; i++) {
+            game.processGameStep();
+        }
+        // The glider runs into the corner and turns into a block instead of coming back around
+        assertEquals(".....\n"
+                + ".....\n"
+                + ".....\n"
+                + "...##\n"
+                + "...##", game.createBoardString('.', '#'));
+        assertFalse(game.getCell(4, 4).getNeighbor(Direction.SOUTH_EAST).isAlive());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnsupportedEdgePolicy() {
+        GameState.createNewGame(GameState.getDefaultRules(), new Dimension(10, 10), 1, GameState.Engine.BIT_PACKED,
+                GameState.EdgePolicy.KLEIN_BOTTLE);
+    }
+
+    private static Set<String> changedCells(GameState game) {
+        Set<String> changed = new HashSet<>();
+        for (Cell cell : game.getCellsThatChangedState()) {
+            changed.add(cell.getX() + "," + cell.getY() + "," + cell.isAlive());
+        }
+        return changed;
+    }
+}
@@ -0,0 +1,106 @@
+package conlife;
+
+import conlife.utils.Lif1_5Reader;
+import org.junit.Test;
+
+import java.awt.Dimension;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class ForkJoinStepperTest {
+
+    @Test
+    public void testMatchesSingleThread() throws Exception {
+        Rules rules = Rules.parseRules("B3/S23");
+        Dimension boardSize = new Dimension(300, 300);
+        boolean[][] board = Lif1_5Reader.fromResourceOrFile(boardSize, "/samples/LINEPUF.LIF").getBoard();
+        for (GameState.Engine engine : new GameState.Engine[]{GameState.Engine.BIT_PACKED, GameState.Engine.DENSE}) {
+            GameState single = GameState.createNewGame(rules, boardSize, 1, engine);
+            GameState banded = GameState.createNewGame(rules, boardSize, 4, engine);
+            for (int y = 0; y < boardSize.height; y++) {
+                for (int x = 0; x < boardSize.width; x++) {
+                    if (board[y][x]) {
+                        single.getCell(x, y).setCurrentlyAlive(true);
+                        banded.getCell(x, y).setCurrentlyAlive(true);
+                    }
+                }
+            }
+            for (int step = 0; step < 100; step++) {
+                single.processGameStep();
+                banded.processGameStep();
+                assertEquals(engine + " step " + step, single.createBoardString('.', '#'),
+                        banded.createBoardString('.', '#'));
+            }
+        }
+    }
+
+    @Test
+    public void testBandsFollowCost() {
+        CostlyEngine engine = new CostlyEngine();
+        ForkJoinStepper stepper = new ForkJoinStepper(engine, new ForkJoinPool(2));
+        // Without measurements the board is split evenly into 8 bands per worker
+        stepper.step(GameState.getDefaultRules());
+        assertEquals(16, stepper.getLastBandCount());
+        assertEquals(2, engine.hotBands.get());
+
+        // Then the expensive rows get split finely, and the cheap rest is left in a few big bands
+        engine.hotBands.set(0);
+        engine.coldBands.set(0);
+        stepper.step(GameState.getDefaultRules());
+        assertTrue("Bands in expensive rows: " + engine.hotBands, engine.hotBands.get() >= 8);
+        assertTrue("Bands in cheap rows: " + engine.coldBands, engine.coldBands.get() <= 8);
+    }
+
+    /**
+     * Takes 50 microseconds for each of its first 128 rows, and no time at all for the rest.
+     */
+    private static class CostlyEngine implements RowEngine {
+        private static final int HOT_ROWS = 128;
+        final AtomicInteger hotBands = new AtomicInteger(), coldBands = new AtomicInteger();
+
+        @Override
+        public int getRowCount() {
+            return 1024;
+        }
+
+        @Override
+        public void beginStep(Rules rules) {
+        }
+
+        @Override
+        public void stepRows(int from, int to) {
+            if (from < HOT_ROWS) {
+                hotBands.incrementAndGet();
+                long end = System.nanoTime() + 50000L * (Math.min(to, HOT_ROWS) - from);
+                while (System.nanoTime() < end) {
+                    // Busy, like a real band of rows would be
+                }
+            } else {
+                coldBands.incrementAndGet();
+            }
+        }
+
+        @Override
+        public void endStep() {
+        }
+
+        @Override
+        public boolean isAlive(int x, int y) {
+            return false;
+        }
+
+        @Override
+        public void setAlive(int x, int y, boolean alive) {
+        }
+
+        @Override
+        public void step(Rules rules) {
+        }
+
+        @Override
+        public void forEachChangedCell(ChangeVisitor visitor) {
+        }
+    }
+}
@@ -1,8 +1,14 @@
 package conlife;
 
+import conlife.utils.Lif1_5Reader;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.awt.Dimension;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
 import static org.junit.Assert.*;
 
 public class GameStateTest {
@@ -53,4 +59,180 @@ public class GameStateTest {
         assertFalse(game.getCell(1,1).isAlive());
         assertEquals(sampleCondition2, game.createBoardString('0','#'));
     }
+
+    @Test
+    public void testStripesMatchBalancedPartitioning() throws Exception {
+        String[] lines = Lif1_5Reader.fromResourceOrFile(new Dimension(120, 120), "/samples/ACORN.LIF")
+                .createBoardString('.', '#').split("\n");
+        GameState balanced = GameState.createNewGame(lines, '#', 3);
+        GameState stripes = GameState.createNewGame(lines, '#', 3);
+        stripes.setPartitioning(GameState.Partitioning.STRIPES);
+        for (int step = 0; step < 100; step++) {
+            balanced.processGameStep();
+            stripes.processGameStep();
+            assertEquals("Step " + step, balanced.createBoardString('.', '#'), stripes.createBoardString('.', '#'));
+            assertEquals(balanced.getCellsThatChangedState().size(), stripes.getCellsThatChangedState().size());
+            assertEquals(balanced.getCurrentCellQueueSize(), stripes.getCurrentCellQueueSize());
+        }
+    }
+
+    @Test
+    public void testFusedStepsMatchPhasedSteps() throws Exception {
+        String[] lines = Lif1_5Reader.fromResourceOrFile(new Dimension(120, 120), "/samples/ACORN.LIF")
+                .createBoardString('.', '#').split("\n");
+        GameState phased = GameState.createNewGame(lines, '#', 3);
+        GameState fused = GameState.createNewGame(lines, '#', 3);
+        fused.setStepMode(GameState.StepMode.FUSED);
+        for (int step = 0; step < 150; step++) {
+            if (step == 50) {
+                // Edits between fused steps are picked up by the next one
+                phased.getCell(0, 0).setCurrentlyAlive(true);
+                phased.getCell(1, 0).setCurrentlyAlive(true);
+                phased.getCell(2, 0).setCurrentlyAlive(true);
+                fused.getCell(0, 0).setCurrentlyAlive(true);
+                fused.getCell(1, 0).setCurrentlyAlive(true);
+                fused.getCell(2, 0).setCurrentlyAlive(true);
+            } else if (step == 100) {
+                fused.setStepMode(GameState.StepMode.PHASED);
+            } else if (step == 120) {
+                fused.setStepMode(GameState.StepMode.FUSED);
+            }
+            phased.processGameStep();
+            fused.processGameStep();
+            assertEquals("Step " + step, phased.createBoardString('.', '#'), fused.createBoardString('.', '#'));
+            assertEquals(changedCells(phased), changedCells(fused));
+        }
+    }
+
+    @Test
+    public void testBulkEditsMatchSingleEdits() throws Exception {
+        Dimension boardSize = new Dimension(90, 70);
+        for (GameState.Partitioning partitioning : GameState.Partitioning.values()) {
+            for (GameState.StepMode stepMode : GameState.StepMode.values()) {
+                GameState single = GameState.createNewGame(GameState.getDefaultRules(), boardSize, 3);
+                GameState bulk = GameState.createNewGame(GameState.getDefaultRules(), boardSize, 3);
+                for (GameState game : new GameState[]{single, bulk}) {
+                    game.setPartitioning(partitioning);
+                    game.setStepMode(stepMode);
+                }
+                Random random = new Random(5);
+                for (int round = 0; round < 5; round++) {
+                    int[] xs = new int[300];
+                    int[] ys = new int[xs.length];
+                    boolean[] alive = new boolean[xs.length];
+                    for (int i = 0; i < xs.length; i++) {
+                        xs[i] = random.nextInt(boardSize.width);
+                        ys[i] = random.nextInt(boardSize.height);
+                        alive[i] = random.nextInt(4) != 0;
+                        single.getCell(xs[i], ys[i]).setCurrentlyAlive(alive[i]);
+                    }
+                    bulk.setCells(xs, ys, alive);
+                    boolean[][] square = new boolean[6][7];
+                    for (boolean[] row : square) {
+                        for (int x = 0; x < row.length; x++) {
+                            row[x] = random.nextBoolean();
+                        }
+                    }
+                    for (int y = 0; y < square.length; y++) {
+                        for (int x = 0; x < square[y].length; x++) {
+                            single.getCell(80 + x, 60 + y).setCurrentlyAlive(square[y][x]);
+                        }
+                    }
+                    bulk.setCells(80, 60, square);
+                    assertEquals(single.createBoardString('.', '#'), bulk.createBoardString('.', '#'));
+                    assertEquals(single.getCurrentCellQueueSize(), bulk.getCurrentCellQueueSize());
+                    for (int step = 0; step < 10; step++) {
+                        single.processGameStep();
+                        bulk.processGameStep();
+                        assertEquals(partitioning + " " + stepMode + " round " + round + " step " + step,
+                                single.createBoardString('.', '#'), bulk.createBoardString('.', '#'));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testBulkEditOffTheBoardChangesNothing() {
+        String before = game.createBoardString('.', '#');
+        try {
+            game.setCells(new int[]{1, 2, 100}, new int[]{1, 1, 1}, new boolean[]{true, true, true});
+            fail("Expected the edit to be refused");
+        } catch (IllegalArgumentException expected) {
+            assertEquals(before, game.createBoardString('.', '#'));
+        }
+    }
+
+    @Test
+    public void testGamesShareThreads() {
+        for (int i = 0; i < 50; i++) {
+            try (GameState shared = GameState.createNewGame(sampleCondition1.split("\n"), '#', 8)) {
+                shared.processGameStep();
+            }
+        }
+        int gameThreads = 0;
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().startsWith("game-logic-thread-")) {
+                gameThreads++;
+            }
+        }
+        assertTrue(gameThreads <= StepPool.get().getParallelism());
+    }
+
+    @Test
+    public void testSpinningOnPhasesMatchesBlocking() throws Exception {
+        String[] lines = Lif1_5Reader.fromResourceOrFile(new Dimension(120, 120), "/samples/ACORN.LIF")
+                .createBoardString('.', '#').split("\n");
+        try (GameState blocking = GameState.createNewGame(lines, '#', 4);
+             GameState spinning = GameState.createNewGame(lines, '#', 4)) {
+            blocking.setBarrierSpinBudget(0);
+            spinning.setBarrierSpinBudget(1000000);
+            assertEquals(1000000, spinning.getBarrierSpinBudget());
+            for (int step = 0; step < 50; step++) {
+                blocking.processGameStep();
+                spinning.processGameStep();
+                assertEquals("Step " + step, blocking.createBoardString('.', '#'), spinning.createBoardString('.', '#'));
+            }
+        }
+    }
+
+    @Test
+    public void testOnlyDenseBoardsHaveOtherEdges() {
+        for (GameState.Engine engine : GameState.Engine.values()) {
+            for (GameState.EdgePolicy edges : GameState.EdgePolicy.values()) {
+                boolean supported = engine == GameState.Engine.DENSE || edges == GameState.EdgePolicy.TORUS;
+                assertEquals(supported, engine.supports(edges));
+                try (GameState created = GameState.createNewGame(GameState.getDefaultRules(), new Dimension(8, 8), 1,
+                        engine, edges)) {
+                    assertTrue(engine + " " + edges, supported);
+                    assertEquals(edges, created.getEdgePolicy());
+                } catch (IllegalArgumentException e) {
+                    assertFalse(engine + " " + edges, supported);
+                    assertTrue(e.getMessage(), e.getMessage().startsWith(engine + " boards "));
+                    assertTrue(e.getMessage(), e.getMessage().endsWith("only DENSE boards can have " + edges + " edges"));
+                }
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSpinBudgetCantBeNegative() {
+        game.setBarrierSpinBudget(-1);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testClosedGameCantStep() {
+        game.close();
+        game.close();
+        assertTrue(game.isClosed());
+        game.processGameStep();
+    }
+
+    private static Set<String> changedCells(GameState game) {
+        Set<String> changed = new HashSet<>();
+        for (Cell cell : game.getCellsThatChangedState()) {
+            changed.add(cell.getX() + "," + cell.getY() + "," + cell.isAlive());
+        }
+        return changed;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,99 @@
+package conlife;
+
+import conlife.utils.Lif1_5Reader;
+import org.junit.Test;
+
+import java.awt.Dimension;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+
+public class GenerationTest {
+
+    private static String[] acorn() throws Exception {
+        return Lif1_5Reader.fromResourceOrFile(new Dimension(70, 60), "/samples/ACORN.LIF")
+                .createBoardString('.', '#').split("\n");
+    }
+
+    @Test
+    public void testSnapshotsDontChange() throws Exception {
+        for (GameState.Engine engine : GameState.Engine.values()) {
+            for (GameState.StepMode stepMode : GameState.StepMode.values()) {
+                GameState game = GameState.createNewGame(GameState.getDefaultRules(), acorn(), '#', 2, engine);
+                game.setStepMode(stepMode);
+                List<Generation> generations = new ArrayList<>();
+                List<String> boards = new ArrayList<>();
+                for (int step = 0; step < 30; step++) {
+                    Generation generation = game.snapshot();
+                    // Nothing changed, so nothing is copied
+                    assertSame(generation, game.snapshot());
+                    generations.add(generation);
+                    boards.add(game.createBoardString('.', '#'));
+                    if (step == 10) {
+                        game.getCell(1, 1).setCurrentlyAlive(true);
+                        game.getCell(2, 1).setCurrentlyAlive(true);
+                        game.getCell(3, 1).setCurrentlyAlive(true);
+                        assertNotSame(generation, game.snapshot());
+                        boards.set(step, game.createBoardString('.', '#'));
+                        generations.set(step, game.snapshot());
+                    }
+                    game.processGameStep();
+                }
+                for (int step = 0; step < generations.size(); step++) {
+                    assertEquals(engine + " " + stepMode + " step " + step, step, generations.get(step).getStep());
+                    assertEquals(engine + " " + stepMode + " step " + step, boards.get(step),
+                            boardString(generations.get(step)));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testReadersSeeWholeGenerations() throws Exception {
+        GameState expected = GameState.createNewGame(acorn(), '#', 1);
+        List<String> boards = new ArrayList<>();
+        for (int step = 0; step <= 300; step++) {
+            boards.add(expected.createBoardString('.', '#'));
+            expected.processGameStep();
+        }
+        for (GameState.Engine engine : new GameState.Engine[]{GameState.Engine.CELLS, GameState.Engine.DENSE}) {
+            GameState game = GameState.createNewGame(GameState.getDefaultRules(), acorn(), '#', 3, engine);
+            AtomicBoolean done = new AtomicBoolean();
+            List<Generation> seen = new ArrayList<>();
+            Thread reader = new Thread(() -> {
+                while (!done.get()) {
+                    Generation generation = game.getLatestGeneration();
+                    if (seen.isEmpty() || seen.get(seen.size() - 1) != generation) {
+                        seen.add(generation);
+                    }
+                }
+            });
+            reader.start();
+            for (int step = 0; step < 300; step++) {
+                game.processGameStep();
+            }
+            done.set(true);
+            reader.join();
+            assertFalse(seen.isEmpty());
+            for (Generation generation : seen) {
+                assertEquals(engine + " step " + generation.getStep(), boards.get(generation.getStep()),
+                        boardString(generation));
+            }
+        }
+    }
+
+    static String boardString(Generation generation) {
+        StringBuilder builder = new StringBuilder();
+        for (int y = 0; y < generation.getHeight(); y++) {
+            if (y != 0) {
+                builder.append("\n");
+            }
+            for (int x = 0; x < generation.getWidth(); x++) {
+                builder.append(generation.isAlive(x, y) ? '#' : '.');
+            }
+        }
+        return builder.toString();
+    }
+}
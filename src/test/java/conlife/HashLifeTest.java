@@ -0,0 +1,122 @@
+package conlife;
+
+import conlife.utils.Lif1_5Reader;
+import org.junit.Test;
+
+import java.awt.Dimension;
+
+import static org.junit.Assert.*;
+
+public class HashLifeTest {
+
+    private static final String glider
+            = ".#.\n"
+            + "..#\n"
+            + "###";
+
+    @Test
+    public void testGlider() throws Exception {
+        HashLife universe = HashLife.fromBoard(Rules.parseRules("B3/S23"), toBoard(glider));
+        assertEquals(5, universe.getPopulation());
+        // A glider moves one cell diagonally every four generations
+        universe.advance(4 * 1000);
+        assertEquals(4000, universe.getGeneration());
+        assertEquals(5, universe.getPopulation());
+        assertTrue(universe.isAlive(1001, 1000));
+        assertTrue(universe.isAlive(1002, 1001));
+        assertTrue(universe.isAlive(1000, 1002));
+        assertTrue(universe.isAlive(1001, 1002));
+        assertTrue(universe.isAlive(1002, 1002));
+        assertFalse(universe.isAlive(1, 0));
+    }
+
+    @Test
+    public void testMatchesBitBoard() throws Exception {
+        Rules rules = Rules.parseRules("B3/S23");
+        Lif1_5Reader reader = Lif1_5Reader.fromResourceOrFile(new Dimension(200, 200), "/samples/ACORN.LIF");
+        // Acorn doesn't reach the edges of a 200x200 board in 150 generations, so the torus doesn't matter
+        GameState game = GameState.createNewGame(rules, new Dimension(200, 200), 1, GameState.Engine.BIT_PACKED);
+        boolean[][] board = reader.getBoard();
+        for (int y = 0; y < 200; y++) {
+            for (int x = 0; x < 200; x++) {
+                if (board[y][x]) {
+                    game.getCell(x, y).setCurrentlyAlive(true);
+                }
+            }
+        }
+        HashLife universe = HashLife.fromBoard(rules, board);
+        int[] jumps = {1, 2, 5, 13, 21, 34, 55, 19};
+        for (int jump : jumps) {
+            universe.advance(jump);
+            for (int i = 0; i < jump; i++) {
+                game.processGameStep();
+            }
+            assertEquals(game.getCurrentStep(), universe.getGeneration());
+            for (int y = 0; y < 200; y++) {
+                for (int x = 0; x < 200; x++) {
+                    assertEquals("Generation " + game.getCurrentStep() + " at " + x + "," + y,
+                            game.isAlive(x, y), universe.isAlive(x, y));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testLogGrowPopulation() throws Exception {
+        // LOGGROW.LIF describes its own population in generation 60n
+        boolean[][] board = Lif1_5Reader.fromResourceOrFile(new Dimension(1000, 1000), "/samples/LOGGROW.LIF").getBoard();
+        HashLife universe = HashLife.fromBoard(Rules.parseRules("B3/S23"), board);
+        universe.advance(600);
+        assertEquals(8227, universe.getPopulation());
+        universe.advance(600);
+        assertEquals(10722, universe.getPopulation());
+        universe.advance(4800);
+        assertEquals(30817, universe.getPopulation());
+    }
+
+    @Test
+    public void testGarbageCollection() throws Exception {
+        Rules rules = Rules.parseRules("B3/S23");
+        boolean[][] board = Lif1_5Reader.fromResourceOrFile(new Dimension(100, 100), "/samples/ACORN.LIF").getBoard();
+        HashLife reference = HashLife.fromBoard(rules, board);
+        HashLife collected = HashLife.fromBoard(rules, board);
+        collected.setMaxNodes(1000);
+        for (int i = 0; i < 50; i++) {
+            reference.advance(37);
+            collected.advance(37);
+        }
+        assertTrue(collected.getGarbageCollectionCount() > 0);
+        assertEquals(reference.getPopulation(), collected.getPopulation());
+        for (long y = -300; y < 400; y++) {
+            for (long x = -300; x < 400; x++) {
+                assertEquals(reference.isAlive(x, y), collected.isAlive(x, y));
+            }
+        }
+    }
+
+    @Test
+    public void testSetAlive() throws Exception {
+        HashLife universe = new HashLife(Rules.parseRules("B3/S23"));
+        universe.setAlive(-1000, 5000, true);
+        assertTrue(universe.isAlive(-1000, 5000));
+        assertEquals(1, universe.getPopulation());
+        universe.setAlive(-1000, 5000, false);
+        assertEquals(0, universe.getPopulation());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBirthsOnZeroNeighborsAreRejected() throws Exception {
+        HashLife.fromBoard(Rules.parseRules("B03/S23"), toBoard(glider));
+    }
+
+    private static boolean[][] toBoard(String condition) {
+        String[] lines = condition.split("\n");
+        boolean[][] board = new boolean[lines.length][lines[0].length()];
+        for (int y = 0; y < lines.length; y++) {
+            for (int x = 0; x < lines[y].length(); x++) {
+                board[y][x] = lines[y].charAt(x) == '#';
+            }
+        }
+        return board;
+    }
+}
@@ -0,0 +1,141 @@
+package conlife;
+
+import conlife.utils.Lif1_5Reader;
+import org.junit.Test;
+
+import java.awt.Dimension;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.text.ParseException;
+
+import static conlife.GenerationTest.boardString;
+import static org.junit.Assert.*;
+
+public class MacrocellTest {
+
+    private static final String GLIDER = "[M2] (golly 4.2)\n" +
+            "#R B3/S23\n" +
+            "#G 7\n" +
+            ".*$..*$***$\n" +
+            "4 0 0 0 1\n";
+
+    @Test
+    public void testRead() throws Exception {
+        HashLife universe = Macrocell.read(new StringReader(GLIDER));
+        assertEquals(7, universe.getGeneration());
+        assertEquals("B3/S23", universe.getRules().toString());
+        assertEquals(5, universe.getPopulation());
+        assertTrue(universe.isAlive(1, 0));
+        assertTrue(universe.isAlive(2, 1));
+        assertTrue(universe.isAlive(0, 2));
+        assertTrue(universe.isAlive(1, 2));
+        assertTrue(universe.isAlive(2, 2));
+        assertFalse(universe.isAlive(0, 0));
+        universe.advance(4);
+        assertEquals(5, universe.getPopulation());
+        assertTrue(universe.isAlive(2, 1));
+        assertTrue(universe.isAlive(3, 2));
+        assertTrue(universe.isAlive(1, 3));
+    }
+
+    @Test
+    public void testGamesRoundTrip() throws Exception {
+        String[] acorn = Lif1_5Reader.fromResourceOrFile(new Dimension(150, 70), "/samples/ACORN.LIF")
+                .createBoardString('.', '#').split("\n");
+        Rules rules = Rules.parseRules("B36/S23");
+        try (GameState game = GameState.createNewGame(rules, acorn, '#', 1, GameState.Engine.BIT_PACKED)) {
+            game.processGameSteps(40);
+            StringWriter out = new StringWriter();
+            Macrocell.write(game.snapshot(), rules, out);
+            assertTrue(out.toString().startsWith("[M2]"));
+            assertTrue(out.toString().contains("#G 40\n"));
+            try (GameState loaded = GameState.createNewGame(new Dimension(150, 70))) {
+                assertEquals("B36/S23", Macrocell.loadInto(loaded, new StringReader(out.toString())).toString());
+                assertEquals(boardString(game.snapshot()), boardString(loaded.snapshot()));
+            }
+        }
+    }
+
+    @Test
+    public void testUniversesRoundTrip() throws Exception {
+        HashLife universe = Macrocell.read(new StringReader(GLIDER));
+        universe.setAlive(-40, 30, true);
+        universe.setAlive(-41, 30, true);
+        universe.setAlive(-39, 30, true);
+        universe.advance(1000);
+        StringWriter out = new StringWriter();
+        Macrocell.write(universe, out);
+        HashLife read = Macrocell.read(new StringReader(out.toString()));
+        assertEquals(1007, read.getGeneration());
+        assertEquals(universe.getPopulation(), read.getPopulation());
+        for (long y = -300; y < 300; y++) {
+            for (long x = -300; x < 300; x++) {
+                assertEquals(universe.isAlive(x, y), read.isAlive(x, y));
+            }
+        }
+    }
+
+    @Test
+    public void testRepeatedSquaresAreWrittenOnce() throws Exception {
+        // A block in the same place in every 16x16 square of the board
+        try (GameState game = GameState.createNewGame(new Dimension(256, 256))) {
+            boolean[][] cells = new boolean[256][256];
+            for (int y = 0; y < 256; y += 16) {
+                for (int x = 0; x < 256; x += 16) {
+                    cells[y + 4][x + 4] = cells[y + 4][x + 5] = cells[y + 5][x + 4] = cells[y + 5][x + 5] = true;
+                }
+            }
+            game.setCells(0, 0, cells);
+            StringWriter out = new StringWriter();
+            Macrocell.write(game.snapshot(), GameState.getDefaultRules(), out);
+            String[] lines = out.toString().split("\n");
+            // The header, one 8x8 square and one node for each level from 16x16 up to 256x256
+            assertEquals(2 + 1 + 5, lines.length);
+            try (GameState loaded = GameState.createNewGame(new Dimension(256, 256))) {
+                Macrocell.loadInto(loaded, new StringReader(out.toString()));
+                assertEquals(boardString(game.snapshot()), boardString(loaded.snapshot()));
+            }
+        }
+    }
+
+    @Test(expected = ParseException.class)
+    public void testNodesMustBeReadBeforeTheyAreUsed() throws Exception {
+        Macrocell.read(new StringReader("[M2]\n.*$\n4 0 0 0 2\n"));
+    }
+
+    @Test(expected = ParseException.class)
+    public void testQuartersMustBeTheRightSize() throws Exception {
+        Macrocell.read(new StringReader("[M2]\n.*$\n4 0 0 0 1\n5 0 0 0 1\n"));
+    }
+
+    @Test(expected = ParseException.class)
+    public void testBirthsOnZeroNeighborsAreRejected() throws Exception {
+        Macrocell.read(new StringReader("[M2]\n#R B03/S23\n.*$\n4 0 0 0 1\n"));
+    }
+
+    @Test
+    public void testFailedLoadsLeaveTheBoardAlone() throws Exception {
+        try (GameState game = GameState.createNewGame(GameState.getDefaultRules(), new Dimension(10, 10), 1,
+                GameState.Engine.DENSE, GameState.EdgePolicy.DEAD)) {
+            game.setCells(new int[]{9}, new int[]{9}, new boolean[]{true});
+            String before = boardString(game.snapshot());
+            try {
+                // A cell on the board in the north west quarter, which is set first, and one off the board in the south
+                // east quarter
+                Macrocell.loadInto(game, new StringReader("[M2]\n*$\n4 0 0 0 1\n$$$$$$$.......*$\n4 0 0 0 3\n"
+                        + "5 4 0 0 2\n"));
+                fail("Expected the pattern not to fit on the board");
+            } catch (ParseException expected) {
+                assertEquals(before, boardString(game.snapshot()));
+            }
+        }
+    }
+
+    @Test(expected = ParseException.class)
+    public void testPatternsMustFitOnTheBoard() throws Exception {
+        try (GameState game = GameState.createNewGame(GameState.getDefaultRules(), new Dimension(10, 10), 1,
+                GameState.Engine.DENSE, GameState.EdgePolicy.DEAD)) {
+            Macrocell.loadInto(game, new StringReader("[M2]\n*$\n4 0 0 0 1\n5 2 0 0 0\n"));
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package conlife;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class RuleCompilerTest {
+
+    @Test
+    public void testNeighborhoodTable() throws Exception {
+        byte[] table = RuleCompiler.compileNeighborhoodTable(Rules.parseRules("B3/S23"));
+        assertEquals(0, table[0]);
+        // Three cells above a dead cell
+        assertEquals(1, table[0b001_001_001]);
+        // A living cell with two neighbors to the west
+        assertEquals(1, table[0b011_010_000]);
+        // A living cell with four neighbors
+        assertEquals(0, table[0b101_010_101]);
+    }
+
+    @Test
+    public void testRuleTable() throws Exception {
+        Rules rules = Rules.parseRules("B36/S23");
+        assertEquals(Rules.Rule.BIRTH, rules.getRule(false, 6));
+        assertEquals(Rules.Rule.DEAD_NO_BIRTH, rules.getRule(false, 2));
+        assertEquals(Rules.Rule.SURVIVE, rules.getRule(true, 2));
+        assertEquals(Rules.Rule.DEATH, rules.getRule(true, 6));
+        assertEquals(Rules.Rule.DEATH, rules.getRule(true, 8));
+    }
+
+    @Test
+    public void testCircuits() throws Exception {
+        checkCircuit(Rules.parseRules("B3/S23"));
+        checkCircuit(Rules.parseRules("B36/S23"));
+        checkCircuit(Rules.parseRules("B3678/S34678"));
+        checkCircuit(Rules.parseRules("B/S"));
+        checkCircuit(Rules.parseRules("B012345678/S012345678"));
+        Random random = new Random(11);
+        for (int i = 0; i < 500; i++) {
+            checkCircuit(Rules.parseRules(toRuleString(random.nextInt(1 << 9), random.nextInt(1 << 9))));
+        }
+    }
+
+    @Test
+    public void testConwaysRulesAreWrittenByHand() throws Exception {
+        Rules rules = Rules.parseRules("B3/S23");
+        assertTrue(RuleCompiler.compileCircuit(rules) instanceof RuleCompiler.LifeCircuit);
+        // The hand written kernel and the terms agree on every state and count
+        checkCircuit(rules, RuleCompiler.TermCircuit.of(RuleCompiler.minimize(rules)));
+    }
+
+    @Test
+    public void testCircuitsAreShared() throws Exception {
+        assertSame(RuleCompiler.compileCircuit(Rules.parseRules("B3/S23")),
+                RuleCompiler.compileCircuit(Rules.parseRules("B3/S23")));
+    }
+
+    private static void checkCircuit(Rules rules) {
+        RuleCompiler.Circuit circuit = RuleCompiler.compileCircuit(rules);
+        if (!(circuit instanceof RuleCompiler.LifeCircuit)) {
+            // Only rules with too many terms fall back to the rule masks
+            assertEquals(RuleCompiler.minimize(rules).size() <= 3, circuit instanceof RuleCompiler.TermCircuit);
+        }
+        checkCircuit(rules, circuit);
+    }
+
+    private static void checkCircuit(Rules rules, RuleCompiler.Circuit circuit) {
+        for (int count = 0; count <= 8; count++) {
+            for (int alive = 0; alive <= 1; alive++) {
+                boolean expected = alive == 1 ? rules.isSurvive(count) : rules.isBirth(count);
+                assertEquals(expected, RuleCompiler.evaluate(RuleCompiler.minimize(rules), alive == 1, count));
+                long next = circuit.next(alive == 1 ? -1L : 0L, bits(count, 0), bits(count, 1), bits(count, 2),
+                        bits(count, 3));
+                assertEquals("B" + Integer.toBinaryString(rules.birth) + "/S" + Integer.toBinaryString(rules.survive)
+                        + " with " + count + " neighbors", expected ? -1L : 0L, next);
+            }
+        }
+    }
+
+    private static long bits(int count, int bit) {
+        return ((count >> bit) & 1) == 1 ? -1L : 0L;
+    }
+
+    private static String toRuleString(int birth, int survive) {
+        StringBuilder rule = new StringBuilder("B");
+        for (int count = 0; count <= 8; count++) {
+            if (((birth >> count) & 1) == 1) {
+                rule.append(count);
+            }
+        }
+        rule.append("/S");
+        for (int count = 0; count <= 8; count++) {
+            if (((survive >> count) & 1) == 1) {
+                rule.append(count);
+            }
+        }
+        return rule.toString();
+    }
+}
@@ -166,4 +166,15 @@ public class SampleGameFilledSquareNoWrapTest {
         game.processGameStep();
         assertEquals("Step: " + game.getCurrentStep(), step6, game.createBoardString('.', '#'));
     }
+
+    @Test
+    public void testSampleGameWithDeadEdges() {
+        game = GameState.createNewGame(initialCondition.split("\n"), '#', GameState.Engine.DENSE,
+                GameState.EdgePolicy.DEAD);
+        String[] steps = {initialCondition, step1, step2, step3, step4, step5, step6};
+        for (String step : steps) {
+            assertEquals("Step: " + game.getCurrentStep(), step, game.createBoardString('.', '#'));
+            game.processGameStep();
+        }
+    }
 }
@@ -64,17 +64,17 @@ public class SampleGameFilledSquareTest {
         assertEquals(initialCondition, game.createBoardString('.', '#'));
 
         game._determineCellsNextState();
-        assertTrue(cell.isAddedToNextStepQueue().get());
-        assertTrue(cell.isAddedToUpdateQueue().get());
+        assertTrue(cell.isMarkedForNextStep());
+        assertTrue(cell.isMarkedForUpdate());
         game._updateCellStates();
         game._copyNextCellQueueToCurrent();
         assertEquals(step1, game.createBoardString('.', '#'));
 
         //game.processGameStep();
         //assertTrue(game.currentCellQueue.contains(cell));
-        assertFalse(cell.isAddedToNextStepQueue().get());
+        assertFalse(cell.isMarkedForNextStep());
         game._determineCellsNextState();
-        assertTrue(cell.isAddedToNextStepQueue().get());
+        assertTrue(cell.isMarkedForNextStep());
         //assertTrue(game.nextStepCellQueue.contains(cell));
         game._updateCellStates();
         game._copyNextCellQueueToCurrent();
@@ -0,0 +1,170 @@
+package conlife;
+
+import conlife.utils.Lif1_5Reader;
+import org.junit.Test;
+
+import java.awt.Dimension;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class SparseEngineTest {
+
+    private static final String glider
+            = ".#....\n"
+            + "..#...\n"
+            + "###...\n"
+            + "......\n"
+            + "......";
+
+    @Test
+    public void testGliderDoesNotWrap() {
+        GameState game = GameState.createNewGame(glider.split("\n"), '#', GameState.Engine.UNBOUNDED);
+        assertFalse(game.getEngine().isBounded());
+        for (int i = 0; i < 400; i++) {
+            game.processGameStep();
+        }
+        // The glider has left the visible part of the board for good instead of coming back around
+        assertEquals(glider.replace('#', '.'), game.createBoardString('.', '#'));
+        assertTrue(game.isAlive(101, 100));
+        assertTrue(game.isAlive(102, 101));
+        assertTrue(game.isAlive(100, 102));
+        assertTrue(game.isAlive(101, 102));
+        assertTrue(game.isAlive(102, 102));
+        Cell cell = game.getCell(101, 100);
+        assertEquals(1, cell.getLivingNeighborCount());
+        assertTrue(cell.getNeighbor(Direction.SOUTH_EAST).isAlive());
+        assertEquals(102, cell.getNeighbor(Direction.SOUTH_EAST).getX());
+    }
+
+    @Test
+    public void testNegativeCoordinates() {
+        GameState game = GameState.createNewGame(new Dimension(10, 10), GameState.Engine.UNBOUNDED);
+        // A blinker across the corner where four tiles meet
+        game.getCell(-1, 0).setCurrentlyAlive(true);
+        game.getCell(0, 0).setCurrentlyAlive(true);
+        game.getCell(1, 0).setCurrentlyAlive(true);
+        game.processGameStep();
+        assertTrue(game.isAlive(0, -1));
+        assertTrue(game.isAlive(0, 0));
+        assertTrue(game.isAlive(0, 1));
+        assertFalse(game.isAlive(-1, 0));
+        assertEquals(4, game.getCellsThatChangedState().size());
+    }
+
+    @Test
+    public void testMatchesBitBoard() throws Exception {
+        Rules rules = Rules.parseRules("B3/S23");
+        Dimension boardSize = new Dimension(200, 200);
+        boolean[][] board = Lif1_5Reader.fromResourceOrFile(boardSize, "/samples/ACORN.LIF").getBoard();
+        GameState bits = GameState.createNewGame(rules, boardSize, 1, GameState.Engine.BIT_PACKED);
+        GameState tiles = GameState.createNewGame(rules, boardSize, 1, GameState.Engine.UNBOUNDED);
+        for (int y = 0; y < 200; y++) {
+            for (int x = 0; x < 200; x++) {
+                if (board[y][x]) {
+                    bits.getCell(x, y).setCurrentlyAlive(true);
+                    tiles.getCell(x, y).setCurrentlyAlive(true);
+                }
+            }
+        }
+        // Acorn stays clear of the edges of the torus for this long
+        for (int step = 0; step < 150; step++) {
+            bits.processGameStep();
+            tiles.processGameStep();
+            assertEquals("Step " + step, bits.createBoardString('.', '#'), tiles.createBoardString('.', '#'));
+            assertEquals(changedCells(bits), changedCells(tiles));
+        }
+    }
+
+    @Test
+    public void testMatchesHashLife() throws Exception {
+        Rules rules = Rules.parseRules("B3/S23");
+        boolean[][] board = Lif1_5Reader.fromResourceOrFile(new Dimension(100, 100), "/samples/ACORN.LIF").getBoard();
+        HashLife universe = HashLife.fromBoard(rules, board);
+        SparseEngine engine = new SparseEngine();
+        for (int y = 0; y < board.length; y++) {
+            for (int x = 0; x < board[y].length; x++) {
+                engine.setAlive(x, y, board[y][x]);
+            }
+        }
+        // Long enough for gliders to escape across several tiles
+        universe.advance(1000);
+        for (int step = 0; step < 1000; step++) {
+            engine.step(rules);
+        }
+        assertEquals(universe.getPopulation(), engine.getPopulation());
+        for (int y = -250; y < 350; y++) {
+            for (int x = -250; x < 350; x++) {
+                assertEquals(x + "," + y, universe.isAlive(x, y), engine.isAlive(x, y));
+            }
+        }
+    }
+
+    @Test
+    public void testEmptyTilesAreFreed() throws Exception {
+        Rules rules = Rules.parseRules("B3/S23");
+        SparseEngine engine = new SparseEngine();
+        engine.setAlive(1, 0, true);
+        engine.setAlive(2, 1, true);
+        engine.setAlive(0, 2, true);
+        engine.setAlive(1, 2, true);
+        engine.setAlive(2, 2, true);
+        for (int i = 0; i < 4 * 1000; i++) {
+            engine.step(rules);
+            // A glider never touches more than four tiles, plus the ones it just left behind
+            assertTrue(engine.getTileCount() <= 9);
+        }
+        assertEquals(5, engine.getPopulation());
+
+        // A lone cell dies, and its tile goes away once the death has been reported
+        engine = new SparseEngine();
+        engine.setAlive(-100, -100, true);
+        assertEquals(1, engine.getTileCount());
+        engine.step(rules);
+        assertEquals(0, engine.getPopulation());
+        engine.step(rules);
+        assertEquals(0, engine.getTileCount());
+    }
+
+    @Test
+    public void testStillLifesAreSkipped() throws Exception {
+        Rules rules = Rules.parseRules("B3/S23");
+        SparseEngine engine = new SparseEngine();
+        // Blocks spread over 16 tiles, including their borders, and a blinker on its own
+        for (int y = 0; y < 256; y += 4) {
+            for (int x = 0; x < 256; x += 4) {
+                engine.setAlive(x, y, true);
+                engine.setAlive(x + 1, y, true);
+                engine.setAlive(x, y + 1, true);
+                engine.setAlive(x + 1, y + 1, true);
+            }
+        }
+        engine.setAlive(1000, 1000, true);
+        engine.setAlive(1001, 1000, true);
+        engine.setAlive(1002, 1000, true);
+        long population = engine.getPopulation();
+        for (int i = 0; i < 10; i++) {
+            engine.step(rules);
+        }
+        assertEquals(population, engine.getPopulation());
+        // Only the tile with the blinker still changes
+        assertEquals(1, engine.getLastActiveTileCount());
+        assertTrue(engine.isAlive(1000, 1000));
+        assertTrue(engine.isAlive(0, 0));
+        assertTrue(engine.isAlive(253, 253));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBirthOnZeroNeighbors() throws Exception {
+        new SparseEngine().step(Rules.parseRules("B0/S"));
+    }
+
+    private static Set<String> changedCells(GameState game) {
+        Set<String> changed = new HashSet<>();
+        for (Cell cell : game.getCellsThatChangedState()) {
+            changed.add(cell.getX() + "," + cell.getY() + "," + cell.isAlive());
+        }
+        return changed;
+    }
+}
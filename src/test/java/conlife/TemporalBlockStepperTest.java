@@ -0,0 +1,89 @@
+package conlife;
+
+import org.junit.Test;
+
+import java.awt.Dimension;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class TemporalBlockStepperTest {
+
+    @Test
+    public void testMatchesOneGenerationAtATime() throws Exception {
+        Rules rules = Rules.parseRules("B36/S23");
+        // Includes boards shorter than a block is deep, so the padding wraps around the board more than once
+        int[][] sizes = {{1, 1}, {5, 7}, {64, 9}, {40, 90}};
+        int[] depths = {1, 2, 3, 5, 16};
+        for (GameState.EdgePolicy edges : GameState.EdgePolicy.values()) {
+            for (int threads : new int[]{1, 3}) {
+                for (int[] size : sizes) {
+                    for (int depth : depths) {
+                        String context = edges + " " + size[0] + "x" + size[1] + " threads " + threads + " depth "
+                                + depth;
+                        compare(rules, new Dimension(size[0], size[1]), edges, threads, depth, context);
+                    }
+                }
+            }
+        }
+    }
+
+    private void compare(Rules rules, Dimension boardSize, GameState.EdgePolicy edges, int threads, int depth,
+                         String context) {
+        GameState single = GameState.createNewGame(rules, boardSize, 1, GameState.Engine.DENSE, edges);
+        GameState blocked = GameState.createNewGame(rules, boardSize, threads, GameState.Engine.DENSE, edges);
+        blocked.setGenerationsPerSync(depth);
+        Random random = new Random(11);
+        for (int y = 0; y < boardSize.height; y++) {
+            for (int x = 0; x < boardSize.width; x++) {
+                if (random.nextInt(3) == 0) {
+                    single.getCell(x, y).setCurrentlyAlive(true);
+                    blocked.getCell(x, y).setCurrentlyAlive(true);
+                }
+            }
+        }
+        // Runs of steps that don't line up with the blocks, with single steps and edits in between
+        int[] runs = {7, 1, 20, 4};
+        for (int run : runs) {
+            for (int step = 0; step < run; step++) {
+                single.processGameStep();
+            }
+            blocked.processGameSteps(run);
+            assertEquals(context, single.getCurrentStep(), blocked.getCurrentStep());
+            assertEquals(context, single.createBoardString('.', '#'), blocked.createBoardString('.', '#'));
+            assertEquals(context, changedCells(single), changedCells(blocked));
+
+            single.getCell(0, 0).setCurrentlyAlive(true);
+            blocked.getCell(0, 0).setCurrentlyAlive(true);
+            single.processGameStep();
+            blocked.processGameStep();
+            assertEquals(context, single.createBoardString('.', '#'), blocked.createBoardString('.', '#'));
+            assertEquals(context, changedCells(single), changedCells(blocked));
+        }
+    }
+
+    @Test
+    public void testDefaultDepth() {
+        GameState small = GameState.createNewGame(GameState.getDefaultRules(), new Dimension(10, 10), 4,
+                GameState.Engine.DENSE);
+        GameState big = GameState.createNewGame(GameState.getDefaultRules(), new Dimension(2000, 2000), 4,
+                GameState.Engine.DENSE);
+        GameState cells = GameState.createNewGame(GameState.getDefaultRules(), new Dimension(10, 10), 1,
+                GameState.Engine.CELLS);
+        assertEquals(1, small.getGenerationsPerSync());
+        assertTrue(big.getGenerationsPerSync() > 1);
+        assertTrue(big.getGenerationsPerSync() <= TemporalBlockStepper.MAX_DEFAULT_DEPTH);
+        cells.setGenerationsPerSync(8);
+        assertEquals(1, cells.getGenerationsPerSync());
+    }
+
+    private static Set<String> changedCells(GameState game) {
+        Set<String> changed = new HashSet<>();
+        for (Cell cell : game.getCellsThatChangedState()) {
+            changed.add(cell.getX() + "," + cell.getY() + "," + cell.isAlive());
+        }
+        return changed;
+    }
+}
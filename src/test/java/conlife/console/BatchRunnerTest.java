@@ -0,0 +1,108 @@
+package conlife.console;
+
+import conlife.GameState;
+import conlife.Rules;
+import conlife.utils.Lif1_5Reader;
+import org.junit.Test;
+
+import java.awt.Dimension;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class BatchRunnerTest {
+
+    @Test
+    public void testEveryPatternUnderEveryRule() throws Exception {
+        String[] patterns = {"/samples/ACORN.LIF", "/samples/LINEPUF.LIF"};
+        String[] rules = {"B3/S23", "B36/S23"};
+        BatchRunner runner = new BatchRunner().setBoardSize(120).setTotalSteps(50).setParallelism(3);
+        for (String pattern : patterns) {
+            runner.addPattern(pattern);
+        }
+        for (String rulesString : rules) {
+            runner.addRules(rulesString);
+        }
+        StringWriter csv = new StringWriter();
+        assertEquals(0, runner.run(new PrintWriter(csv)));
+
+        String[] lines = csv.toString().trim().split("\\R");
+        assertEquals(BatchRunner.CSV_HEADER, lines[0]);
+        assertEquals(patterns.length * rules.length + 1, lines.length);
+        Map<String, String> populations = new HashMap<>();
+        for (int i = 1; i < lines.length; i++) {
+            String[] fields = lines[i].split(",");
+            assertEquals("50", fields[4]);
+            populations.put(fields[0] + " " + fields[1], fields[7]);
+        }
+        for (String pattern : patterns) {
+            for (String rulesString : rules) {
+                Lif1_5Reader reader = Lif1_5Reader.fromResourceOrFile(new Dimension(120, 120), pattern);
+                GameState game = GameState.createNewGame(Rules.parseRules(rulesString),
+                        reader.createBoardString('.', '*').split("\n"), '*', 1, GameState.Engine.DENSE);
+                game.processGameSteps(50);
+                assertEquals(pattern + " " + rulesString, Integer.toString(game.getPopulation()),
+                        populations.get(pattern + " " + rulesString));
+            }
+        }
+    }
+
+    @Test
+    public void testPathsWithCommasAndQuotesAreQuoted() throws Exception {
+        File dir = Files.createTempDirectory("conlife").toFile();
+        File pattern = new File(dir, "acorn, \"the\" methuselah.lif");
+        try (InputStream in = BatchRunnerTest.class.getResourceAsStream("/samples/ACORN.LIF")) {
+            Files.copy(in, pattern.toPath());
+        }
+        try {
+            BatchRunner runner = new BatchRunner().setBoardSize(120).setTotalSteps(10).setParallelism(1);
+            runner.addPattern(pattern.getPath());
+            runner.addRules("B3/S23");
+            StringWriter csv = new StringWriter();
+            assertEquals(0, runner.run(new PrintWriter(csv)));
+            String line = csv.toString().trim().split("\\R")[1];
+            String quoted = '"' + pattern.getPath().replace("\"", "\"\"") + '"';
+            assertTrue(line, line.startsWith(quoted + ",B3/S23,"));
+            // Everything after the quoted pattern splits into the remaining fields as usual
+            assertEquals(7, line.substring(quoted.length() + 1).split(",").length);
+        } finally {
+            pattern.delete();
+            dir.delete();
+        }
+    }
+
+    @Test
+    public void testFailedRunsNameThePatternAndRules() throws Exception {
+        BatchRunner runner = new BatchRunner().setBoardSize(120).setTotalSteps(10).setParallelism(2);
+        runner.addPattern("/samples/ACORN.LIF");
+        runner.addPattern("missing.lif");
+        runner.addRules("B36/S23");
+        StringWriter csv = new StringWriter();
+        ByteArrayOutputStream errors = new ByteArrayOutputStream();
+        PrintStream err = System.err;
+        System.setErr(new PrintStream(errors, true));
+        try {
+            assertEquals(1, runner.run(new PrintWriter(csv)));
+        } finally {
+            System.setErr(err);
+        }
+        assertEquals(2, csv.toString().trim().split("\\R").length);
+        assertTrue(errors.toString(), errors.toString().startsWith("Unable to run missing.lif under B36/S23: "));
+    }
+
+    @Test
+    public void testCsvFields() {
+        assertEquals("B3/S23", BatchRunner.csvField("B3/S23"));
+        assertEquals("\"a,b\"", BatchRunner.csvField("a,b"));
+        assertEquals("\"say \"\"hi\"\"\"", BatchRunner.csvField("say \"hi\""));
+        assertEquals("\"two\nlines\"", BatchRunner.csvField("two\nlines"));
+    }
+}
@@ -0,0 +1,29 @@
+package conlife.console;
+
+import conlife.HashLife;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.Assert.*;
+
+public class ConlifeCLITest {
+
+    @Test
+    public void testJumpsRunUnderThePatternsRules() throws Exception {
+        File file = File.createTempFile("conlife", ".lif");
+        file.deleteOnExit();
+        // Far off a 20x20 board, and the middle cell has six neighbors so it's only born under HighLife
+        Files.write(file.toPath(), "#Life 1.05\n#R 23/36\n#P 100 100\n***\n*.*\n*..\n"
+                .getBytes(StandardCharsets.ISO_8859_1));
+        HashLife universe = ConlifeCLI.loadUniverse(file.getPath(), 20);
+        assertEquals("B36/S23", universe.getRules().toString());
+        assertEquals(6, universe.getPopulation());
+        assertTrue(universe.isAlive(110, 110));
+        assertFalse(universe.isAlive(111, 111));
+        universe.advance(1);
+        assertTrue(universe.isAlive(111, 111));
+    }
+}
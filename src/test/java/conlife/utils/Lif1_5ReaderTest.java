@@ -0,0 +1,105 @@
+package conlife.utils;
+
+import conlife.GameState;
+import conlife.Rules;
+import org.junit.Test;
+
+import java.awt.Dimension;
+import java.io.StringReader;
+import java.text.ParseException;
+
+import static org.junit.Assert.*;
+
+public class Lif1_5ReaderTest {
+
+    private static final String GLIDERS = "#Life 1.05\n#D Two gliders;#D and a comment\n#R 23/36\n"
+            + "#P -5 -3\n.*\n..*\n***\n#P 2 1\n***;*..;.*.\n";
+
+    private static String boardString(GameState game) {
+        StringBuilder b = new StringBuilder();
+        for (int y = 0; y < game.getBoardHeight(); y++) {
+            if (y != 0) {
+                b.append('\n');
+            }
+            for (int x = 0; x < game.getBoardWidth(); x++) {
+                b.append(game.isAlive(x, y) ? '*' : '.');
+            }
+        }
+        return b.toString();
+    }
+
+    @Test
+    public void testLoadingIntoAGameMatchesTheReader() throws Exception {
+        Dimension size = new Dimension(90, 70);
+        for (String pattern : new String[]{"/samples/ACORN.LIF", "/samples/GUN46.LIF"}) {
+            String expected = Lif1_5Reader.fromResourceOrFile(size, pattern).createBoardString('.', '*');
+            for (GameState.Engine engine : GameState.Engine.values()) {
+                try (GameState game = GameState.createNewGame(Rules.parseRules(GameState.DEFAULT_RULES_STRING), size, 2, engine)) {
+                    Lif1_5Reader.loadInto(game, pattern);
+                    assertEquals(pattern + " " + engine, expected, boardString(game));
+                    // The cells that were loaded are queued to be checked, so the game steps like one made from a string
+                    try (GameState reference = GameState.createNewGame(Rules.parseRules(GameState.DEFAULT_RULES_STRING),
+                            expected.split("\n"), '*', 2, engine)) {
+                        game.processGameSteps(5);
+                        reference.processGameSteps(5);
+                        assertEquals(pattern + " " + engine, boardString(reference), boardString(game));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testTokensAreSplitOnSemicolons() throws Exception {
+        Lif1_5Reader reader = Lif1_5Reader.fromString(new Dimension(12, 8), GLIDERS);
+        assertEquals(""
+                + "............\n"
+                + "..*.........\n"
+                + "...*........\n"
+                + ".***........\n"
+                + "............\n"
+                + "........***.\n"
+                + "........*...\n"
+                + ".........*..", reader.createBoardString('.', '*'));
+        try (GameState game = GameState.createNewGame(new Dimension(12, 8), GameState.Engine.DENSE)) {
+            Rules rules = Lif1_5Reader.loadInto(game, new StringReader(GLIDERS));
+            assertEquals(reader.createBoardString('.', '*'), boardString(game));
+            assertNotNull(rules);
+        }
+    }
+
+    @Test(expected = ParseException.class)
+    public void testPatternsHaveToFitOnTheBoard() throws Exception {
+        try (GameState game = GameState.createNewGame(new Dimension(6, 6), GameState.Engine.BIT_PACKED)) {
+            Lif1_5Reader.loadInto(game, new StringReader(GLIDERS));
+        }
+    }
+
+    @Test
+    public void testFailedLoadsLeaveTheBoardAlone() throws Exception {
+        for (GameState.Engine engine : GameState.Engine.values()) {
+            try (GameState game = GameState.createNewGame(Rules.parseRules(GameState.DEFAULT_RULES_STRING),
+                    new Dimension(10, 6), 1, engine)) {
+                game.setCells(new int[]{1, 4}, new int[]{0, 0}, new boolean[]{true, true});
+                String before = boardString(game);
+                try {
+                    // The first glider fits and the second runs off the bottom of the board
+                    Lif1_5Reader.loadInto(game, new StringReader(GLIDERS));
+                    if (engine.isBounded()) {
+                        fail("Expected the second glider not to fit on the board");
+                    }
+                } catch (ParseException expected) {
+                    assertEquals(engine.toString(), before, boardString(game));
+                    // The cells that were put back step as if nothing had happened
+                    game.processGameSteps(1);
+                    assertEquals(engine.toString(), 0, game.snapshot().getPopulation());
+                }
+            }
+        }
+    }
+
+    @Test(expected = ParseException.class)
+    public void testUnknownFormatsAreRejected() throws Exception {
+        Lif1_5Reader.fromString(new Dimension(10, 10), "#Life 1.06\n0 0\n");
+    }
+}
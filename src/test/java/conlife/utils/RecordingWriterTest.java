@@ -0,0 +1,141 @@
+package conlife.utils;
+
+import conlife.GameState;
+import conlife.Generation;
+import org.junit.Test;
+
+import java.awt.Dimension;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class RecordingWriterTest {
+
+    private static GameState acorn(GameState.Engine engine) throws Exception {
+        Lif1_5Reader reader = Lif1_5Reader.fromResourceOrFile(new Dimension(130, 90), "/samples/ACORN.LIF");
+        return GameState.createNewGame(reader.createBoardString('.', '#').split("\n"), '#', 2, engine);
+    }
+
+    private static String boardString(Generation generation) {
+        StringBuilder b = new StringBuilder();
+        for (int y = 0; y < generation.getHeight(); y++) {
+            if (y != 0) {
+                b.append('\n');
+            }
+            for (int x = 0; x < generation.getWidth(); x++) {
+                b.append(generation.isAlive(x, y) ? '#' : '.');
+            }
+        }
+        return b.toString();
+    }
+
+    private static String boardString(RecordingReader reader) {
+        StringBuilder b = new StringBuilder();
+        for (int y = 0; y < reader.getHeight(); y++) {
+            if (y != 0) {
+                b.append('\n');
+            }
+            for (int x = 0; x < reader.getWidth(); x++) {
+                b.append(reader.isAlive(x, y) ? '#' : '.');
+            }
+        }
+        return b.toString();
+    }
+
+    private static File tempFile() throws Exception {
+        File file = File.createTempFile("conlife", ".rec");
+        file.deleteOnExit();
+        return file;
+    }
+
+    @Test
+    public void testReplayMatchesTheGame() throws Exception {
+        for (GameState.Engine engine : new GameState.Engine[]{GameState.Engine.CELLS, GameState.Engine.DENSE}) {
+            File file = tempFile();
+            List<String> boards = new ArrayList<>();
+            try (GameState game = acorn(engine);
+                 RecordingWriter writer = RecordingWriter.createRecordingWriter(file, game)) {
+                writer.setKeyframeInterval(16);
+                writer.recordCurrentGameStep();
+                boards.add(boardString(game.snapshot()));
+                for (int step = 0; step < 100; step++) {
+                    Generation generation = game.stepAsync(1).join();
+                    writer.record(generation);
+                    boards.add(boardString(generation));
+                }
+            }
+            try (RecordingReader reader = RecordingReader.open(file)) {
+                assertEquals(101, reader.getFrameCount());
+                assertEquals(0, reader.getFirstStep());
+                assertEquals(100, reader.getLastStep());
+                for (int step = 0; step <= 100; step++) {
+                    assertEquals(step, reader.getStep());
+                    assertEquals(engine + " step " + step, boards.get(step), boardString(reader));
+                    assertEquals(step < 100, reader.next());
+                }
+                for (int step : new int[]{57, 3, 3, 99, 16, 15, 100, 0, 40, 41, 70}) {
+                    reader.seek(step);
+                    assertEquals(step, reader.getStep());
+                    assertEquals(engine + " seek " + step, boards.get(step), boardString(reader));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testDeltasAreSmallerThanKeyframes() throws Exception {
+        File deltas = tempFile(), keyframes = tempFile();
+        for (File file : new File[]{deltas, keyframes}) {
+            try (GameState game = acorn(GameState.Engine.DENSE);
+                 RecordingWriter writer = RecordingWriter.createRecordingWriter(file, game)) {
+                writer.setKeyframeInterval(file == deltas ? RecordingWriter.DEFAULT_KEYFRAME_INTERVAL : 1);
+                writer.recordCurrentGameStep();
+                for (int step = 0; step < 50; step++) {
+                    game.processGameStep();
+                    writer.recordCurrentGameStep();
+                }
+            }
+        }
+        assertTrue(deltas.length() * 5 < keyframes.length());
+    }
+
+    @Test
+    public void testRestoreIntoAGame() throws Exception {
+        File file = tempFile();
+        try (GameState game = acorn(GameState.Engine.BIT_PACKED);
+             RecordingWriter writer = RecordingWriter.createRecordingWriter(file, game)) {
+            for (int step = 0; step < 30; step++) {
+                game.processGameStep();
+                if (step % 3 == 0) {
+                    writer.recordCurrentGameStep();
+                }
+            }
+        }
+        try (RecordingReader reader = RecordingReader.open(file);
+             GameState game = acorn(GameState.Engine.CELLS)) {
+            // Only every third step was recorded, so seeking goes to the one before
+            reader.seek(14);
+            assertEquals(13, reader.getStep());
+            reader.restore(game);
+            assertEquals(boardString(reader), boardString(game.snapshot()));
+            try (GameState reference = acorn(GameState.Engine.CELLS)) {
+                reference.processGameSteps(13);
+                assertEquals(boardString(reference.snapshot()), boardString(game.snapshot()));
+                game.processGameStep();
+                reference.processGameStep();
+                assertEquals(boardString(reference.snapshot()), boardString(game.snapshot()));
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testGenerationsHaveToBeInOrder() throws Exception {
+        try (GameState game = acorn(GameState.Engine.DENSE);
+             RecordingWriter writer = RecordingWriter.createRecordingWriter(tempFile(), game)) {
+            writer.recordCurrentGameStep();
+            writer.recordCurrentGameStep();
+        }
+    }
+}
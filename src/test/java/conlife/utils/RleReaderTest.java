@@ -0,0 +1,129 @@
+package conlife.utils;
+
+import conlife.GameState;
+import conlife.Rules;
+import org.junit.Test;
+
+import java.awt.Dimension;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.text.ParseException;
+
+import static org.junit.Assert.*;
+
+public class RleReaderTest {
+
+    private static final String GOSPER_GUN = "#N Gosper glider gun\n"
+            + "#C The first known gun\n"
+            + "x = 36, y = 9, rule = B3/S23\n"
+            + "24bo$22bobo$12b2o6b2o12b2o$11bo3bo4b2o12b2o$2o8bo5bo3b2o$2o8bo3bob2o4b\n"
+            + "obo$10bo5bo7bo$11bo3bo$12b2o!\n";
+
+    private static String boardString(GameState game) {
+        StringBuilder b = new StringBuilder();
+        for (int y = 0; y < game.getBoardHeight(); y++) {
+            if (y != 0) {
+                b.append('\n');
+            }
+            for (int x = 0; x < game.getBoardWidth(); x++) {
+                b.append(game.isAlive(x, y) ? '*' : '.');
+            }
+        }
+        return b.toString();
+    }
+
+    private static String toRle(GameState game) throws Exception {
+        StringWriter out = new StringWriter();
+        RleWriter.write(game.snapshot(), game.getRules(), out);
+        // Leave out the comment with the step
+        return out.toString().substring(out.toString().indexOf('\n') + 1);
+    }
+
+    @Test
+    public void testReadingAGun() throws Exception {
+        try (GameState game = GameState.createNewGame(new Dimension(40, 11), GameState.Engine.DENSE)) {
+            RleReader.loadInto(game, new StringReader(GOSPER_GUN));
+            // Centered, so the pattern starts two columns and one row in
+            assertTrue(game.isAlive(2, 5));
+            assertTrue(game.isAlive(26, 1));
+            assertFalse(game.isAlive(1, 5));
+        }
+        try (GameState game = GameState.createNewGame(new Dimension(100, 100), GameState.Engine.DENSE)) {
+            Rules rules = RleReader.loadInto(game, new StringReader(GOSPER_GUN));
+            assertEquals("B3/S23", rules.toString());
+            assertEquals(36, game.getPopulation());
+            // The gun puts out a glider every 30 generations
+            game.processGameSteps(30);
+            assertEquals(41, game.getPopulation());
+        }
+    }
+
+    @Test
+    public void testWrittenPatternsReadBackTheSame() throws Exception {
+        for (GameState.Engine engine : new GameState.Engine[]{GameState.Engine.CELLS, GameState.Engine.DENSE}) {
+            try (GameState game = GameState.createNewGame(new Dimension(200, 150), engine)) {
+                Lif1_5Reader.loadInto(game, "/samples/ACORN.LIF");
+                game.processGameSteps(120);
+                String rle = toRle(game);
+                try (GameState copy = GameState.createNewGame(new Dimension(200, 150), engine)) {
+                    RleReader.loadInto(copy, new StringReader(rle));
+                    assertEquals(game.getPopulation(), copy.getPopulation());
+                    assertEquals(rle, toRle(copy));
+                    for (String line : rle.split("\n")) {
+                        assertTrue(line, line.length() <= 70);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testOldStyleRulesAndMissingEnd() throws Exception {
+        try (GameState game = GameState.createNewGame(new Dimension(5, 5), GameState.Engine.BIT_PACKED)) {
+            Rules rules = RleReader.loadInto(game, new StringReader("x = 3, y = 4, rule = 23/36\n3o$\n2$o"));
+            assertEquals("B36/S23", rules.toString());
+            assertEquals(".***.\n.....\n.....\n.*...\n.....", boardString(game));
+        }
+    }
+
+    @Test
+    public void testEmptyBoardsWriteAnEmptyPattern() throws Exception {
+        try (GameState game = GameState.createNewGame(new Dimension(5, 5), GameState.Engine.DENSE)) {
+            assertEquals("x = 0, y = 0, rule = B3/S23\n!\n", toRle(game));
+            RleReader.loadInto(game, new StringReader(toRle(game)));
+            assertEquals(0, game.getPopulation());
+        }
+    }
+
+    @Test(expected = ParseException.class)
+    public void testCellsHaveToBeInsideThePattern() throws Exception {
+        try (GameState game = GameState.createNewGame(new Dimension(10, 10), GameState.Engine.DENSE)) {
+            RleReader.loadInto(game, new StringReader("x = 2, y = 2\n3o!"));
+        }
+    }
+
+    @Test
+    public void testRowsHaveToBeInsideThePattern() throws Exception {
+        try (GameState game = GameState.createNewGame(new Dimension(10, 10), GameState.Engine.DENSE)) {
+            RleReader.loadInto(game, new StringReader("x = 2, y = 3\no$\n500$o!"));
+            fail("Expected the rows past the pattern to be rejected");
+        } catch (ParseException expected) {
+            assertTrue(expected.getMessage(), expected.getMessage().endsWith("at line 3, column 4"));
+            assertEquals(3, expected.getErrorOffset());
+        }
+    }
+
+    @Test
+    public void testFailedLoadsLeaveTheBoardAlone() throws Exception {
+        try (GameState game = GameState.createNewGame(new Dimension(10, 10), GameState.Engine.DENSE)) {
+            game.setCells(new int[]{0}, new int[]{0}, new boolean[]{true});
+            String before = boardString(game);
+            try {
+                RleReader.loadInto(game, new StringReader("x = 2, y = 2\n2o$3o!"));
+                fail("Expected the cells past the pattern to be rejected");
+            } catch (ParseException expected) {
+                assertEquals(before, boardString(game));
+            }
+        }
+    }
+}